@@ -0,0 +1,143 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twiza.benchmarks;
+
+import com.twiza.domain.ERow;
+import com.twiza.domain.ESheet;
+import com.twiza.domain.ExcelSheet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the in-memory operations on sheets: compare, keys building and template matching.
+ * The compare should scale linearly with the rows number: its score for 100k rows should stay close to
+ * 10 times its score for 10k rows, a quadratic compare would take 100 times longer.
+ * The scaling up to 1M rows is measured by {@link Scaling}, on narrower sheets.
+ *
+ * @author Mohamed.Chamlal
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class SheetCompareBenchmark {
+    @Param({"10000", "100000"})
+    private int rowsNumber;
+    @Param({"10", "50"})
+    private int columnsNumber;
+    @Param({"0.01", "0.1"})
+    private double changeRatio;
+    @Param({"1", "3"})
+    private int keyWidth;
+
+    private ESheet oldSheet;
+    private ESheet newSheet;
+    private int[] keyIndexes;
+    private List<String> template;
+
+    @Setup(Level.Trial)
+    public void buildSheets() {
+        oldSheet = SyntheticSheets.buildOldSheet("Sheet", rowsNumber, columnsNumber, keyWidth);
+        newSheet = SyntheticSheets.buildNewSheet("Sheet", rowsNumber, columnsNumber, keyWidth, changeRatio);
+        keyIndexes = newSheet.getKeysIndexes();
+        // the template reverses the columns, drops the last one, and adds a missing one
+        template = new ArrayList<>(SyntheticSheets.buildHeaders(columnsNumber));
+        Collections.reverse(template);
+        template.set(0, "MissingHeader");
+    }
+
+    @Benchmark
+    public ESheet compare() {
+        return newSheet.compare(oldSheet);
+    }
+
+    @Benchmark
+    public ESheet compareInParallel() {
+        return newSheet.compare(oldSheet, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public void getKey(Blackhole blackhole) {
+        for (ERow row : newSheet.getData()) {
+            blackhole.consume(row.getKey(keyIndexes));
+        }
+    }
+
+    @Benchmark
+    public void getRowKey(Blackhole blackhole) {
+        for (ERow row : newSheet.getData()) {
+            blackhole.consume(row.getRowKey(keyIndexes));
+        }
+    }
+
+    /**
+     * the template is applied to a copy of the sheet, the copy is part of the measured time
+     * as {@code matchWithTemplate} modifies the sheet.
+     */
+    @Benchmark
+    public ESheet matchWithTemplate() {
+        return new ExcelSheet(newSheet).matchWithTemplate(template, ESheet.TemplateMode.MATCH);
+    }
+
+    @Benchmark
+    public ESheet copySheet() {
+        return new ExcelSheet(newSheet);
+    }
+
+    /**
+     * The compare of 10k to 1M rows, each point should take about 10 times the previous one.
+     * The sheets have 10 columns only: the 2 compared sheets and the diff of 1M rows hold about 2.5GB,
+     * 50 columns wouldn't fit in the heap of a fork.
+     */
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, time = 10)
+    @Measurement(iterations = 3, time = 10)
+    @Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+    @State(Scope.Benchmark)
+    public static class Scaling {
+        @Param({"10000", "100000", "1000000"})
+        private int rowsNumber;
+        @Param({"1", "3"})
+        private int keyWidth;
+
+        private ESheet oldSheet;
+        private ESheet newSheet;
+
+        @Setup(Level.Trial)
+        public void buildSheets() {
+            oldSheet = SyntheticSheets.buildOldSheet("Sheet", rowsNumber, 10, keyWidth);
+            newSheet = SyntheticSheets.buildNewSheet("Sheet", rowsNumber, 10, keyWidth, 0.1);
+        }
+
+        @Benchmark
+        public ESheet compare() {
+            return newSheet.compare(oldSheet);
+        }
+
+        @Benchmark
+        public ESheet compareInParallel() {
+            return newSheet.compare(oldSheet, Runtime.getRuntime().availableProcessors());
+        }
+    }
+}
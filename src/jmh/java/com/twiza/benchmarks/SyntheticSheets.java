@@ -0,0 +1,80 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twiza.benchmarks;
+
+import com.twiza.domain.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds synthetic sheets for the benchmarks, so they run offline and always on the same data.
+ * <p>
+ * The old version of a sheet has {@code rowsNumber} rows, the new version drops its first percent of rows,
+ * adds as many new rows at the end, and changes the last cell of a {@code changeRatio} of the common rows.
+ * The first {@code keyWidth} columns compose the key of the rows.
+ *
+ * @author Mohamed.Chamlal
+ */
+final class SyntheticSheets {
+    private static final long SEED = 42;
+    private static final double SHIFTED_ROWS_RATIO = 0.01;
+
+    private SyntheticSheets() {
+    }
+
+    static List<String> buildHeaders(int columnsNumber) {
+        List<String> headers = new ArrayList<>(columnsNumber);
+        for (int column = 0; column < columnsNumber; column++) {
+            headers.add("Header" + column);
+        }
+        return headers;
+    }
+
+    static ESheet buildOldSheet(String name, int rowsNumber, int columnsNumber, int keyWidth) {
+        return buildSheet(name, rowsNumber, columnsNumber, keyWidth, 0, 0);
+    }
+
+    static ESheet buildNewSheet(String name, int rowsNumber, int columnsNumber, int keyWidth, double changeRatio) {
+        return buildSheet(name, rowsNumber, columnsNumber, keyWidth, changeRatio, (int) (rowsNumber * SHIFTED_ROWS_RATIO));
+    }
+
+    private static ESheet buildSheet(String name, int rowsNumber, int columnsNumber, int keyWidth,
+                                     double changeRatio, int shift) {
+        if (keyWidth > columnsNumber) {
+            throw new IllegalArgumentException("the key cannot be wider than the rows: " + keyWidth + " > " + columnsNumber);
+        }
+        Random random = new Random(SEED);
+        List<ERow> rows = new ArrayList<>(rowsNumber);
+        for (int i = shift; i < rowsNumber + shift; i++) {
+            List<ECell> cells = new ArrayList<>(columnsNumber);
+            for (int column = 0; column < columnsNumber; column++) {
+                String value = column < keyWidth ? "Key" + column + "_" + i : "value" + column + "_" + i;
+                cells.add(new ExcelCell(value));
+            }
+            if (random.nextDouble() < changeRatio) {
+                cells.set(columnsNumber - 1, new ExcelCell("changed_" + i));
+            }
+            rows.add(new ExcelRow(cells));
+        }
+        int[] keyIndexes = new int[keyWidth];
+        for (int column = 0; column < keyWidth; column++) {
+            keyIndexes[column] = column;
+        }
+        return new ExcelSheet(name, rows, buildHeaders(columnsNumber)).setKeyIndexes(keyIndexes);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twiza.benchmarks;
+
+import com.twiza.domain.EWorkbook;
+import com.twiza.utils.ExcelReader;
+import com.twiza.utils.WorkbookGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link ExcelReader#read(Path, java.util.List, boolean, ExcelReader.ReadMode)},
+ * the read workbook is generated by {@link WorkbookGenerator} in a temporary directory before the benchmarks,
+ * so they run offline.
+ *
+ * @author Mohamed.Chamlal
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class WorkbookReadBenchmark {
+    @Param({"10000", "100000"})
+    private int rowsNumber;
+    @Param({"10", "50"})
+    private int columnsNumber;
+    @Param({"USER_MODEL", "STREAMING"})
+    private ExcelReader.ReadMode readMode;
+
+    private Path workbookPath;
+    private Path unusedWorkbookPath;
+
+    @Setup(Level.Trial)
+    public void writeWorkbook() throws IOException {
+        workbookPath = Files.createTempFile("benchmark", ".xlsx");
+        unusedWorkbookPath = Files.createTempFile("benchmark", ".xlsx");
+        new WorkbookGenerator().setRowsNumber(rowsNumber)
+                               .setColumnsNumber(columnsNumber)
+                               .setValuesCardinality(1000)
+                               .setFormulaColumnsNumber(1)
+                               .setDuplicateRowsRatio(0.01)
+                               .setBlankRowsRatio(0.01)
+                               .generate(workbookPath, unusedWorkbookPath);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteWorkbook() throws IOException {
+        Files.delete(workbookPath);
+        Files.delete(unusedWorkbookPath);
+    }
+
+    @Benchmark
+    public EWorkbook read() throws IOException {
+        return ExcelReader.getInstance().read(workbookPath, null, false, readMode);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twiza.benchmarks;
+
+import com.twiza.domain.EWorkbook;
+import com.twiza.domain.ExcelWorkbook;
+import com.twiza.utils.ExcelWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link ExcelWriter#writeToWorkbook(String, EWorkbook, ExcelWriter.WriteMode)} writing a diff workbook,
+ * the changed cells have comments, and the added and deleted rows are colored.
+ *
+ * @author Mohamed.Chamlal
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class WorkbookWriteBenchmark {
+    @Param({"10000", "100000"})
+    private int rowsNumber;
+    @Param({"10", "50"})
+    private int columnsNumber;
+    @Param({"0.01", "0.1"})
+    private double changeRatio;
+    @Param({"IN_MEMORY", "STREAMING"})
+    private ExcelWriter.WriteMode writeMode;
+
+    private Path diffPath;
+    private EWorkbook diffWorkbook;
+
+    @Setup(Level.Trial)
+    public void buildDiffWorkbook() throws IOException {
+        diffPath = Files.createTempFile("benchmark", ".xlsx");
+        EWorkbook oldWorkbook = new ExcelWorkbook(null, Collections.singletonList(
+                SyntheticSheets.buildOldSheet("Sheet", rowsNumber, columnsNumber, 1)));
+        EWorkbook newWorkbook = new ExcelWorkbook(null, Collections.singletonList(
+                SyntheticSheets.buildNewSheet("Sheet", rowsNumber, columnsNumber, 1, changeRatio)));
+        diffWorkbook = newWorkbook.compare(oldWorkbook);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDiffWorkbook() throws IOException {
+        Files.deleteIfExists(diffPath);
+    }
+
+    @Benchmark
+    public Path write() throws IOException {
+        ExcelWriter.getInstance().writeToWorkbook(diffPath.toString(), diffWorkbook, writeMode);
+        return diffPath;
+    }
+}
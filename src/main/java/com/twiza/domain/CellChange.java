@@ -0,0 +1,164 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.domain;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One change of the value of a cell: when it happened, the value before the change, and who made it.
+ * <p>
+ * changes are immutable, a cell's changes history is a list of them that is only rendered
+ * as text when it's displayed (e.g. as a comment of the written cell).
+ *
+ * @author Mohamed.Chamlal
+ */
+public final class CellChange {
+    /**
+     * Date and time format used when the change is rendered as text.
+     */
+    static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    /**
+     * the author of the changes detected by comparing two versions of a cell.
+     */
+    static final String DEFAULT_AUTHOR = "User";
+    private static final String FIELDS_SEPARATOR = "\t";
+    private static final String CHANGES_SEPARATOR = "\n";
+    private static final int FIELDS_NUMBER = 3;
+
+    private final LocalDateTime dateTime;
+    private final String oldValue;
+    private final String author;
+
+    public CellChange(LocalDateTime dateTime, String oldValue, String author) {
+        this.dateTime = Objects.requireNonNull(dateTime);
+        this.oldValue = Objects.requireNonNull(oldValue);
+        this.author = Objects.requireNonNull(author);
+    }
+
+    /**
+     * Creates the change of a value made now, by the {@link #DEFAULT_AUTHOR}.
+     * the time is kept to the second, as it's rendered.
+     *
+     * @param oldValue the value before the change
+     * @return the change of the value
+     */
+    static CellChange now(String oldValue) {
+        return new CellChange(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS), oldValue, DEFAULT_AUTHOR);
+    }
+
+    public LocalDateTime getDateTime() {
+        return dateTime;
+    }
+
+    public String getOldValue() {
+        return oldValue;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    /**
+     * Returns a new list made of the provided changes followed by the new one,
+     * the provided changes are never modified so they can be shared by copies of a cell.
+     *
+     * @param changes   the current changes, {@code null} is considered as an empty list
+     * @param newChange the change to add
+     * @return an unmodifiable list of the changes
+     */
+    static List<CellChange> append(List<CellChange> changes, CellChange newChange) {
+        if (changes == null || changes.isEmpty()) {
+            return Collections.singletonList(newChange);
+        }
+        List<CellChange> newChanges = new ArrayList<>(changes.size() + 1);
+        newChanges.addAll(changes);
+        newChanges.add(newChange);
+        return Collections.unmodifiableList(newChanges);
+    }
+
+    /**
+     * Parses a changes history, made of one change per line, and the date & time, the old value and the author
+     * of each change separated with tabs.
+     *
+     * @param changesHistory the text of the changes history
+     * @return the parsed changes, an empty list if any of the lines doesn't follow the format
+     */
+    static List<CellChange> parse(String changesHistory) {
+        List<CellChange> changes = new ArrayList<>();
+        for (String line : changesHistory.split(CHANGES_SEPARATOR)) {
+            String[] fields = line.split(FIELDS_SEPARATOR, FIELDS_NUMBER);
+            if (fields.length < FIELDS_NUMBER) {
+                return Collections.emptyList();
+            }
+            try {
+                changes.add(new CellChange(LocalDateTime.parse(fields[0], DATE_TIME_FORMATTER), fields[1], fields[2]));
+            } catch (DateTimeException e) {
+                return Collections.emptyList();
+            }
+        }
+        return Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * Renders the changes as text, one change per line.
+     *
+     * @param changes the changes to render, {@code null} is considered as an empty list
+     * @return the text of the changes history, empty if there are no changes
+     */
+    static String render(List<CellChange> changes) {
+        if (changes == null || changes.isEmpty()) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (CellChange change : changes) {
+            if (builder.length() > 0) {
+                builder.append(CHANGES_SEPARATOR);
+            }
+            builder.append(change);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CellChange)) {
+            return false;
+        }
+        CellChange change = (CellChange) o;
+        return dateTime.equals(change.dateTime) && oldValue.equals(change.oldValue) && author.equals(change.author);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(dateTime, oldValue, author);
+    }
+
+    @Override
+    public String toString() {
+        return dateTime.format(DATE_TIME_FORMATTER) + FIELDS_SEPARATOR + oldValue + FIELDS_SEPARATOR + author;
+    }
+}
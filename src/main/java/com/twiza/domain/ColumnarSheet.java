@@ -0,0 +1,1213 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.domain;
+
+import com.twiza.exceptions.HeaderNotMatchingException;
+import com.twiza.exceptions.SheetWithInconsistentDataException;
+import com.twiza.exceptions.UnsupportedStatusChangeException;
+import com.twiza.metrics.DiffMetrics;
+import com.twiza.metrics.Metrics;
+
+import java.util.*;
+
+/**
+ * An {@link ESheet} that stores each column in its own arrays instead of a list of {@link ERow} objects.
+ * <p>
+ * a column holds the values of its cells, their statuses packed in a byte array, and the changes history
+ * of the changed cells only. Rows and cells returned by this sheet are lightweight views over the columns:
+ * reading or updating them reads or updates the sheet, and they are tied to their row position,
+ * so they should not be kept after rows are added or deleted before them.
+ * <p>
+ * Rows added to this sheet are copied into the columns, and column operations move whole columns,
+ * without touching each row.
+ *
+ * @author Mohamed.Chamlal
+ */
+public class ColumnarSheet implements ESheet {
+    private static final String HEADERS_INCORRECT_SIZE_EXCEPTION_MESSAGE = "Headers size is different than inserted rows size";
+    private static final String ROW_CELLS_CHANGE_EXCEPTION_MESSAGE = "The cells of a columnar sheet's row cannot be added or removed, use the sheet's columns operations";
+    /**
+     * Default status of the instance,
+     * the ColumnarSheet is considered new during construction.
+     */
+    private static final Status DEFAULT_STATUS = Status.NEW;
+    private static final Status[] STATUSES = Status.values();
+    private static final byte DEFAULT_STATUS_CODE = encode(DEFAULT_STATUS);
+    /**
+     * used as default value for key creation,
+     * it considers that the first column is the key's column.
+     */
+    private static final int[] DEFAULT_KEY_INDEXES = {0};
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The name of the sheet.
+     */
+    private String name;
+    private int[] keyIndexes;
+    /**
+     * Status of the Sheet.
+     */
+    private Status status;
+    /**
+     * Headers of sheet, it can be null in case sheet has no headers.
+     */
+    private List<String> headers;
+    private final List<Column> columns;
+    /**
+     * the status of each row, packed as the ordinal of the {@link Status}.
+     */
+    private byte[] rowsStatuses;
+    private int rowsNumber;
+    /**
+     * Position of the first row associated to each key, used by {@link #getRow(RowKey)}.
+     * it is built lazily and set to null whenever a modification could change the keys of the rows.
+     */
+    private Map<RowKey, Integer> rowsIndex;
+    private final ConcatenatedKeys concatenatedKeys = new ConcatenatedKeys();
+
+    public ColumnarSheet(String name) {
+        this(name, new ArrayList<>(), null, DEFAULT_KEY_INDEXES);
+    }
+
+    public ColumnarSheet(String name, List<String> headers) {
+        this(name, new ArrayList<>(), headers, DEFAULT_KEY_INDEXES);
+    }
+
+    public ColumnarSheet(String name, List<ERow> rows, List<String> headers) {
+        this(name, rows, headers, DEFAULT_KEY_INDEXES);
+    }
+
+    /**
+     * @param name       the name of the sheet.
+     * @param headers    headers of the sheet if exist, otherwise null.
+     * @param rows       the rows that constitute the sheet, headers are not included, they are copied into the columns
+     * @param keyIndexes the positions of columns that are used to construct the key for each row
+     * @throws UnsupportedOperationException if the provided headers have different size than rows
+     * @throws NullPointerException          if the name provided is null
+     */
+    public ColumnarSheet(String name, List<ERow> rows, List<String> headers, int... keyIndexes) {
+        this.name = Objects.requireNonNull(name, "Name of the sheet cannot be null").toLowerCase();
+        Objects.requireNonNull(rows);
+        this.columns = new ArrayList<>();
+        this.rowsStatuses = new byte[Math.max(DEFAULT_CAPACITY, rows.size())];
+        setHeaders(headers);
+        rows.forEach(this::addRow);
+        setKeyIndexes(keyIndexes);
+        this.status = DEFAULT_STATUS;
+    }
+
+    /**
+     * Constructs a copy of the provided sheet, stored in columns.
+     *
+     * @param sheet the sheet to copy
+     */
+    public ColumnarSheet(ESheet sheet) {
+        this.name = sheet.getName();
+        this.headers = sheet.getHeaders() == null ? null : new ArrayList<>(sheet.getHeaders());
+        this.status = sheet.getStatus();
+        if (sheet instanceof ColumnarSheet) {
+            ColumnarSheet columnarSheet = (ColumnarSheet) sheet;
+            this.columns = new ArrayList<>(columnarSheet.columns.size());
+            columnarSheet.columns.forEach(column -> columns.add(column.copy()));
+            this.rowsStatuses = columnarSheet.rowsStatuses.clone();
+            this.rowsNumber = columnarSheet.rowsNumber;
+        } else {
+            this.columns = new ArrayList<>(sheet.getColumnsNumber());
+            this.rowsStatuses = new byte[Math.max(DEFAULT_CAPACITY, sheet.getRowsNumber())];
+            if (headers != null) {
+                checkRowSize(headers.size());
+            }
+            sheet.getData().forEach(this::addRow);
+        }
+        this.keyIndexes = sheet.getKeysIndexes();
+    }
+
+    private static byte encode(Status status) {
+        return (byte) status.ordinal();
+    }
+
+    private static Status decode(byte statusCode) {
+        return STATUSES[statusCode];
+    }
+
+    private static void checkStatusChange(Status status, Status newStatus) {
+        if ((status.equals(Status.ADDED)
+                     || status == Status.CHANGED
+                     || status == Status.DELETED) && newStatus == Status.NEW) {
+            throw new UnsupportedStatusChangeException(status.toString());
+        }
+    }
+
+    /**
+     * Appends a row at the end of this ESheet, the cells of the row are copied into the columns.
+     *
+     * @param row the row to be added to the end of this sheet
+     * @return this {@link ESheet} with the implemented modifications
+     * @throws NullPointerException          if the <code>row</code> is null
+     * @throws UnsupportedOperationException if the row's size is different than {@code columnsNumber}
+     */
+    @Override
+    public ESheet addRow(ERow row) {
+        Objects.requireNonNull(row);
+        checkRowSize(row.getSize());
+        insertRow(rowsNumber, row);
+        if (rowsIndex != null) {
+            indexRow(rowsNumber - 1, rowsIndex);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a new row to the provided <code>position</code>, the cells of the row are copied into the columns.
+     *
+     * @param position the position where the row will be added to
+     * @param row      the row to be added
+     * @return this {@link ESheet} with the implemented modifications
+     * @throws IndexOutOfBoundsException     if the <code>position</code> provided is out of range
+     * @throws NullPointerException          if the <code>row</code> is null
+     * @throws UnsupportedOperationException if the row's size is different than {@code columnsNumber}
+     */
+    @Override
+    public ESheet addRow(int position, ERow row) {
+        Objects.requireNonNull(row);
+        checkPosition(position, rowsNumber);
+        checkRowSize(row.getSize());
+        insertRow(position, row);
+        rowsIndex = null;
+        return this;
+    }
+
+    /**
+     * Adds a new row to the provided <code>position</code>, the missing cells at the end of the row
+     * are added as blanks if {@code appendBlanks} is true.
+     *
+     * @param position     the position where the row will be added to
+     * @param row          the row to be added
+     * @param appendBlanks wether to add blanks or not
+     * @return this {@link ESheet} with the implemented modifications
+     * @throws UnsupportedOperationException if the row's size is different than the size of the sheet columns
+     */
+    @Override
+    public ESheet addRow(int position, ERow row, boolean appendBlanks) {
+        int rowSize = row.getSize();
+        if (!appendBlanks || rowSize == columns.size()) {
+            return addRow(position, row);
+        }
+        if (rowSize > columns.size()) {
+            throw new UnsupportedOperationException("The size of this row is bigger than the other rows size");
+        }
+        checkPosition(position, rowsNumber);
+        // the missing cells are written as blanks by insertRow
+        insertRow(position, row);
+        rowsIndex = null;
+        return this;
+    }
+
+    private void checkRowSize(int size) {
+        if (!columns.isEmpty() && size != columns.size()) {
+            throw new UnsupportedOperationException("The size of this row is different than the other rows size");
+        }
+        if (columns.isEmpty()) {
+            for (int i = 0; i < size; i++) {
+                columns.add(new Column(rowsStatuses.length));
+            }
+        }
+    }
+
+    private void checkPosition(int position, int size) {
+        if (position < 0 || position > size) {
+            throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + size);
+        }
+    }
+
+    private void insertRow(int position, ERow row) {
+        ensureCapacity(rowsNumber + 1);
+        if (position < rowsNumber) {
+            System.arraycopy(rowsStatuses, position, rowsStatuses, position + 1, rowsNumber - position);
+            columns.forEach(column -> column.shiftRight(position, rowsNumber));
+        }
+        rowsStatuses[position] = encode(row.getStatus());
+        int rowSize = row.getSize();
+        for (int i = 0; i < columns.size(); i++) {
+            columns.get(i).set(position, i < rowSize ? row.getCell(i) : null);
+        }
+        rowsNumber++;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity <= rowsStatuses.length) {
+            return;
+        }
+        int newCapacity = Math.max(minCapacity, rowsStatuses.length + (rowsStatuses.length >> 1));
+        rowsStatuses = Arrays.copyOf(rowsStatuses, newCapacity);
+        columns.forEach(column -> column.grow(newCapacity));
+    }
+
+    /**
+     * Deletes the rows in the provided positions, the remaining rows are moved once.
+     *
+     * @param positions the position where the row will be deleted from
+     * @return this {@link ESheet} with the implemented modifications
+     * @throws IndexOutOfBoundsException if one of the provided positions  is out of range
+     */
+    @Override
+    public ESheet deleteRows(int... positions) {
+        boolean[] deletedRows = new boolean[rowsNumber];
+        for (int position : positions) {
+            Objects.checkIndex(position, rowsNumber);
+            deletedRows[position] = true;
+        }
+        removeRows(deletedRows);
+        return this;
+    }
+
+    /**
+     * Deletes the first row equal to the provided row from this sheet.
+     *
+     * @param row the row to be deleted from this sheet
+     * @return this {@link ESheet} with the implemented modifications.
+     * @throws NullPointerException if the <code>row</code> is null
+     */
+    @Override
+    public ESheet deleteRow(ERow row) {
+        Objects.requireNonNull(row);
+        if (row.getSize() != columns.size()) {
+            return this;
+        }
+        for (int position = 0; position < rowsNumber; position++) {
+            if (hasSameValues(position, row)) {
+                deleteRows(position);
+                break;
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public ESheet deleteRowsRange(int beginIndex, int endIndex) {
+        checkBoundsBeginEnd(beginIndex, endIndex, rowsNumber);
+        boolean[] deletedRows = new boolean[rowsNumber];
+        Arrays.fill(deletedRows, beginIndex, endIndex + 1, true);
+        removeRows(deletedRows);
+        return this;
+    }
+
+    private void checkBoundsBeginEnd(int begin, int end, int length) {
+        if (begin < 0 || end >= length || begin > end) {
+            throw new IndexOutOfBoundsException("The provided range is not supported, " +
+                                                        "begin " + begin + ", end " +
+                                                        end + ", length " + length);
+        }
+    }
+
+    private void removeRows(boolean[] deletedRows) {
+        int keptRows = 0;
+        for (int position = 0; position < rowsNumber; position++) {
+            if (!deletedRows[position]) {
+                rowsStatuses[keptRows++] = rowsStatuses[position];
+            }
+        }
+        columns.forEach(column -> column.compact(deletedRows, rowsNumber));
+        rowsNumber = keptRows;
+        rowsIndex = null;
+    }
+
+    /**
+     * Deletes all the empty rows(optional operation), like {@link ExcelSheet} this is not supported yet.
+     *
+     * @return this {@link ESheet}
+     */
+    @Override
+    public ESheet deleteEmptyRows() {
+        return this;
+    }
+
+    @Override
+    public ESheet addColumn(EColumn column) {
+        return addColumn(columns.size(), column);
+    }
+
+    /**
+     * Adds a new column to the provided <code>position</code>, the cells of the column are copied.
+     *
+     * @param position the position where the column will be added to
+     * @param column   the column to be added
+     * @return this {@link ESheet} with the implemented modifications
+     * @throws IndexOutOfBoundsException if the <code>position</code> provided is out of range
+     * @throws NullPointerException      if the <code>column</code> is null
+     */
+    @Override
+    public ESheet addColumn(int position, EColumn column) {
+        Objects.requireNonNull(column);
+        checkColumnSize(column);
+        insertColumn(position, column);
+        return this;
+    }
+
+    /**
+     * Adds a new column to the provided <code>position</code>, the missing cells at the end of the column
+     * are added as blanks if {@code appendBlanks} is true.
+     *
+     * @param position     the position where the column will be inserted
+     * @param column       the column to be inserted
+     * @param appendBlanks wether to add blanks or not
+     * @return this {@link ESheet} with the implemented modifications
+     * @throws UnsupportedOperationException if the column's size is different than the sheet's rows size
+     */
+    @Override
+    public ESheet addColumn(int position, EColumn column, boolean appendBlanks) {
+        if (!appendBlanks || column.getSize() == rowsNumber) {
+            return addColumn(position, column);
+        }
+        if (column.getSize() > rowsNumber) {
+            throw new UnsupportedOperationException("The size of this column is bigger than the other columns size");
+        }
+        // the missing cells are written as blanks by insertColumn
+        insertColumn(position, column);
+        return this;
+    }
+
+    private void insertColumn(int position, EColumn column) {
+        checkPosition(position, columns.size());
+        Column newColumn = new Column(rowsStatuses.length);
+        for (int i = 0; i < rowsNumber; i++) {
+            newColumn.set(i, i < column.getSize() ? column.getCells().get(i) : null);
+        }
+        if (headers != null) {
+            headers.add(position, column.getHeaderName());
+        }
+        columns.add(position, newColumn);
+        rowsIndex = null;
+    }
+
+    private void checkColumnSize(EColumn column) {
+        if (rowsNumber > 0 && column.getSize() != rowsNumber) {
+            throw new UnsupportedOperationException("The size of this row is different thant the other rows size");
+        }
+    }
+
+    /**
+     * Deletes the columns in the provided positions, each column is removed as a whole.
+     *
+     * @param positions an array of position from where to delete the columns
+     * @return this {@link ESheet} with the implemented modifications
+     * @throws IndexOutOfBoundsException if one of the provided positions  is out of range
+     */
+    @Override
+    public ESheet deleteColumns(int... positions) {
+        int[] sortedPositions = positions.clone();
+        Arrays.sort(sortedPositions);
+        for (int position = sortedPositions.length - 1; position >= 0; position--) {
+            if (position < sortedPositions.length - 1 && sortedPositions[position] == sortedPositions[position + 1]) {
+                continue;
+            }
+            deleteColumn(sortedPositions[position]);
+        }
+        return this;
+    }
+
+    @Override
+    public ESheet deleteColumnRange(int beginIndex, int endIndex) {
+        checkBoundsBeginEnd(beginIndex, endIndex, columns.size());
+        for (int i = endIndex; i >= beginIndex; i--) {
+            deleteColumn(i);
+        }
+        return this;
+    }
+
+    private void deleteColumn(int position) {
+        columns.remove(position);
+        if (headers != null) {
+            headers.remove(position);
+        }
+        rowsIndex = null;
+    }
+
+    /**
+     * Deletes all the empty columns(optional operation), like {@link ExcelSheet} this is not supported yet.
+     *
+     * @return this {@link ESheet}
+     */
+    @Override
+    public ESheet deleteEmptyColumns() {
+        return this;
+    }
+
+    @Override
+    public ESheet deleteColumnsWithEmptyHeaders() {
+        List<Integer> emptyHeadersPositions = new ArrayList<>();
+        for (int i = 0; i < headers.size(); i++) {
+            if (headers.get(i).trim().isEmpty()) {
+                emptyHeadersPositions.add(i);
+            }
+        }
+        deleteColumns(emptyHeadersPositions.stream().mapToInt(Integer::intValue).toArray());
+        return this;
+    }
+
+    /**
+     * adjust the current sheet to match the provided template headers, and the mode,
+     * the columns are moved as a whole, and missing columns are added as blank columns.
+     *
+     * @param headersTemplate the headers to match against
+     * @return this {@link ESheet} with the implemented modifications.
+     */
+    @Override
+    public ESheet matchWithTemplate(List<String> headersTemplate, TemplateMode mode) {
+        Objects.requireNonNull(headersTemplate);
+        if (headers == null) {
+            setHeaders(headersTemplate);
+            return this;
+        }
+        ColumnsPlan plan = ColumnsPlan.compile(headers, headersTemplate, mode);
+        if (plan.isIdentity(columns.size())) {
+            return this;
+        }
+        List<Column> plannedColumns = new ArrayList<>(plan.getSources().length);
+        for (int source : plan.getSources()) {
+            if (source == ColumnsPlan.BLANK) {
+                Column blankColumn = new Column(rowsStatuses.length);
+                for (int i = 0; i < rowsNumber; i++) {
+                    blankColumn.set(i, null);
+                }
+                plannedColumns.add(blankColumn);
+            } else {
+                plannedColumns.add(columns.get(source));
+            }
+        }
+        columns.clear();
+        columns.addAll(plannedColumns);
+        headers = new ArrayList<>(plan.getHeaders());
+        rowsIndex = null;
+        return this;
+    }
+
+    /**
+     * Adjusts this sheet to match the template, the columns are moved as a whole, so they are not moved in parallel.
+     *
+     * @param headersTemplate the headers to match against
+     * @param mode            check {@link TemplateMode}
+     * @param parallelism     ignored, it should be at least 1
+     * @return the same sheet as {@link #matchWithTemplate(List, TemplateMode)}
+     * @throws IllegalArgumentException if {@code parallelism} is less than 1
+     */
+    @Override
+    public ESheet matchWithTemplate(List<String> headersTemplate, TemplateMode mode, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism should be at least 1, provided: " + parallelism);
+        }
+        return matchWithTemplate(headersTemplate, mode);
+    }
+
+    @Override
+    public ESheet setKeyIndexes(int... keyIndexes) {
+        Objects.requireNonNull(keyIndexes);
+        for (int index : keyIndexes) {
+            if (!columns.isEmpty() && index >= columns.size()) {
+                throw new IndexOutOfBoundsException("The provided index is bigger that sheet size(" + columns.size() + ")");
+            }
+        }
+        this.keyIndexes = keyIndexes;
+        rowsIndex = null;
+        return this;
+    }
+
+    @Override
+    public ESheet setHeaders(List<String> newHeaders) {
+        if (newHeaders == null) {
+            headers = null;
+            return this;
+        }
+        if (!columns.isEmpty() && newHeaders.size() != columns.size()) {
+            throw new UnsupportedOperationException(HEADERS_INCORRECT_SIZE_EXCEPTION_MESSAGE);
+        }
+        checkRowSize(newHeaders.size());
+        headers = new ArrayList<>(newHeaders);
+        return this;
+    }
+
+    @Override
+    public ESheet adoptFirstRowAsHeaders(boolean isFirstRowHeaders) {
+        if (isFirstRowHeaders && rowsNumber > 0) {
+            setHeaders(getRow(0).getCellsValues());
+            deleteRows(0);
+        }
+        return this;
+    }
+
+    @Override
+    public ESheet setStatus(Status newStatus) {
+        checkStatusChange(status, newStatus);
+        this.status = newStatus;
+        return this;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public List<String> getHeaders() {
+        if (headers == null) {
+            return null;
+        }
+        return Collections.unmodifiableList(headers);
+    }
+
+    @Override
+    public int getColumnsNumber() {
+        return columns.size();
+    }
+
+    @Override
+    public int getRowsNumber() {
+        return rowsNumber;
+    }
+
+    @Override
+    public int[] getKeysIndexes() {
+        return keyIndexes;
+    }
+
+    /**
+     * Get a view of the row in the provided position.
+     *
+     * @param position of the row in the sheet.
+     * @return a view of the row in the provided position.
+     * @throws IndexOutOfBoundsException if any of the provided indexes is out of range
+     */
+    @Override
+    public ERow getRow(int position) {
+        Objects.checkIndex(position, rowsNumber);
+        return new RowView(position);
+    }
+
+    @Override
+    public ERow getRow(String key) {
+        if (keyIndexes.length == 1) {
+            return getRow(RowKey.of(key));
+        }
+        // a composed key cannot be split back into its values, it's looked up by its concatenated form
+        Map<RowKey, Integer> index = getRowsIndex();
+        RowKey rowKey = concatenatedKeys.find(index, key);
+        return rowKey == null ? null : getRow(index.get(rowKey));
+    }
+
+    @Override
+    public ERow getRow(RowKey key) {
+        Integer position = getRowsIndex().get(key);
+        return position == null ? null : new RowView(position);
+    }
+
+    private Map<RowKey, Integer> getRowsIndex() {
+        if (rowsIndex == null) {
+            Map<RowKey, Integer> index = new LinkedHashMap<>(Math.max(16, (int) (rowsNumber / .75f) + 1));
+            for (int position = 0; position < rowsNumber; position++) {
+                indexRow(position, index);
+            }
+            rowsIndex = index;
+        }
+        return rowsIndex;
+    }
+
+    private void indexRow(int position, Map<RowKey, Integer> index) {
+        try {
+            index.putIfAbsent(getRowKey(position), position);
+        } catch (UnsupportedOperationException e) {
+            // blank key, the row cannot be looked up.
+        }
+    }
+
+    private RowKey getRowKey(int position) {
+        String[] keyValues = new String[keyIndexes.length];
+        for (int i = 0; i < keyIndexes.length; i++) {
+            keyValues[i] = columns.get(keyIndexes[i]).values[position];
+        }
+        return RowKey.ofOwnValues(keyValues);
+    }
+
+    /**
+     * Get the {@link EColumn} based on index of the column, its cells are views of the column's cells.
+     *
+     * @param position of the column in the sheet.
+     * @return the EColumn in the provided position.
+     * @throws IndexOutOfBoundsException if any of the provided position is out of range
+     */
+    @Override
+    public EColumn getColumn(int position) {
+        Column column = columns.get(position);
+        List<ECell> cells = new ArrayList<>(rowsNumber);
+        for (int i = 0; i < rowsNumber; i++) {
+            cells.add(new CellView(column, i));
+        }
+        return new EColumn(headers == null ? null : headers.get(position), cells);
+    }
+
+    @Override
+    public EColumn getColumn(String headerName) {
+        int columnIndex = headers == null ? -1 : headers.indexOf(headerName);
+        if (columnIndex < 0) {
+            return null;
+        }
+        return getColumn(columnIndex);
+    }
+
+    /**
+     * Returns views of the rows of this sheet, without any check.
+     *
+     * @return an unmodifiable list of the rows of this sheet
+     * @see ESheet#getUniqueData() instead.
+     */
+    @Override
+    public List<ERow> getData() {
+        return new RowsView();
+    }
+
+    @Override
+    public Map<String, ERow> getUniqueData() {
+        Map<RowKey, ERow> uniqueRowsByKey = getUniqueRows();
+        Map<String, ERow> uniqueData = new LinkedHashMap<>(Math.max(16, (int) (uniqueRowsByKey.size() / .75f) + 1));
+        uniqueRowsByKey.forEach((key, row) -> {
+            // distinct composed keys can have the same concatenated form, which this map cannot hold
+            if (uniqueData.putIfAbsent(key.toString(), row) != null) {
+                throw new SheetWithInconsistentDataException(key.toString());
+            }
+        });
+        return uniqueData;
+    }
+
+    @Override
+    public Map<RowKey, ERow> getUniqueRows() {
+        Map<RowKey, Integer> uniqueRowsPositions = generateUniqueRowsPositions();
+        Map<RowKey, ERow> uniqueRows = new LinkedHashMap<>(Math.max(16, (int) (uniqueRowsPositions.size() / .75f) + 1));
+        uniqueRowsPositions.forEach((key, position) -> uniqueRows.put(key, new RowView(position)));
+        return uniqueRows;
+    }
+
+    /**
+     * Returns the position of the first row of each key.
+     *
+     * @throws SheetWithInconsistentDataException if 2 rows with same key are not equal
+     * @throws UnsupportedOperationException      if a row has a blank key
+     */
+    private Map<RowKey, Integer> generateUniqueRowsPositions() {
+        Map<RowKey, Integer> positions = new LinkedHashMap<>(Math.max(16, (int) (rowsNumber / .75f) + 1));
+        for (int position = 0; position < rowsNumber; position++) {
+            RowKey rowKey = getRowKey(position);
+            Integer firstPosition = positions.putIfAbsent(rowKey, position);
+            if (firstPosition != null && !hasSameValues(firstPosition, position)) {
+                throw new SheetWithInconsistentDataException(rowKey.toString());
+            }
+        }
+        return positions;
+    }
+
+    private boolean hasSameValues(int position, int otherPosition) {
+        for (Column column : columns) {
+            if (!column.values[position].equals(column.values[otherPosition])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasSameValues(int position, ERow row) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (!columns.get(i).values[position].equals(row.getCell(i).getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares this sheet with another one sequentially, the rows of a {@code ColumnarSheet} are views
+     * over shared column arrays, so they are not compared in parallel.
+     *
+     * @param old         the other {@code ESheet} to compare with
+     * @param parallelism ignored, it should be at least 1
+     * @return the same sheet as {@link #compare(ESheet)}
+     * @throws IllegalArgumentException if {@code parallelism} is less than 1
+     */
+    @Override
+    public ESheet compare(ESheet old, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism should be at least 1, provided: " + parallelism);
+        }
+        return compare(old);
+    }
+
+    /**
+     * Compare this sheet with anther one, and returns a new {@code ColumnarSheet} that contains
+     * the details of what elements have been changed, added or deleted.
+     *
+     * @param old the other {@code ESheet} to compare with
+     * @return the new {@code ESheet} with all the changes made between this sheet and the new one.
+     * @throws HeaderNotMatchingException if the 2 sheets headers are not matching,
+     *                                    2 headers are matching if they are equal
+     */
+    @Override
+    public ESheet compare(ESheet old) {
+        ColumnarSheet diffSheet = new ColumnarSheet(this);
+        if (old == null) {
+            diffSheet.setStatus(Status.ADDED);
+            return diffSheet;
+        }
+        DiffMetrics metrics = Metrics.get();
+        try (DiffMetrics.Timer ignored = metrics.startTimer(DiffMetrics.Phase.COMPARE, name)) {
+            checkIfHeadersMatch(getHeaders(), old.getHeaders());
+            Map<RowKey, ERow> oldUniqueRows = old.getUniqueRows();
+            // the diff sheet is a copy of this sheet, so the rows positions are the same in both
+            Map<RowKey, Integer> currentRowsPositions = generateUniqueRowsPositions();
+            Set<RowKey> allRowsKeys = new LinkedHashSet<>(oldUniqueRows.keySet());
+            allRowsKeys.addAll(currentRowsPositions.keySet());
+            allRowsKeys.forEach(key -> diffSheet.assignRowToCompareSheet(oldUniqueRows.get(key),
+                                                                         currentRowsPositions.get(key)));
+            metrics.increment(DiffMetrics.Counter.ROWS_COMPARED, name, allRowsKeys.size());
+            return diffSheet;
+        }
+    }
+
+    private void checkIfHeadersMatch(List<String> headers, List<String> otherHeaders) {
+        if (!Objects.equals(headers, otherHeaders)) {
+            throw new HeaderNotMatchingException("Headers are not matching");
+        }
+    }
+
+    private void assignRowToCompareSheet(ERow oldRow, Integer currentRowPosition) {
+        if (currentRowPosition == null) {
+            //if current is null than old is not because the key is extracted from one of them
+            addRow(oldRow);
+            setRowStatus(rowsNumber - 1, Status.DELETED);
+        } else if (oldRow == null) {
+            setRowStatus(currentRowPosition, Status.ADDED);
+        } else {
+            if (oldRow.getSize() != columns.size()) {
+                throw new UnsupportedOperationException("Cannot compare 2 rows with different sizes");
+            }
+            boolean isChanged = !hasSameValues(currentRowPosition, oldRow);
+            int diffRowPosition = rowsNumber;
+            addRow(oldRow);
+            if (isChanged) {
+                for (Column column : columns) {
+                    column.updateValue(diffRowPosition, column.values[currentRowPosition]);
+                }
+                rowsStatuses[diffRowPosition] = encode(Status.CHANGED);
+            }
+            if (decode(rowsStatuses[diffRowPosition]) != Status.NEW && status == Status.NEW) {
+                setStatus(Status.CHANGED);
+            }
+        }
+    }
+
+    private void setRowStatus(int position, Status newStatus) {
+        checkStatusChange(decode(rowsStatuses[position]), newStatus);
+        rowsStatuses[position] = encode(newStatus);
+        for (Column column : columns) {
+            checkStatusChange(decode(column.statuses[position]), newStatus);
+            column.statuses[position] = encode(newStatus);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ColumnarSheet)) {
+            return false;
+        }
+        ColumnarSheet sheet = (ColumnarSheet) o;
+        return getName().equals(sheet.getName()) &&
+                       Objects.equals(headers, sheet.getHeaders()) &&
+                       Objects.equals(getUniqueRows(), sheet.getUniqueRows());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, headers);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        if (headers != null) {
+            builder.append(headers).append("\n");
+        }
+        getData().forEach(row -> builder.append(row.toString()).append("\n"));
+        return builder.toString();
+    }
+
+    /**
+     * The cells of one column: their values, their statuses, and the changes history of the changed cells.
+     */
+    private static final class Column {
+        private String[] values;
+        private byte[] statuses;
+        /**
+         * changes of the cells that have some, by row position, null while no cell has changes.
+         * the lists of changes are never modified, so they are shared with the copies of the cells.
+         */
+        private Map<Integer, List<CellChange>> changesHistories;
+
+        private Column(int capacity) {
+            this.values = new String[capacity];
+            this.statuses = new byte[capacity];
+        }
+
+        private Column(Column column) {
+            this.values = column.values.clone();
+            this.statuses = column.statuses.clone();
+            this.changesHistories = column.changesHistories == null ? null : new HashMap<>(column.changesHistories);
+        }
+
+        private Column copy() {
+            return new Column(this);
+        }
+
+        private void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+        }
+
+        /**
+         * Writes the cell at the provided position, a null cell is written as a blank.
+         */
+        private void set(int position, ECell cell) {
+            values[position] = cell == null ? "" : cell.getValue();
+            statuses[position] = cell == null ? DEFAULT_STATUS_CODE : encode(cell.getStatus());
+            setChanges(position, cell == null ? null : cell.getChanges());
+        }
+
+        private List<CellChange> getChanges(int position) {
+            return changesHistories == null ? Collections.emptyList()
+                                            : changesHistories.getOrDefault(position, Collections.emptyList());
+        }
+
+        private void setChanges(int position, List<CellChange> changesHistory) {
+            if (changesHistory != null && !changesHistory.isEmpty()) {
+                if (changesHistories == null) {
+                    changesHistories = new HashMap<>();
+                }
+                changesHistories.put(position, changesHistory);
+            } else if (changesHistories != null) {
+                changesHistories.remove(position);
+            }
+        }
+
+        private String updateValue(int position, String newValue) {
+            String oldValue = values[position];
+            if (newValue == null || oldValue.equals(newValue)) {
+                return null;
+            }
+            checkStatusChange(decode(statuses[position]), Status.CHANGED);
+            values[position] = newValue;
+            statuses[position] = encode(Status.CHANGED);
+            setChanges(position, CellChange.append(getChanges(position), CellChange.now(oldValue)));
+            return oldValue;
+        }
+
+        /**
+         * Moves the cells from the provided position one step to the right, to free the position.
+         */
+        private void shiftRight(int position, int size) {
+            System.arraycopy(values, position, values, position + 1, size - position);
+            System.arraycopy(statuses, position, statuses, position + 1, size - position);
+            if (changesHistories != null) {
+                Map<Integer, List<CellChange>> shiftedHistories = new HashMap<>();
+                changesHistories.forEach((row, history) -> shiftedHistories.put(row >= position ? row + 1 : row, history));
+                changesHistories = shiftedHistories;
+            }
+        }
+
+        /**
+         * Removes the cells of the deleted rows, and moves the remaining cells to fill the gaps.
+         */
+        private void compact(boolean[] deletedRows, int size) {
+            int[] newPositions = changesHistories == null ? null : new int[size];
+            int keptRows = 0;
+            for (int position = 0; position < size; position++) {
+                if (!deletedRows[position]) {
+                    if (newPositions != null) {
+                        newPositions[position] = keptRows;
+                    }
+                    values[keptRows] = values[position];
+                    statuses[keptRows++] = statuses[position];
+                }
+            }
+            Arrays.fill(values, keptRows, size, null);
+            if (changesHistories != null) {
+                Map<Integer, List<CellChange>> compactedHistories = new HashMap<>();
+                changesHistories.forEach((row, history) -> {
+                    if (!deletedRows[row]) {
+                        compactedHistories.put(newPositions[row], history);
+                    }
+                });
+                changesHistories = compactedHistories;
+            }
+        }
+    }
+
+    /**
+     * The rows of this sheet, as an unmodifiable list of views.
+     */
+    private final class RowsView extends AbstractList<ERow> implements RandomAccess {
+        @Override
+        public ERow get(int index) {
+            return getRow(index);
+        }
+
+        @Override
+        public int size() {
+            return rowsNumber;
+        }
+    }
+
+    /**
+     * A view of the row at a position of this sheet.
+     */
+    private final class RowView implements ERow {
+        private final int position;
+
+        private RowView(int position) {
+            this.position = position;
+        }
+
+        @Override
+        public Status getStatus() {
+            return decode(rowsStatuses[position]);
+        }
+
+        @Override
+        public List<ECell> getCells() {
+            List<ECell> cells = new ArrayList<>(columns.size());
+            columns.forEach(column -> cells.add(new CellView(column, position)));
+            return Collections.unmodifiableList(cells);
+        }
+
+        @Override
+        public List<String> getCellsValues() {
+            List<String> values = new ArrayList<>(columns.size());
+            columns.forEach(column -> values.add(column.values[position]));
+            return values;
+        }
+
+        @Override
+        public ECell getCell(int cellPosition) {
+            return new CellView(columns.get(cellPosition), position);
+        }
+
+        @Override
+        public String getKey(int... keyColumnsPosition) {
+            return getRowKey(keyColumnsPosition).toString();
+        }
+
+        @Override
+        public RowKey getRowKey(int... keyColumnsPosition) {
+            String[] keyValues = new String[keyColumnsPosition.length];
+            for (int i = 0; i < keyColumnsPosition.length; i++) {
+                keyValues[i] = columns.get(keyColumnsPosition[i]).values[position];
+            }
+            return RowKey.ofOwnValues(keyValues);
+        }
+
+        @Override
+        public int getSize() {
+            return columns.size();
+        }
+
+        @Override
+        public void setStatus(Status newStatus) {
+            checkStatusChange(getStatus(), newStatus);
+            rowsStatuses[position] = encode(newStatus);
+        }
+
+        @Override
+        public ECell removeCell(int cellPosition) {
+            throw new UnsupportedOperationException(ROW_CELLS_CHANGE_EXCEPTION_MESSAGE);
+        }
+
+        @Override
+        public boolean addCell(ECell cell) {
+            throw new UnsupportedOperationException(ROW_CELLS_CHANGE_EXCEPTION_MESSAGE);
+        }
+
+        @Override
+        public void addCell(int cellPosition, ECell cell) {
+            throw new UnsupportedOperationException(ROW_CELLS_CHANGE_EXCEPTION_MESSAGE);
+        }
+
+        /**
+         * Replaces the cell at the specified position with a copy of the specified cell.
+         *
+         * @return a detached copy of the cell previously at the specified position
+         */
+        @Override
+        public ECell replaceCell(int cellPosition, ECell cell) {
+            Objects.requireNonNull(cell);
+            Column column = columns.get(cellPosition);
+            ECell previousCell = new ExcelCell(new CellView(column, position));
+            column.set(position, cell);
+            rowsIndex = null;
+            return previousCell;
+        }
+
+        @Override
+        public long getFingerprint() {
+            return ExcelRow.fingerprintOf(getCells());
+        }
+
+        /**
+         * Compare this row with anther one, a changed row is a new row, detached from this sheet and from the old row.
+         * If both rows have the same values, this view is returned as it is.
+         */
+        @Override
+        public ERow compare(ERow oldRow) {
+            if (oldRow == null) {
+                ERow diffRow = new ExcelRow(this);
+                diffRow.setStatus(Status.ADDED);
+                return diffRow;
+            }
+            if (oldRow.getSize() != getSize()) {
+                throw new UnsupportedOperationException("Cannot compare 2 rows with different sizes");
+            }
+            if (hasSameValues(position, oldRow)) {
+                return this;
+            }
+            ERow diffRow = new ExcelRow(oldRow);
+            for (int i = 0; i < getSize(); i++) {
+                diffRow.getCell(i).updateValue(columns.get(i).values[position]);
+            }
+            diffRow.setStatus(Status.CHANGED);
+            return diffRow;
+        }
+
+        @Override
+        public int hashCode() {
+            int hashCode = 1;
+            for (Column column : columns) {
+                hashCode = 31 * hashCode + column.values[position].hashCode();
+            }
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj instanceof ERow) {
+                ERow row = (ERow) obj;
+                return row.getSize() == getSize() && hasSameValues(position, row);
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            columns.forEach(column -> builder.append(column.values[position]).append("\t"));
+            return builder.toString();
+        }
+    }
+
+    /**
+     * A view of the cell at a position of a column.
+     */
+    private final class CellView implements ECell {
+        private final Column column;
+        private final int position;
+
+        private CellView(Column column, int position) {
+            this.column = column;
+            this.position = position;
+        }
+
+        @Override
+        public Status getStatus() {
+            return decode(column.statuses[position]);
+        }
+
+        @Override
+        public String getValue() {
+            return column.values[position];
+        }
+
+        @Override
+        public String getChangesHistory() {
+            return CellChange.render(column.getChanges(position));
+        }
+
+        @Override
+        public List<CellChange> getChanges() {
+            return column.getChanges(position);
+        }
+
+        @Override
+        public long getFingerprint() {
+            return ExcelCell.fingerprintOf(getValue());
+        }
+
+        @Override
+        public String updateValue(String newValue) {
+            String oldValue = column.updateValue(position, newValue);
+            if (oldValue != null) {
+                rowsIndex = null;
+            }
+            return oldValue;
+        }
+
+        @Override
+        public void setStatus(Status newStatus) {
+            checkStatusChange(getStatus(), newStatus);
+            column.statuses[position] = encode(newStatus);
+        }
+
+        @Override
+        public int hashCode() {
+            return getValue().hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj instanceof ECell) {
+                return ((ECell) obj).getValue().equals(getValue());
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return getValue();
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.domain;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The columns of a sheet once matched with a template, or once some columns are deleted, compiled from the headers
+ * only: the position in the sheet of the column that goes to each position of the result,
+ * or {@link #BLANK} for a column of the template that is missing in the sheet.
+ * <p>
+ * Applying the plan rearranges each row in one pass, instead of moving or deleting the columns one by one,
+ * where each move shifts the cells of every row.
+ *
+ * @author Mohamed.Chamlal
+ */
+final class ColumnsPlan {
+    /**
+     * the source of a column that is added as a blank column.
+     */
+    static final int BLANK = -1;
+    /**
+     * a parallel apply splits the rows in ranges of at least this number of rows.
+     */
+    private static final int MIN_ROWS_PER_TASK = 4096;
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final List<String> headers;
+    private final int[] sources;
+
+    private ColumnsPlan(List<String> headers, int[] sources) {
+        this.headers = headers;
+        this.sources = sources;
+    }
+
+    /**
+     * Compiles the columns of the sheet matched with the template in the provided mode:
+     * <ul>
+     * <li>{@code MATCH}: the columns of the template found in the sheet, in the order of the template,
+     * a header repeated in the template is taken once.</li>
+     * <li>{@code CONCAT}: the columns of the template, blank if missing in the sheet,
+     * followed by the other columns of the sheet in their order.</li>
+     * <li>{@code SPECIFIC}: the columns of the template, blank if missing in the sheet.</li>
+     * </ul>
+     * A header repeated in the sheet is matched by its first column.
+     *
+     * @param headers  the headers of the sheet
+     * @param template the headers to match against
+     * @param mode     the template mode
+     * @return the plan of the matched columns
+     */
+    static ColumnsPlan compile(List<String> headers, List<String> template, ESheet.TemplateMode mode) {
+        List<String> targetHeaders = template;
+        if (mode == ESheet.TemplateMode.MATCH) {
+            targetHeaders = new ArrayList<>(new LinkedHashSet<>(template));
+            targetHeaders.retainAll(new HashSet<>(headers));
+        }
+        ColumnsPlan plan = new HashSet<>(targetHeaders).size() == targetHeaders.size()
+                ? compileDistinct(headers, targetHeaders)
+                : compileRepeated(headers, targetHeaders);
+        if (mode != ESheet.TemplateMode.CONCAT && plan.sources.length > targetHeaders.size()) {
+            return new ColumnsPlan(new ArrayList<>(plan.headers.subList(0, targetHeaders.size())),
+                                   Arrays.copyOf(plan.sources, targetHeaders.size()));
+        }
+        return plan;
+    }
+
+    /**
+     * Compiles the columns kept by a deletion of columns.
+     *
+     * @param headers the headers of the sheet, null if the sheet has no headers
+     * @param kept    whether each column of the sheet is kept
+     * @return the plan of the kept columns, in their order, its headers are null if the sheet has no headers
+     */
+    static ColumnsPlan keeping(List<String> headers, boolean[] kept) {
+        List<String> planHeaders = headers == null ? null : new ArrayList<>(kept.length);
+        int[] sources = new int[kept.length];
+        int size = 0;
+        for (int i = 0; i < kept.length; i++) {
+            if (kept[i]) {
+                sources[size++] = i;
+                if (planHeaders != null) {
+                    planHeaders.add(headers.get(i));
+                }
+            }
+        }
+        return new ColumnsPlan(planHeaders, Arrays.copyOf(sources, size));
+    }
+
+    /**
+     * The template's columns are looked up by header, then the columns of the sheet that are not part of the template
+     * follow in their order.
+     */
+    private static ColumnsPlan compileDistinct(List<String> headers, List<String> template) {
+        Map<String, Integer> firstPositions = new HashMap<>();
+        for (int i = 0; i < headers.size(); i++) {
+            firstPositions.putIfAbsent(headers.get(i), i);
+        }
+        boolean[] placed = new boolean[headers.size()];
+        List<String> planHeaders = new ArrayList<>(template.size() + headers.size());
+        int[] sources = new int[template.size() + headers.size()];
+        int size = 0;
+        for (String header : template) {
+            Integer position = firstPositions.get(header);
+            if (position == null) {
+                sources[size++] = BLANK;
+            } else {
+                sources[size++] = position;
+                placed[position] = true;
+            }
+            planHeaders.add(header);
+        }
+        for (int i = 0; i < headers.size(); i++) {
+            if (!placed[i]) {
+                sources[size++] = i;
+                planHeaders.add(headers.get(i));
+            }
+        }
+        return new ColumnsPlan(planHeaders, Arrays.copyOf(sources, size));
+    }
+
+    /**
+     * A header repeated in the template matches the column already moved for its first occurrence,
+     * which is moved again, so the columns are moved one by one, on the headers only.
+     */
+    private static ColumnsPlan compileRepeated(List<String> headers, List<String> template) {
+        List<String> planHeaders = new ArrayList<>(headers);
+        List<Integer> sources = new ArrayList<>(headers.size());
+        for (int i = 0; i < headers.size(); i++) {
+            sources.add(i);
+        }
+        for (int templateCursor = 0; templateCursor < template.size(); templateCursor++) {
+            String header = template.get(templateCursor);
+            int position = planHeaders.indexOf(header);
+            if (position < 0) {
+                planHeaders.add(templateCursor, header);
+                sources.add(templateCursor, BLANK);
+            } else if (position != templateCursor) {
+                planHeaders.add(templateCursor, planHeaders.remove(position));
+                sources.add(templateCursor, sources.remove(position));
+            }
+        }
+        return new ColumnsPlan(planHeaders, sources.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * @return the headers of the planned columns, null for the plan of a sheet without headers
+     */
+    List<String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return the position in the sheet of each planned column, {@link #BLANK} for a column to add
+     */
+    int[] getSources() {
+        return sources;
+    }
+
+    /**
+     * @param columnsNumber the number of columns of the sheet
+     * @return true if applying the plan leaves the sheet as it is
+     */
+    boolean isIdentity(int columnsNumber) {
+        if (sources.length != columnsNumber) {
+            return false;
+        }
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rearranges the cells of each row in one pass, the planned cells are kept in their new positions,
+     * a blank cell is added for each blank column, and the other cells are removed from the end of the row.
+     *
+     * @param rows        the rows to rearrange
+     * @param parallelism the number of threads used to rearrange the rows, {@code 1} rearranges them sequentially
+     */
+    void apply(List<ERow> rows, int parallelism) {
+        ApplyTask applyTask = new ApplyTask(rows, 0, rows.size(),
+                                            Math.max(MIN_ROWS_PER_TASK, rows.size() / (parallelism * TASKS_PER_THREAD)));
+        if (parallelism == 1 || rows.size() <= MIN_ROWS_PER_TASK) {
+            applyTask.compute();
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(applyTask);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void apply(ERow row, ECell[] cells) {
+        int size = row.getSize();
+        for (int i = 0; i < size; i++) {
+            cells[i] = row.getCell(i);
+        }
+        for (int i = 0; i < sources.length; i++) {
+            if (i < size && sources[i] == i) {
+                continue;
+            }
+            ECell cell = sources[i] == BLANK ? new ExcelCell("") : cells[sources[i]];
+            if (i < size) {
+                row.replaceCell(i, cell);
+            } else {
+                row.addCell(cell);
+            }
+        }
+        for (int i = size - 1; i >= sources.length; i--) {
+            row.removeCell(i);
+        }
+    }
+
+    /**
+     * Rearranges a range of rows, split in halves until the range is small enough.
+     */
+    private final class ApplyTask extends RecursiveAction {
+        private final List<ERow> rows;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        private ApplyTask(List<ERow> rows, int from, int to, int threshold) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                ECell[] cells = new ECell[0];
+                for (int i = from; i < to; i++) {
+                    ERow row = rows.get(i);
+                    if (cells.length < row.getSize()) {
+                        cells = new ECell[row.getSize()];
+                    }
+                    apply(row, cells);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ApplyTask(rows, from, middle, threshold), new ApplyTask(rows, middle, to, threshold));
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.domain;
+
+import com.twiza.exceptions.HeaderNotMatchingException;
+
+import java.util.*;
+
+/**
+ * A {@link Template} compiled for the read of one sheet, it tells the reader which rows to skip,
+ * and the position in the read row of each cell of the sheet, so the cells of the dropped columns
+ * are never read, and the kept cells are read directly in the order of the template.
+ * <p>
+ * The rows and columns of the template are the positions in the sheet, {@code 0} for the first row
+ * and the first column, empty rows included. Deleted rows and columns out of the sheet are ignored.
+ * The first row that is read, after the deleted rows, is the headers row if the template says so:
+ * the template's headers are matched with it, following the {@link MatchingPolicy}, then the following rows
+ * are read in the order of the template, the columns missing in the sheet are read as blanks.
+ * <p>
+ * A compiled template keeps the state of the read sheet, it's not thread safe, and it's used for one sheet only.
+ *
+ * @author Mohamed.Chamlal
+ */
+public final class CompiledTemplate {
+    /**
+     * the position of a cell that is not read.
+     */
+    public static final int DROPPED = -1;
+
+    private final BitSet deletedRows;
+    private final BitSet deletedColumns;
+    private final boolean firstRowHeader;
+    private final List<String> matchingHeaders;
+    private final MatchingPolicy matchingPolicy;
+    private final int[] keyColumns;
+
+    /**
+     * the position in the read row of each column of the sheet, computed up to the widest row read so far.
+     */
+    private int[] positions = new int[0];
+    /**
+     * the width of the read row holding the columns up to each column of the sheet.
+     */
+    private int[] widths = new int[0];
+    private int coveredColumns;
+    /**
+     * the position of the next column that is not part of the template, {@link #DROPPED} if those columns are dropped.
+     */
+    private int nextExtraPosition;
+    /**
+     * the number of cells of the read rows, whatever the width of the row in the sheet.
+     */
+    private int plannedWidth;
+    private boolean headersRowRead;
+    private List<String> headers;
+
+    CompiledTemplate(Template template) {
+        this.deletedRows = toBitSet(template.getDeleteRows());
+        this.deletedColumns = toBitSet(template.getDeleteColumns());
+        this.firstRowHeader = template.isFirstRowHeader();
+        this.matchingHeaders = template.getMatchingHeaders() == null ? null : new ArrayList<>(template.getMatchingHeaders());
+        this.matchingPolicy = template.getMatchingPolicy() == null ? MatchingPolicy.TEMPLATE_MATCH : template.getMatchingPolicy();
+        this.keyColumns = template.getKeyColumns() == null ? null : template.getKeyColumns().clone();
+    }
+
+    private static BitSet toBitSet(int[] positions) {
+        BitSet bitSet = new BitSet();
+        if (positions != null) {
+            for (int position : positions) {
+                if (position >= 0) {
+                    bitSet.set(position);
+                }
+            }
+        }
+        return bitSet;
+    }
+
+    /**
+     * @param rowIndex the position of the row in the sheet
+     * @return true if the row is deleted by the template, so it shouldn't be read at all
+     */
+    public boolean skipsRow(int rowIndex) {
+        return deletedRows.get(rowIndex);
+    }
+
+    /**
+     * @param columnIndex the position of the cell in the sheet's row
+     * @return the position of the cell in the read row, {@link #DROPPED} if the cell shouldn't be read
+     */
+    public int getPosition(int columnIndex) {
+        coverColumns(columnIndex + 1);
+        return positions[columnIndex];
+    }
+
+    /**
+     * @param columnsNumber the number of cells of the sheet's row, the blank cells included
+     * @return the number of cells of the read row
+     */
+    public int getWidth(int columnsNumber) {
+        if (columnsNumber <= 0) {
+            return plannedWidth;
+        }
+        coverColumns(columnsNumber);
+        return widths[columnsNumber - 1];
+    }
+
+    /**
+     * Passes a read row to the template, the headers row is kept by the template to match the template's headers,
+     * and the following rows are read in the order of the template.
+     *
+     * @param row a row read with the positions of this template, the empty rows that are not kept shouldn't be passed
+     * @return true if the row is a row of the sheet's data, false if it's the headers row
+     * @throws HeaderNotMatchingException if the policy is {@link MatchingPolicy#TEMPLATE_FORCED},
+     *                                    and some of the template's headers are missing in the headers row
+     */
+    public boolean accept(ERow row) {
+        if (headersRowRead || !firstRowHeader) {
+            return true;
+        }
+        headersRowRead = true;
+        headers = row.getCellsValues();
+        if (matchingHeaders != null) {
+            planColumns();
+        }
+        return false;
+    }
+
+    /**
+     * Sets the headers and the key columns of the read sheet.
+     *
+     * @param sheet the sheet built from the accepted rows, padded to the width of its widest row
+     * @return the provided sheet
+     * @throws UnsupportedOperationException if the sheet has no headers row, and the template's headers
+     *                                       don't have the same size as the sheet's rows
+     */
+    public ESheet finish(ESheet sheet) {
+        if (headers != null) {
+            List<String> sheetHeaders = new ArrayList<>(headers);
+            int width = Math.max(sheet.getRowsNumber() == 0 ? 0 : sheet.getColumnsNumber(), sheetHeaders.size());
+            while (sheetHeaders.size() < width) {
+                sheetHeaders.add("");
+            }
+            sheet.setHeaders(sheetHeaders);
+        } else if (!firstRowHeader && matchingHeaders != null) {
+            sheet.setHeaders(matchingHeaders);
+        }
+        if (keyColumns != null) {
+            sheet.setKeyIndexes(keyColumns);
+        }
+        return sheet;
+    }
+
+    /**
+     * Plans the read rows from the headers row: the columns are read in the order of the matched headers,
+     * the columns after the headers row are kept only by {@link MatchingPolicy#OUTER_MATCH}.
+     */
+    private void planColumns() {
+        ColumnsPlan plan = ColumnsPlan.compile(headers, matchingHeaders, toTemplateMode(matchingPolicy));
+        if (matchingPolicy == MatchingPolicy.TEMPLATE_FORCED) {
+            List<String> missingHeaders = new ArrayList<>();
+            int[] sources = plan.getSources();
+            for (int i = 0; i < sources.length; i++) {
+                if (sources[i] == ColumnsPlan.BLANK) {
+                    missingHeaders.add(plan.getHeaders().get(i));
+                }
+            }
+            if (!missingHeaders.isEmpty()) {
+                throw new HeaderNotMatchingException("The headers " + missingHeaders + " of the template are missing in the sheet");
+            }
+        }
+        // the position of each column of the headers row in the planned row
+        int[] plannedPositions = new int[headers.size()];
+        Arrays.fill(plannedPositions, DROPPED);
+        int[] sources = plan.getSources();
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] != ColumnsPlan.BLANK) {
+                plannedPositions[sources[i]] = i;
+            }
+        }
+        headers = plan.getHeaders();
+        plannedWidth = sources.length;
+        nextExtraPosition = matchingPolicy == MatchingPolicy.OUTER_MATCH ? plannedWidth : DROPPED;
+        for (int i = 0; i < coveredColumns; i++) {
+            if (positions[i] == DROPPED) {
+                continue;
+            }
+            if (positions[i] < plannedPositions.length) {
+                positions[i] = plannedPositions[positions[i]];
+            } else {
+                // a column after the headers row, covered by a wider row skipped before the headers row
+                positions[i] = nextExtraPosition == DROPPED ? DROPPED : nextExtraPosition++;
+            }
+        }
+        computeWidths(0);
+    }
+
+    private static ESheet.TemplateMode toTemplateMode(MatchingPolicy matchingPolicy) {
+        switch (matchingPolicy) {
+            case INNER_MATCH:
+                return ESheet.TemplateMode.MATCH;
+            case OUTER_MATCH:
+                return ESheet.TemplateMode.CONCAT;
+            default:
+                return ESheet.TemplateMode.SPECIFIC;
+        }
+    }
+
+    /**
+     * Computes the positions of the columns of the sheet up to {@code columnsNumber},
+     * the columns after the ones already covered are placed after the other columns.
+     */
+    private void coverColumns(int columnsNumber) {
+        if (columnsNumber <= coveredColumns) {
+            return;
+        }
+        if (columnsNumber > positions.length) {
+            int capacity = Math.max(columnsNumber, positions.length * 2);
+            positions = Arrays.copyOf(positions, capacity);
+            widths = Arrays.copyOf(widths, capacity);
+        }
+        int firstColumn = coveredColumns;
+        for (int i = coveredColumns; i < columnsNumber; i++) {
+            if (deletedColumns.get(i) || nextExtraPosition == DROPPED) {
+                positions[i] = DROPPED;
+            } else {
+                positions[i] = nextExtraPosition++;
+            }
+        }
+        coveredColumns = columnsNumber;
+        computeWidths(firstColumn);
+    }
+
+    private void computeWidths(int firstColumn) {
+        int width = firstColumn == 0 ? plannedWidth : widths[firstColumn - 1];
+        for (int i = firstColumn; i < coveredColumns; i++) {
+            width = Math.max(width, positions[i] + 1);
+            widths[i] = width;
+        }
+    }
+}
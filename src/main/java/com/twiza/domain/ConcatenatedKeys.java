@@ -0,0 +1,52 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.domain;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The keys of a sheet's rows index by their concatenated form, see {@link RowKey#toString()},
+ * so a row can be looked up by the {@code String} of a composed key without scanning the index.
+ * A concatenated form shared by several keys gives the first of them, in the order of the index.
+ * <p>
+ * The keys are built lazily from the index, and built again when the sheet replaces its index,
+ * or when rows are added to it.
+ *
+ * @author Mohamed.Chamlal
+ */
+final class ConcatenatedKeys {
+    private Map<RowKey, ?> index;
+    private int indexedKeysNumber;
+    private Map<String, RowKey> keys;
+
+    /**
+     * @param index the current rows index of the sheet
+     * @param key   the concatenated form of the key
+     * @return the first key of the index with the provided concatenated form, null if there is none
+     */
+    RowKey find(Map<RowKey, ?> index, String key) {
+        if (this.index != index || indexedKeysNumber != index.size()) {
+            Map<String, RowKey> concatenatedKeys = new HashMap<>(Math.max(16, (int) (index.size() / .75f) + 1));
+            index.keySet().forEach(rowKey -> concatenatedKeys.putIfAbsent(rowKey.toString(), rowKey));
+            this.keys = concatenatedKeys;
+            this.index = index;
+            this.indexedKeysNumber = index.size();
+        }
+        return keys.get(key);
+    }
+}
@@ -18,6 +18,8 @@ package com.twiza.domain;
 
 import com.twiza.exceptions.UnsupportedStatusChangeException;
 
+import java.util.List;
+
 /**
  * @author Mohamed.Chamlal
  */
@@ -45,6 +47,22 @@ public interface ECell {
      */
     String getChangesHistory();
 
+    /**
+     * get the changes made in this {@link ECell}, oldest first.
+     * the returned list cannot be modified, and is empty if the cell never changed.
+     *
+     * @return the changes of this cell.
+     */
+    List<CellChange> getChanges();
+
+    /**
+     * get a 64-bit hash of the cell's value, two cells with the same value have the same fingerprint.
+     * it follows the value when it changes, the rows keep the combined fingerprint of their cells.
+     *
+     * @return the fingerprint of the cell's value.
+     */
+    long getFingerprint();
+
     /**
      * update value of the cell in case it is different from the current value and return oldValue,
      * return null otherwise.
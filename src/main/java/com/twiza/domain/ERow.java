@@ -67,6 +67,18 @@ public interface ERow {
      */
     String getKey(int... keyColumnsPosition);
 
+    /**
+     * build the composite key of this row based on the position of columns that compose the key,
+     * the key reuses the cells values.
+     *
+     * @param keyColumnsPosition the positions of columns  one position if simple key,
+     *                           multiple if composed key
+     * @return the {@link RowKey} of the row
+     * @throws IndexOutOfBoundsException     if any column's position is out of this row's range
+     * @throws UnsupportedOperationException if all the key values are empty or contain only white space
+     */
+    RowKey getRowKey(int... keyColumnsPosition);
+
     /**
      * Returns the size of cells list in the row.
      *
@@ -123,11 +135,22 @@ public interface ERow {
     ECell replaceCell(int position, ECell cell);
 
     /**
-     * Compare this row with anther one, and returns a new {@code ERow} that contains
-     * the details of what elements have been changed.
+     * Returns a 64-bit hash of the row's content, built from the fingerprints of its cells and their positions.
+     * Two equal rows have the same fingerprint, so rows with different fingerprints are different.
+     *
+     * @return the fingerprint of the row's content
+     */
+    long getFingerprint();
+
+    /**
+     * Compare this row with anther one, and returns an {@code ERow} that contains
+     * the details of what elements have been changed, the returned row never shares the old row's cells.
+     * If both rows have the same values, this row is returned as it is, without any copy,
+     * the fingerprints only tell quickly that 2 rows are different, equal fingerprints are confirmed with the values.
      *
      * @param oldRow the other {@code ESheet} to compare with
-     * @return the new {@code ESheet} with all the changes made between this sheet and the new one.
+     * @return this row if both rows have the same values, otherwise a new row with the changes made
+     * between the old row and this one.
      * @throws UnsupportedOperationException if the size of the 2 rows is not the same
      */
     ERow compare(ERow oldRow);
@@ -203,6 +203,18 @@ public interface ESheet {
      */
     ESheet matchWithTemplate(List<String> template, TemplateMode mode);
 
+    /**
+     * adjust the current sheet to match the provided template headers, the same way as
+     * {@link #matchWithTemplate(List, TemplateMode)}, using up to {@code parallelism} threads to rearrange the rows.
+     *
+     * @param template    template the headers to match against
+     * @param mode        check {@link TemplateMode}
+     * @param parallelism the maximum number of threads used to rearrange the rows, {@code 1} rearranges them sequentially
+     * @return this {@link ESheet} with the implemented modifications.
+     * @throws IllegalArgumentException if {@code parallelism} is less than 1
+     */
+    ESheet matchWithTemplate(List<String> template, TemplateMode mode, int parallelism);
+
     /**
      * Sets the  indexes of the key, in case of simple key it will be one index, otherwise an array of indexes,
      * the indexes will be used to compose the key in each row.
@@ -310,6 +322,15 @@ public interface ESheet {
      */
     ERow getRow(String key);
 
+    /**
+     * retrieve the first row in this sheet whose {@link RowKey} equals the provided key,
+     * null if not found.
+     *
+     * @param key the unique key used to get the associated row
+     * @return a row with a key equals provided key, null if no row is found
+     */
+    ERow getRow(RowKey key);
+
     /**
      * Get the {@link EColumn} based on index of the column.
      *
@@ -347,10 +368,21 @@ public interface ESheet {
      *
      * @return a map of row's keys as keys, and the rows as value
      * @throws SheetWithInconsistentDataException if the data is inconsistent,
-     *                                            data is considered to be inconsistent if 2 rows with same key but not equal, or row with empty key
+     *                                            data is considered to be inconsistent if 2 rows with same key but not equal, or row with empty key,
+     *                                            or if 2 composed keys have the same concatenated values, see {@link #getUniqueRows()}
      */
     Map<String, ERow> getUniqueData();
 
+    /**
+     * Returns a map with the {@link RowKey} of each row as key, and the associated row to each key.
+     * like {@link #getUniqueData()}, it fails fast if the data is inconsistent, and removes duplicate rows.
+     *
+     * @return a map of row's keys as keys, and the rows as value
+     * @throws SheetWithInconsistentDataException if the data is inconsistent,
+     *                                            data is considered to be inconsistent if 2 rows with same key but not equal, or row with empty key
+     */
+    Map<RowKey, ERow> getUniqueRows();
+
     /**
      * Compare this sheet with anther one, and returns a new sheet that contains
      * the details of what elements have been changed, added or deleted.
@@ -362,6 +394,19 @@ public interface ESheet {
      */
     ESheet compare(ESheet old);
 
+    /**
+     * Compare this sheet with anther one, the same way as {@link #compare(ESheet)},
+     * using up to {@code parallelism} threads to compare the rows.
+     * The returned sheet is the same as the one returned by {@link #compare(ESheet)}, rows included in the same order.
+     *
+     * @param old         the other {@code ESheet} to compare with
+     * @param parallelism the maximum number of threads used to compare the rows, {@code 1} compares them sequentially
+     * @return the new {@code ESheet} with all the changes made between this sheet and the new one.
+     * @throws HeaderNotMatchingException if the 2 sheets headers are not matching
+     * @throws IllegalArgumentException   if {@code parallelism} is less than 1
+     */
+    ESheet compare(ESheet old, int parallelism);
+
     /**
      * Compares the specified object with this sheet for equality.  Returns
      * {@code true} if and only if the specified object is also a {@link ESheet}, both
@@ -18,6 +18,7 @@ package com.twiza.domain;
 
 import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 public interface EWorkbook {
     String SHEETS_WITH_SAME_NAME_EXCEPTION_MESSAGE = "EWorkbook cannot contain 2 ESheets with the same Name";
@@ -52,6 +53,20 @@ public interface EWorkbook {
      */
     EWorkbook compare(EWorkbook oldWorkbook);
 
+    /**
+     * Compares this workbook with another one the same way as {@link #compare(EWorkbook)},
+     * the sheets present in both workbooks are compared concurrently on the provided executor.
+     * A sheet's compare is started only when its estimated memory fits in the memory budget, along with
+     * the sheets being compared. The result doesn't depend on the order in which the sheets are compared.
+     *
+     * @param oldWorkbook  the other {@code EWorkbook} to compare with
+     * @param executor     runs the compare of the sheets, it's not shut down
+     * @param memoryBudget the heap, in bytes, that the sheets being compared can use together
+     * @return the new {@code EWorkbook} with all the changes made between this workbook and the old one.
+     * @throws IllegalArgumentException if the memory budget is not positive
+     */
+    EWorkbook compare(EWorkbook oldWorkbook, ExecutorService executor, long memoryBudget);
+
     boolean equals(Object o);
 
     int hashCode();
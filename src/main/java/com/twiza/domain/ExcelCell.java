@@ -18,9 +18,8 @@ package com.twiza.domain;
 
 import com.twiza.exceptions.UnsupportedStatusChangeException;
 
-import java.time.DateTimeException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 public class ExcelCell implements ECell {
@@ -29,17 +28,20 @@ public class ExcelCell implements ECell {
      */
     private static final Status DEFAULT_STATUS = Status.NEW;
     /**
-     * Date and time format to be used in {@code changeHistory}
+     * offset basis and prime of the 64-bit FNV-1a hash, used to compute the {@code fingerprint}.
      */
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
     /**
      * the value of the cell
      */
     private String value;
     /**
-     * The changeHistory of this cell(contains the oldValue, the date&time of the change, and the modifier user).
+     * The changes of this cell(the oldValue, the date&time of the change, and the modifier user),
+     * {@code null} until the first change. The list is never modified, a change replaces it with a new list,
+     * so copies of this cell can share it.
      */
-    private final StringBuilder changesHistory;
+    private List<CellChange> changes;
     /**
      * The current status of the cell(check {@link Status}).
      */
@@ -66,21 +68,22 @@ public class ExcelCell implements ECell {
         Objects.requireNonNull(value);
         this.value = value;
         this.status = DEFAULT_STATUS;
-        this.changesHistory = new StringBuilder();
-        if (changesHistory != null) {
+        if (changesHistory != null && !changesHistory.isEmpty()) {
             //TODO(2): check the necessity to remove adding initial History during construction
             // and use a setter.
-            setInitialChangesHistory(changesHistory);
+            setChanges(CellChange.parse(changesHistory));
         }
     }
 
+    /**
+     * Constructs a copy of the provided cell, the changes of the cell are shared, not copied.
+     *
+     * @param cell the cell to copy
+     */
     public ExcelCell(ECell cell) {
         this.value = cell.getValue();
         this.status = cell.getStatus();
-        this.changesHistory = new StringBuilder();
-        if (cell.getChangesHistory() != null) {
-            setInitialChangesHistory(cell.getChangesHistory());
-        }
+        setChanges(cell.getChanges());
     }
 
     /**
@@ -104,31 +107,42 @@ public class ExcelCell implements ECell {
     }
 
     /**
-     * Returns all the changes made in this cell.
+     * Returns all the changes made in this cell, rendered as text, one change per line.
      *
      * @return the {@code changeHistory} of this cell
      */
     @Override
     public String getChangesHistory() {
-        return changesHistory.toString();
-
-    }
-
-    private void setInitialChangesHistory(String initialChangesHistory) {
-        String[] changes = initialChangesHistory.split("\n");
-        for (String change : changes) {
-            String[] elements = change.split("\t");
-            int dateTimeIndex = 0;
-            try {
-                DATE_TIME_FORMATTER.parse(elements[dateTimeIndex]);
-            } catch (DateTimeException e) {
-                return;
-            }
-            if (elements.length < 3) {
-                return;
-            }
+        return CellChange.render(changes);
+    }
+
+    @Override
+    public List<CellChange> getChanges() {
+        return changes == null ? Collections.emptyList() : changes;
+    }
+
+    private void setChanges(List<CellChange> changes) {
+        this.changes = changes == null || changes.isEmpty() ? null : changes;
+    }
+
+    @Override
+    public long getFingerprint() {
+        return fingerprintOf(value);
+    }
+
+    /**
+     * Computes the 64-bit FNV-1a hash of the value's chars.
+     *
+     * @param value the value to hash
+     * @return the fingerprint of the value
+     */
+    static long fingerprintOf(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
         }
-        this.changesHistory.append(initialChangesHistory);
+        return hash;
     }
 
     /**
@@ -172,17 +186,13 @@ public class ExcelCell implements ECell {
     }
 
     /**
-     * Update the changes history of this cell by adding a new line that contains
+     * Update the changes history of this cell by adding a new change that contains
      * the time& date of change, the old value of this cell, and the user who made the changes.
      *
      * @param oldValue the old value of this cell
      */
     private void UpdateChangesHistory(String oldValue) {
-        this.changesHistory.append(LocalDateTime.now().format(DATE_TIME_FORMATTER))
-                           .append("  ")
-                           .append(oldValue)
-                           .append("  ")
-                           .append("User");
+        this.changes = CellChange.append(changes, CellChange.now(oldValue));
     }
 
 
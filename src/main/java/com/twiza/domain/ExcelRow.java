@@ -28,11 +28,15 @@ import java.util.stream.Collectors;
 public class ExcelRow implements ERow {
 
 
-    private static final String EMPTY_KEY_EXCEPTION_MESSAGE = "Key Cannot be empty";
     /**
      * Default status of the instance,
      */
     private final static Status DEFAULT_STATUS = Status.NEW;
+    /**
+     * seed and multiplier used to combine the cells fingerprints into the row's fingerprint.
+     */
+    private static final long FINGERPRINT_SEED = 0x9e3779b97f4a7c15L;
+    private static final long FINGERPRINT_MULTIPLIER = 0xff51afd7ed558ccdL;
 
     /**
      * A List of {@link ECell}, represent a row elements.
@@ -44,6 +48,12 @@ public class ExcelRow implements ERow {
      */
     private Status status;
 
+    /**
+     * The fingerprint of the cells, computed on demand, and reset when the cells are added, removed or replaced.
+     */
+    private long fingerprint;
+    private boolean fingerprintComputed;
+
     /**
      * Constructs an empty row
      */
@@ -67,6 +77,10 @@ public class ExcelRow implements ERow {
         this.cells = new ArrayList<>(row.getCells().size());
         row.getCells().forEach(cell -> cells.add(new ExcelCell(cell)));
         this.status = row.getStatus();
+        if (row instanceof ExcelRow && ((ExcelRow) row).fingerprintComputed) {
+            this.fingerprint = ((ExcelRow) row).fingerprint;
+            this.fingerprintComputed = true;
+        }
     }
 
     /**
@@ -126,15 +140,21 @@ public class ExcelRow implements ERow {
      */
     @Override
     public String getKey(int... keyColumnsPositions) {
-        StringBuilder keyBuilder = new StringBuilder();
-        for (Integer position : keyColumnsPositions) {
-            keyBuilder.append(cells.get(position).getValue());
-        }
-        String key = keyBuilder.toString();
-        if (key.trim().isEmpty()) {
-            throw new UnsupportedOperationException(EMPTY_KEY_EXCEPTION_MESSAGE);
-        }
-        return key;
+        return getRowKey(keyColumnsPositions).toString();
+    }
+
+    /**
+     * build the composite key of this row based on the position of columns that compose the key.
+     *
+     * @param keyColumnsPositions the positions of columns  one position if simple key,
+     *                            multiple if composed key
+     * @return the {@link RowKey} of the row, that references the cells values
+     * @throws IndexOutOfBoundsException     if any of the provided columns's position is out of range
+     * @throws UnsupportedOperationException if all the key values are empty or contain only white space
+     */
+    @Override
+    public RowKey getRowKey(int... keyColumnsPositions) {
+        return RowKey.of(this, keyColumnsPositions);
     }
 
     /**
@@ -148,6 +168,38 @@ public class ExcelRow implements ERow {
     }
 
 
+    /**
+     * Combines the fingerprints of the cells, in their order, into the row's fingerprint.
+     * it's computed once, then kept until the row's cells are added, removed or replaced,
+     * a cell updated in place through {@link #getCell(int)} is not seen by the kept fingerprint,
+     * so {@link #compare(ERow)} confirms equal fingerprints with the cells values.
+     *
+     * @return the fingerprint of the row's content
+     */
+    @Override
+    public long getFingerprint() {
+        if (!fingerprintComputed) {
+            fingerprint = fingerprintOf(cells);
+            fingerprintComputed = true;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Combines the fingerprints of the provided cells, in their order, into a row's fingerprint,
+     * so that all the {@link ERow} implementations give the same fingerprint for the same values.
+     *
+     * @param cells the cells of the row
+     * @return the fingerprint of the row's content
+     */
+    static long fingerprintOf(List<ECell> cells) {
+        long fingerprint = FINGERPRINT_SEED;
+        for (ECell cell : cells) {
+            fingerprint = (fingerprint ^ cell.getFingerprint()) * FINGERPRINT_MULTIPLIER;
+        }
+        return fingerprint ^ (fingerprint >>> 33);
+    }
+
     /**
      * set a new Status for this element, if it's applicable
      *
@@ -173,7 +225,9 @@ public class ExcelRow implements ERow {
      */
     @Override
     public ECell removeCell(int position) throws IndexOutOfBoundsException {
-        return cells.remove(position);
+        ECell removedCell = cells.remove(position);
+        fingerprintComputed = false;
+        return removedCell;
     }
 
     /**
@@ -186,6 +240,7 @@ public class ExcelRow implements ERow {
     @Override
     public boolean addCell(ECell cell) {
         Objects.requireNonNull(cell);
+        fingerprintComputed = false;
         return cells.add(cell);
     }
 
@@ -201,6 +256,7 @@ public class ExcelRow implements ERow {
     public void addCell(int position, ECell cell) {
         Objects.requireNonNull(cell);
         cells.add(position, cell);
+        fingerprintComputed = false;
     }
 
     /**
@@ -216,43 +272,57 @@ public class ExcelRow implements ERow {
     @Override
     public ECell replaceCell(int position, ECell cell) {
         Objects.requireNonNull(cell);
-        return cells.set(position, cell);
+        ECell previousCell = cells.set(position, cell);
+        fingerprintComputed = false;
+        return previousCell;
     }
 
     /**
-     * Compare this row with anther one, and returns a new {@code ERow} that contains
-     * the details of what elements have been changed.
+     * Compare this row with anther one, and returns an {@code ERow} that contains
+     * the details of what elements have been changed, it never shares the old row's cells.
+     * Rows with different fingerprints are changed, equal fingerprints are confirmed with the cells values,
+     * then this row is returned as it is, without copying its cells.
      *
      * @param oldRow the other {@code ESheet} to compare with
-     * @return the new {@code ESheet} with all the changes made between this sheet and the new one.
+     * @return this row if both rows have the same values, otherwise a new row with the changes made
+     * between the old row and this one.
      * @throws UnsupportedOperationException if the size of the 2 rows is not the same
      */
     @Override
     public ERow compare(ERow oldRow) {
-        ERow diffRow;
-        if (!(oldRow instanceof ExcelRow)) {
+        ExcelRow diffRow;
+        if (oldRow == null) {
             diffRow = new ExcelRow(this);
             diffRow.setStatus(Status.ADDED);
             return diffRow;
         }
         checkRowsSizeEquality(getSize(), oldRow.getSize());
+        if (getFingerprint() == oldRow.getFingerprint() && hasSameValues(oldRow)) {
+            // most rows don't change, they are neither copied nor updated cell by cell
+            return this;
+        }
         diffRow = new ExcelRow(oldRow);
-        if (!equals(diffRow)) {
-            for (int i = 0; i < getSize(); i++) {
-                String currentValue = getCell(i).getValue();
-                String oldValue = diffRow.getCell(i).updateValue(currentValue);
-//                if (oldValue != null) {
-////                    System.out.println("old value: " + oldValue + "\t" + "new value: " + currentValue);
-////                    System.out.println(diffRow.getCell(i).getStatus());
-////                    System.out.println(diffRow.getCell(i).getChangesHistory());
-//                }
-            }
+        boolean isChanged = false;
+        for (int i = 0; i < getSize(); i++) {
+            String currentValue = getCell(i).getValue();
+            String oldValue = diffRow.getCell(i).updateValue(currentValue);
+            isChanged |= oldValue != null;
+        }
+        if (isChanged) {
             diffRow.setStatus(Status.CHANGED);
         }
-
         return diffRow;
     }
 
+    private boolean hasSameValues(ERow row) {
+        for (int i = 0; i < cells.size(); i++) {
+            if (!cells.get(i).getValue().equals(row.getCell(i).getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void checkRowsSizeEquality(int firstRowSize, int secondRowSize) {
         if (firstRowSize != secondRowSize) {
             throw new UnsupportedOperationException("Cannot compare 2 rows with different sizes");
@@ -19,9 +19,12 @@ package com.twiza.domain;
 import com.twiza.exceptions.HeaderNotMatchingException;
 import com.twiza.exceptions.SheetWithInconsistentDataException;
 import com.twiza.exceptions.UnsupportedStatusChangeException;
+import com.twiza.metrics.DiffMetrics;
+import com.twiza.metrics.Metrics;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class ExcelSheet implements ESheet {
     private final static String DELETING_KEY_COLUMN_EXCEPTION_MESSAGE = "You cannot delete a column, that compose the key please change keyColumns first. position is: ";
@@ -38,6 +41,12 @@ public class ExcelSheet implements ESheet {
      * it considers that the first column is the key's column.
      */
     private static final int[] DEFAULT_KEY_INDEXES = {0};
+    /**
+     * a parallel compare splits the keys in ranges of at least this number of rows,
+     * and in about {@code TASKS_PER_THREAD} ranges per thread to balance the load.
+     */
+    private static final int MIN_COMPARED_ROWS_PER_TASK = 1024;
+    private static final int TASKS_PER_THREAD = 4;
 
     /**
      * The name of the sheet.
@@ -58,7 +67,12 @@ public class ExcelSheet implements ESheet {
 
     private final List<ERow> rows;
 
-    private Map<String, ERow> uniqueRows;
+    /**
+     * Index of the first row associated to each key, used by {@link #getRow(RowKey)}.
+     * it is built lazily and set to null whenever a modification could change the keys of the rows.
+     */
+    private Map<RowKey, ERow> uniqueRows;
+    private final ConcatenatedKeys concatenatedKeys = new ConcatenatedKeys();
 
 
     public ExcelSheet(String name) {
@@ -96,6 +110,8 @@ public class ExcelSheet implements ESheet {
         this.headers = new ArrayList<>(sheet.getHeaders());
         this.rows = new ArrayList<>(sheet.getData().size());
         sheet.getData().forEach(row -> rows.add(new ExcelRow(row)));//avoid passing external reference of lists.
+        this.columnsNumber = sheet.getColumnsNumber();
+        this.rowsNumber = rows.size();
         setKeyIndexes(sheet.getKeysIndexes());
         this.status = sheet.getStatus();
     }
@@ -116,6 +132,9 @@ public class ExcelSheet implements ESheet {
         rows.add(row);
         columnsNumber = row.getSize();
         rowsNumber = rows.size();
+        if (uniqueRows != null) {
+            indexRow(row, uniqueRows);
+        }
         return this;
     }
 
@@ -137,6 +156,7 @@ public class ExcelSheet implements ESheet {
         rows.add(position, row);
         columnsNumber = row.getSize();
         rowsNumber = rows.size();
+        uniqueRows = null;
         return this;
     }
 
@@ -202,6 +222,7 @@ public class ExcelSheet implements ESheet {
     private void deleteRow(int position) {
         rows.remove(position);
         rowsNumber = rows.size();
+        uniqueRows = null;
     }
 
 
@@ -216,9 +237,10 @@ public class ExcelSheet implements ESheet {
     @Override
     public ESheet deleteRow(ERow row) {
         Objects.requireNonNull(row);
-        rows.remove(row);
+        if (rows.remove(row)) {
+            uniqueRows = null;
+        }
         rowsNumber = rows.size();
-
         return this;
     }
 
@@ -263,6 +285,7 @@ public class ExcelSheet implements ESheet {
             rows.get(i).addCell(column.getCells().get(i));
         }
         columnsNumber = headers.size();
+        uniqueRows = null;
         return this;
     }
 
@@ -286,6 +309,7 @@ public class ExcelSheet implements ESheet {
             rows.get(i).addCell(position, column.getCells().get(i));
         }
         columnsNumber = headers.size();
+        uniqueRows = null;
         return this;
     }
 
@@ -326,19 +350,21 @@ public class ExcelSheet implements ESheet {
      * Deletes the columns in the provided positions,
      * In other words, from each row in the sheet,
      * delete the cells at <code>positions</code>.
+     * The rows are compacted once whatever the number of deleted columns, a position provided twice is deleted once.
      *
      * @param positions an array of position from where to delete the columns
      * @return this {@link ESheet} with the implemented modifications
-     * @throws IndexOutOfBoundsException if one of the provided positions  is out of range
+     * @throws IndexOutOfBoundsException if one of the provided positions  is out of range,
+     *                                   the sheet is left unchanged in that case
      */
     @Override
     public ESheet deleteColumns(int... positions) {
-        Arrays.sort(positions);
-        Arrays.sort(positions);
-        for (int position = positions.length - 1; position >= 0; position--) {
-            // System.out.println(positions[position]);
-            deleteColumn(positions[position]);
+        boolean[] kept = new boolean[columnsNumber];
+        Arrays.fill(kept, true);
+        for (int position : positions) {
+            kept[Objects.checkIndex(position, columnsNumber)] = false;
         }
+        deleteColumns(kept);
         return this;
     }
 
@@ -358,29 +384,29 @@ public class ExcelSheet implements ESheet {
     @Override
     public ESheet deleteColumnRange(int beginIndex, int endIndex) {
         checkBoundsBeginEnd(beginIndex, endIndex, columnsNumber);
-        for (int i = endIndex; i >= beginIndex; i--) {
-            deleteColumn(i);
-        }
+        boolean[] kept = new boolean[columnsNumber];
+        Arrays.fill(kept, true);
+        Arrays.fill(kept, beginIndex, endIndex + 1, false);
+        deleteColumns(kept);
         return this;
     }
 
 
     /**
-     * Deletes the column in the provided position,
-     * In other words, from each row in the sheet,
-     * delete the cell at <code>position</code>.
+     * Deletes the columns that are not kept,
+     * In other words, compacts each row in the sheet to the cells of the kept columns, in one pass.
      *
-     * @param position the position where the column will be deleted from
-     * @throws IndexOutOfBoundsException if the <code>position</code> provided is out of range
+     * @param kept whether each column of the sheet is kept
      */
-
-    private void deleteColumn(int position) {
-        if (headers != null) {
-            String removed = headers.remove(position);
-            // System.out.println("removing header: " + removed);
+    private void deleteColumns(boolean[] kept) {
+        ColumnsPlan plan = ColumnsPlan.keeping(headers, kept);
+        if (plan.isIdentity(columnsNumber)) {
+            return;
         }
-        rows.forEach(row -> row.removeCell(position));
-        columnsNumber = headers != null ? headers.size() : rows.get(0).getSize();
+        plan.apply(rows, 1);
+        headers = plan.getHeaders();
+        columnsNumber = plan.getSources().length;
+        uniqueRows = null;
     }
 
 
@@ -399,14 +425,11 @@ public class ExcelSheet implements ESheet {
 
     @Override
     public ESheet deleteColumnsWithEmptyHeaders() {
-        List<Integer> emptyHeadersPositions=new ArrayList<>();
-        for(int i=0;i<headers.size();i++){
-            if (headers.get(i).isBlank()){
-                emptyHeadersPositions.add(i);
-            }
+        boolean[] kept = new boolean[columnsNumber];
+        for (int i = 0; i < kept.length; i++) {
+            kept[i] = !headers.get(i).isBlank();
         }
-        int[] positions=emptyHeadersPositions.stream().mapToInt(Integer::intValue).toArray();
-        deleteColumns(positions);
+        deleteColumns(kept);
         return this;
     }
 
@@ -420,79 +443,41 @@ public class ExcelSheet implements ESheet {
      */
     @Override
     public ESheet matchWithTemplate(List<String> headersTemplate, TemplateMode mode) {
+        return matchWithTemplate(headersTemplate, mode, 1);
+    }
+
+    /**
+     * Adjusts this sheet to match the template the same way {@link #matchWithTemplate(List, TemplateMode)} does it,
+     * the columns are planned from the headers, then each row is rearranged once,
+     * the rows are rearranged in parallel, by ranges, on a pool of {@code parallelism} threads.
+     *
+     * @param headersTemplate the headers to match against
+     * @param mode            check {@link TemplateMode}
+     * @param parallelism     the number of threads used to rearrange the rows, {@code 1} rearranges them sequentially
+     * @return this {@link ESheet} with the implemented modifications.
+     * @throws IllegalArgumentException if {@code parallelism} is less than 1
+     */
+    @Override
+    public ESheet matchWithTemplate(List<String> headersTemplate, TemplateMode mode, int parallelism) {
         Objects.requireNonNull(headersTemplate);
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism should be at least 1, provided: " + parallelism);
+        }
         if (headers == null) {
             setHeaders(headersTemplate);
             return this;
         }
-        switch (mode) {
-            case MATCH:
-                matchColumnsBasedOnTemplate(headersTemplate);
-                break;
-            case CONCAT:
-                concatColumnsBasedOnTemplate(headersTemplate);
-                //System.out.println(TemplateMode.CONCAT);
-                break;
-            case SPECIFIC:
-                specificColumnsBasedOnTemplate(headersTemplate);
-            default:
-        }
-        return this;
-    }
-
-    private void specificColumnsBasedOnTemplate(List<String> headersTemplate) {
-        concatColumnsBasedOnTemplate(headersTemplate);
-        deleteExtraColumnsBasedOnTemplate(headersTemplate);
-    }
-
-    private void matchColumnsBasedOnTemplate(List<String> headersTemplate) {
-        //get matching headers(duplicate headers are removed)
-        List<String> matchedHeaders = headersTemplate.stream()
-                                                     .distinct()
-                                                     .filter(headers::contains)
-                                                     .collect(Collectors.toCollection(ArrayList::new));
-        //get the size of matching headers
-        int matchedHeadersSize = matchedHeaders.size();
-        System.out.println("MatchedHeaders size is: " + matchedHeadersSize);
-        //go through the matching headers, and arrange the headers of this sheet to have the same sequence as matching headers
-        for (int templateCursor = 0; templateCursor < matchedHeadersSize; templateCursor++) {
-            String headerTemplate = matchedHeaders.get(templateCursor);
-            int headerPosition = headers.indexOf(headerTemplate);
-            if (headerPosition != -1 && headerPosition != templateCursor) {
-                EColumn column = getColumn(headerPosition);
-                deleteColumn(headerPosition);
-                addColumn(templateCursor, column);
-            }
-        }
-        // delete remaining columns that are not part of the matching headers
-        deleteExtraColumnsBasedOnTemplate(matchedHeaders);
-    }
-
-    private void concatColumnsBasedOnTemplate(List<String> headersTemplate) {
-        int templateSize = headersTemplate.size();
-        System.out.println("Template size is: " + templateSize);
-        for (int templateCursor = 0; templateCursor < templateSize; templateCursor++) {
-            String headerTemplate = headersTemplate.get(templateCursor);
-            int headerPosition = headers.indexOf(headerTemplate);
-            //System.out.println(" header position is: " + headerPosition);
-            if (headerPosition < 0) {
-                EColumn column = new EColumn(headerTemplate, new ArrayList<>());
-                addColumn(templateCursor, column, true);
-            } else if (headerPosition != templateCursor) {
-                EColumn column = getColumn(headerPosition);
-                deleteColumn(headerPosition);
-                addColumn(templateCursor, column);
+        try (DiffMetrics.Timer ignored = Metrics.get().startTimer(DiffMetrics.Phase.MATCH_TEMPLATE, name)) {
+            ColumnsPlan plan = ColumnsPlan.compile(headers, headersTemplate, mode);
+            if (plan.isIdentity(columnsNumber)) {
+                return this;
             }
+            plan.apply(rows, parallelism);
+            headers = new ArrayList<>(plan.getHeaders());
+            columnsNumber = headers.size();
+            uniqueRows = null;
         }
-    }
-
-    private void deleteExtraColumnsBasedOnTemplate(List<String> headersTemplate) {
-        int templateSize = headersTemplate.size();
-        if (templateSize == columnsNumber) {
-            return;
-        }
-        deleteColumnRange(templateSize, columnsNumber - 1);
-
+        return this;
     }
 
     /**
@@ -513,6 +498,7 @@ public class ExcelSheet implements ESheet {
             }
         }
         this.keyIndexes = keyIndexes;
+        uniqueRows = null;
         return this;
     }
 
@@ -548,9 +534,11 @@ public class ExcelSheet implements ESheet {
     @Override
     public ESheet adoptFirstRowAsHeaders(boolean isFirstRowHeaders) {
         if (isFirstRowHeaders && !rows.isEmpty()) {
-            ERow firstRow = rows.get(0);
-            setHeaders(firstRow.getCellsValues());
-            deleteRow(firstRow);
+            try (DiffMetrics.Timer ignored = Metrics.get().startTimer(DiffMetrics.Phase.ADOPT_HEADERS, name)) {
+                ERow firstRow = rows.get(0);
+                setHeaders(firstRow.getCellsValues());
+                deleteRow(firstRow);
+            }
         }
         return this;
     }
@@ -665,12 +653,52 @@ public class ExcelSheet implements ESheet {
      */
     @Override
     public ERow getRow(String key) {
-        for (ERow row : rows) {
-            if (row.getKey(keyIndexes).equals(key)) {
-                return row;
-            }
+        if (keyIndexes.length == 1) {
+            return getRow(RowKey.of(key));
+        }
+        // a composed key cannot be split back into its values, it's looked up by its concatenated form
+        Map<RowKey, ERow> rowsIndex = getRowsIndex();
+        RowKey rowKey = concatenatedKeys.find(rowsIndex, key);
+        return rowKey == null ? null : rowsIndex.get(rowKey);
+    }
+
+    /**
+     * retrieve the first row in this sheet whose {@link RowKey} equals the provided key,
+     * null if not found.
+     *
+     * @param key the unique key used to get the associated row
+     * @return a row with a key equals provided key, null if no row is found
+     */
+    @Override
+    public ERow getRow(RowKey key) {
+        return getRowsIndex().get(key);
+    }
+
+    private Map<RowKey, ERow> getRowsIndex() {
+        if (uniqueRows == null) {
+            uniqueRows = buildRowsIndex();
+        }
+        return uniqueRows;
+    }
+
+    /**
+     * Builds the index of rows, where each key is associated to the first row having it.
+     * rows with blank keys are not indexed, as they cannot be retrieved by key.
+     *
+     * @return a map of row's keys as keys, and the first row with that key as value
+     */
+    private Map<RowKey, ERow> buildRowsIndex() {
+        Map<RowKey, ERow> index = new LinkedHashMap<>(Math.max(16, (int) (rows.size() / .75f) + 1));
+        rows.forEach(row -> indexRow(row, index));
+        return index;
+    }
+
+    private void indexRow(ERow row, Map<RowKey, ERow> index) {
+        try {
+            index.putIfAbsent(getRowKey(row), row);
+        } catch (UnsupportedOperationException e) {
+            // blank key, the row cannot be looked up.
         }
-        return null;
     }
 
     /**
@@ -729,10 +757,31 @@ public class ExcelSheet implements ESheet {
      *
      * @return a map of row's keys as keys, and the rows as value
      * @throws SheetWithInconsistentDataException if the data is inconsistent,
-     *                                            data is considered to be inconsistent if 2 rows with same key but not equal, or row with empty key
+     *                                            data is considered to be inconsistent if 2 rows with same key but not equal, or row with empty key,
+     *                                            or if 2 composed keys have the same concatenated values
      */
     @Override
     public Map<String, ERow> getUniqueData() {
+        Map<RowKey, ERow> uniqueRowsByKey = generateUniqueRows(rows);
+        Map<String, ERow> uniqueData = new LinkedHashMap<>(Math.max(16, (int) (uniqueRowsByKey.size() / .75f) + 1));
+        uniqueRowsByKey.forEach((key, row) -> {
+            // distinct composed keys can have the same concatenated form, which this map cannot hold
+            if (uniqueData.putIfAbsent(key.toString(), row) != null) {
+                throw new SheetWithInconsistentDataException(key.toString());
+            }
+        });
+        return uniqueData;
+    }
+
+    /**
+     * Returns a map with the {@link RowKey} of each row as key, and the associated row to each key.
+     *
+     * @return a map of row's keys as keys, and the rows as value
+     * @throws SheetWithInconsistentDataException if the data is inconsistent,
+     *                                            data is considered to be inconsistent if 2 rows with same key but not equal, or row with empty key
+     */
+    @Override
+    public Map<RowKey, ERow> getUniqueRows() {
         return generateUniqueRows(rows);
     }
 
@@ -747,15 +796,63 @@ public class ExcelSheet implements ESheet {
      */
     @Override
     public ESheet compare(ESheet old) {
+        return compare(old, 1);
+    }
+
+    /**
+     * Compares this sheet with another one the same way {@link #compare(ESheet)} does it,
+     * the rows are compared in parallel, by ranges of keys, on a pool of {@code parallelism} threads.
+     * The compared rows are then added to the diff sheet in the same order as the sequential compare:
+     * the keys of the old sheet first, then the keys found only in this sheet.
+     *
+     * @param old         the other {@code ESheet} to compare with
+     * @param parallelism the number of threads used to compare the rows, {@code 1} compares them sequentially
+     * @return the new {@code ESheet} with all the changes made between this sheet and the new one.
+     * @throws HeaderNotMatchingException if the 2 sheets headers are not matching
+     * @throws IllegalArgumentException   if {@code parallelism} is less than 1
+     */
+    @Override
+    public ESheet compare(ESheet old, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism should be at least 1, provided: " + parallelism);
+        }
         ESheet diffSheet = new ExcelSheet(this);
-        if (!(old instanceof ExcelSheet)) {
+        if (old == null) {
             diffSheet.setStatus(Status.ADDED);
             return diffSheet;
         }
-        checkIfHeadersMatch(getHeaders(), old.getHeaders());
-        Set<String> allRowsKeys = assembleTwoSets(old.getUniqueData().keySet(), getUniqueData().keySet());
-        allRowsKeys.forEach(key -> assignRowToCompareSheet(old.getRow(key), diffSheet.getRow(key), diffSheet));
-        return diffSheet;
+        DiffMetrics metrics = Metrics.get();
+        try (DiffMetrics.Timer ignored = metrics.startTimer(DiffMetrics.Phase.COMPARE, name)) {
+            checkIfHeadersMatch(getHeaders(), old.getHeaders());
+            Map<RowKey, ERow> oldUniqueRows = old.getUniqueRows();
+            Map<RowKey, ERow> currentUniqueRows = diffSheet.getUniqueRows();
+            List<RowKey> allRowsKeys = new ArrayList<>(assembleTwoSets(oldUniqueRows.keySet(), currentUniqueRows.keySet()));
+            ERow[] comparedRows = new ERow[allRowsKeys.size()];
+            CompareRowsTask compareTask = new CompareRowsTask(allRowsKeys, oldUniqueRows, currentUniqueRows, comparedRows,
+                                                              0, comparedRows.length,
+                                                              Math.max(MIN_COMPARED_ROWS_PER_TASK, comparedRows.length / (parallelism * TASKS_PER_THREAD)));
+            boolean hasChangedRows;
+            if (parallelism == 1) {
+                hasChangedRows = compareTask.compute();
+            } else {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    hasChangedRows = pool.invoke(compareTask);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+            for (ERow comparedRow : comparedRows) {
+                if (comparedRow != null) {
+                    diffSheet.addRow(comparedRow);
+                }
+            }
+            if (hasChangedRows && diffSheet.getStatus().equals(Status.NEW)) {
+                diffSheet.setStatus(Status.CHANGED);
+            }
+            metrics.increment(DiffMetrics.Counter.ROWS_COMPARED, name, comparedRows.length);
+            return diffSheet;
+        }
     }
 
     private void checkIfHeadersMatch(List<String> headers, List<String> otherHeaders) {
@@ -764,57 +861,105 @@ public class ExcelSheet implements ESheet {
         }
     }
 
-    private Set<String> assembleTwoSets(Set<String> set1, Set<String> set2) {
-        Set<String> sumSet = new LinkedHashSet<>(set1);
+    private <T> Set<T> assembleTwoSets(Set<T> set1, Set<T> set2) {
+        Set<T> sumSet = new LinkedHashSet<>(set1);
         sumSet.addAll(set2);
         return sumSet;
     }
 
-    private void assignRowToCompareSheet(ERow oldRow, ERow currentRow, ESheet diffSheet) {
-        if (currentRow == null) {
-            ERow oldRowCopy = new ExcelRow(oldRow);
-            //if current is null than old is not because the key is extracted from one of them
-            oldRowCopy.setStatus(Status.DELETED);
-            oldRowCopy.getCells().forEach(cell -> cell.setStatus(Status.DELETED));
-//            System.out.println("row " + oldRow + "\t" + oldRow.getStatus());
-            diffSheet.addRow(oldRowCopy);
-        } else if (oldRow == null) {
-            currentRow.setStatus(Status.ADDED);
-            currentRow.getCells().forEach(cell -> cell.setStatus(Status.ADDED));
-//            System.out.println("row " + currentRow + "\t" + currentRow.getStatus());
-
-        } else {
+    /**
+     * Compares the rows of a range of keys, and fills the rows to add to the diff sheet at the position of their key.
+     * Rows of the current sheet only are marked as ADDED in place, so nothing is added for them.
+     * The task returns {@code true} if a row that exists in both sheets has changed.
+     */
+    private static final class CompareRowsTask extends RecursiveTask<Boolean> {
+        private final List<RowKey> keys;
+        private final Map<RowKey, ERow> oldRows;
+        private final Map<RowKey, ERow> currentRows;
+        private final ERow[] comparedRows;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        private CompareRowsTask(List<RowKey> keys, Map<RowKey, ERow> oldRows, Map<RowKey, ERow> currentRows,
+                                ERow[] comparedRows, int from, int to, int threshold) {
+            this.keys = keys;
+            this.oldRows = oldRows;
+            this.currentRows = currentRows;
+            this.comparedRows = comparedRows;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (to - from > threshold) {
+                int middle = (from + to) >>> 1;
+                CompareRowsTask firstHalf = new CompareRowsTask(keys, oldRows, currentRows, comparedRows, from, middle, threshold);
+                CompareRowsTask secondHalf = new CompareRowsTask(keys, oldRows, currentRows, comparedRows, middle, to, threshold);
+                firstHalf.fork();
+                boolean secondHalfChanged = secondHalf.compute();
+                return firstHalf.join() | secondHalfChanged;
+            }
+            boolean hasChangedRows = false;
+            for (int i = from; i < to; i++) {
+                RowKey key = keys.get(i);
+                hasChangedRows |= compareRow(oldRows.get(key), currentRows.get(key), i);
+            }
+            return hasChangedRows;
+        }
+
+        private boolean compareRow(ERow oldRow, ERow currentRow, int position) {
+            if (currentRow == null) {
+                ERow oldRowCopy = new ExcelRow(oldRow);
+                //if current is null than old is not because the key is extracted from one of them
+                oldRowCopy.setStatus(Status.DELETED);
+                oldRowCopy.getCells().forEach(cell -> cell.setStatus(Status.DELETED));
+                comparedRows[position] = oldRowCopy;
+                return false;
+            }
+            if (oldRow == null) {
+                currentRow.setStatus(Status.ADDED);
+                currentRow.getCells().forEach(cell -> cell.setStatus(Status.ADDED));
+                return false;
+            }
             ERow row = currentRow.compare(oldRow);
-            if (!row.getStatus().equals(Status.NEW) && diffSheet.getStatus().equals(Status.NEW)) {
-                diffSheet.setStatus(Status.CHANGED);
+            if (row == currentRow) {
+                // an unchanged row is the current row, already part of the diff sheet, the added row shares its cells
+                // instead of adding the same row twice, which in place operations would then apply twice
+                comparedRows[position] = new ExcelRow(currentRow.getCells());
+                return false;
             }
-            diffSheet.addRow(row);
+            comparedRows[position] = row;
+            return !row.getStatus().equals(Status.NEW);
         }
     }
 
-    private Map<String, ERow> generateUniqueRows(List<ERow> rowsList) {
-        final Map<String, ERow> tempUniqueKeys = new LinkedHashMap<>();
-        rowsList.forEach(row -> addRowToUniqueRows(row, tempUniqueKeys));
-        return tempUniqueKeys;
+    private Map<RowKey, ERow> generateUniqueRows(List<ERow> rowsList) {
+        try (DiffMetrics.Timer ignored = Metrics.get().startTimer(DiffMetrics.Phase.UNIQUE_DATA, name)) {
+            final Map<RowKey, ERow> tempUniqueKeys = new LinkedHashMap<>(Math.max(16, (int) (rowsList.size() / .75f) + 1));
+            rowsList.forEach(row -> addRowToUniqueRows(row, tempUniqueKeys));
+            return tempUniqueKeys;
+        }
     }
 
 
-    private void addRowToUniqueRows(ERow row, Map<String, ERow> map) {
+    private void addRowToUniqueRows(ERow row, Map<RowKey, ERow> map) {
         if (row.getSize() != columnsNumber) {
             throw new UnsupportedOperationException("The row: " + row.getKey(keyIndexes)
                                                             + " has a size of: " + row.getSize() + ", different than columns number " +
                                                             columnsNumber);
         }
-        ERow rowInMap = map.get(getRowKey(row));
+        RowKey rowKey = getRowKey(row);
+        ERow rowInMap = map.putIfAbsent(rowKey, row);
         if (rowInMap != null && !rowInMap.equals(row)) {
-            throw new SheetWithInconsistentDataException(getRowKey(row));
-        } else if (rowInMap == null) {
-            map.put(getRowKey(row), row);
+            throw new SheetWithInconsistentDataException(rowKey.toString());
         }
     }
 
-    private String getRowKey(ERow row) throws UnsupportedOperationException {
-        return row.getKey(keyIndexes);
+    private RowKey getRowKey(ERow row) throws UnsupportedOperationException {
+        return row.getRowKey(keyIndexes);
     }
 
 
@@ -829,12 +974,12 @@ public class ExcelSheet implements ESheet {
         ExcelSheet sheet = (ExcelSheet) o;
         return getName().equals(sheet.getName()) &&
                        Objects.equals(headers, sheet.getHeaders()) &&
-                       Objects.equals(getUniqueData(), sheet.getUniqueData());
+                       Objects.equals(getUniqueRows(), sheet.getUniqueRows());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, headers, uniqueRows);
+        return Objects.hash(name, headers);
     }
 
     @Override
@@ -18,16 +18,26 @@ package com.twiza.domain;
 
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 public class ExcelWorkbook implements EWorkbook {
     private final static String SHEETS_WITH_SAME_NAME_EXCEPTION_MESSAGE = "EWorkbook cannot contain 2 getSheets() with the same Name";
+    /**
+     * rough heap used by each cell while comparing two sheets: the cells of both sheets,
+     * the copy of the current sheet and the compared rows.
+     */
+    private static final long COMPARE_BYTES_PER_CELL = 256;
+    /**
+     * the memory budget is managed in kilobytes, to fit in the permits of a {@link Semaphore}.
+     */
+    private static final int KILOBYTE = 1024;
 
     private Path path;
     private final Map<String, ESheet> sheets;
 
     public ExcelWorkbook() {
-        this.sheets = new HashMap<>();
+        this.sheets = new LinkedHashMap<>();
     }
 
     public ExcelWorkbook(Path path, List<ESheet> sheetsList) {
@@ -37,12 +47,12 @@ public class ExcelWorkbook implements EWorkbook {
 
     public ExcelWorkbook(EWorkbook workbook) {
         this.path = workbook.getWorkbookPath();
-        this.sheets = new HashMap<>(workbook.getSheets().size());
+        this.sheets = new LinkedHashMap<>(workbook.getSheets().size());
         workbook.getSheets().forEach((key, value) -> this.sheets.putIfAbsent(key, new ExcelSheet(value)));
     }
 
     private Map<String, ESheet> assignSheets(List<ESheet> sheetsList) {
-        final Map<String, ESheet> tempSheetsMap = new HashMap<>();
+        final Map<String, ESheet> tempSheetsMap = new LinkedHashMap<>();
         sheetsList.forEach(sheet -> addSheetToSheetsMap(sheet, tempSheetsMap));
         return tempSheetsMap;
     }
@@ -97,31 +107,97 @@ public class ExcelWorkbook implements EWorkbook {
         EWorkbook diffWorkbook = new ExcelWorkbook();
         allSheets.forEach(sheetName -> {
 //            System.out.println("Sheet to compare is" + "\t" + sheetName);
-            assignSheetToCompareWorkbook(oldWorkbook.getSheet(sheetName),
-                                         getSheet(sheetName),
-                                         diffWorkbook);
+            diffWorkbook.addSheet(compareSheets(oldWorkbook.getSheet(sheetName), getSheet(sheetName)));
         });
         return diffWorkbook;
     }
 
+    @Override
+    public EWorkbook compare(EWorkbook oldWorkbook, ExecutorService executor, long memoryBudget) {
+        Objects.requireNonNull(oldWorkbook, "the oldWorkbook cannot be null");
+        Objects.requireNonNull(executor);
+        if (memoryBudget < 1) {
+            throw new IllegalArgumentException("memory budget should be positive, provided: " + memoryBudget);
+        }
+        Set<String> allSheets = assembleTwoSets(oldWorkbook.getSheets().keySet(), getSheets().keySet());
+        Semaphore memoryPermits = new Semaphore(toPermits(memoryBudget));
+        List<Future<ESheet>> diffSheets = new ArrayList<>(allSheets.size());
+        try {
+            for (String sheetName : allSheets) {
+                ESheet oldSheet = oldWorkbook.getSheet(sheetName);
+                ESheet currentSheet = getSheet(sheetName);
+                if (oldSheet == null || currentSheet == null) {
+                    // added and deleted sheets are not compared
+                    diffSheets.add(CompletableFuture.completedFuture(compareSheets(oldSheet, currentSheet)));
+                    continue;
+                }
+                int permits = Math.min(toPermits(estimateCompareMemory(oldSheet, currentSheet)), toPermits(memoryBudget));
+                // back-pressure: wait until the sheets being compared release enough memory
+                memoryPermits.acquire(permits);
+                try {
+                    diffSheets.add(executor.submit(() -> {
+                        try {
+                            return compareSheets(oldSheet, currentSheet);
+                        } finally {
+                            memoryPermits.release(permits);
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    memoryPermits.release(permits);
+                    throw e;
+                }
+            }
+            // the sheets are added in the same order as the sequential compare, whatever order they were compared in
+            EWorkbook diffWorkbook = new ExcelWorkbook();
+            for (Future<ESheet> diffSheet : diffSheets) {
+                diffWorkbook.addSheet(diffSheet.get());
+            }
+            return diffWorkbook;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("The workbooks compare was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            diffSheets.forEach(diffSheet -> diffSheet.cancel(true));
+        }
+    }
+
+    private long estimateCompareMemory(ESheet oldSheet, ESheet currentSheet) {
+        long cells = (long) oldSheet.getRowsNumber() * oldSheet.getColumnsNumber()
+                             + (long) currentSheet.getRowsNumber() * currentSheet.getColumnsNumber();
+        return cells * COMPARE_BYTES_PER_CELL;
+    }
+
+    private int toPermits(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, bytes / KILOBYTE));
+    }
+
     private Set<String> assembleTwoSets(Set<String> set1, Set<String> set2) {
         Set<String> sumSet = new LinkedHashSet<>(set1);
         sumSet.addAll(set2);
         return sumSet;
     }
 
-    private void assignSheetToCompareWorkbook(ESheet oldSheet, ESheet currentSheet, EWorkbook workbook) {
+    private ESheet compareSheets(ESheet oldSheet, ESheet currentSheet) {
         if (currentSheet == null) {
             //if current is null than old is not because the key is extracted from one of them
             oldSheet.setStatus(Status.DELETED);
-            workbook.addSheet(oldSheet);
 //            System.out.println("Sheet " + oldSheet.getName() + "\t" + oldSheet.getStatus());
+            return oldSheet;
         } else if (oldSheet == null) {
             currentSheet.setStatus(Status.ADDED);
-            workbook.addSheet(currentSheet);
 //            System.out.println("Sheet " + currentSheet.getName() + "\t" + currentSheet.getStatus());
+            return currentSheet;
         } else {
-            workbook.addSheet(currentSheet.compare(oldSheet));
+            return currentSheet.compare(oldSheet);
         }
     }
 
@@ -1,36 +1,162 @@
 package com.twiza.domain;
 
+import java.util.Arrays;
+
 /**
+ * The key of a row, composed of the values of the key columns of the row, in the order of the key indexes.
+ * <p>
+ * the key is immutable, it keeps references to the row's values without copying them,
+ * and its hash is computed once. Two keys are equal if they have the same values at the same positions,
+ * so {@code ("ab", "c")} and {@code ("a", "bc")} are different keys.
+ * Keys are ordered value by value, which is the order used to sort rows by key.
+ *
  * @author Mohamed.Chamlal, 13/01/2021
  */
-public class RowKey {
-    private int[] normalKeyIndexes;
-    private int[] sortedKeyIndexes;
+public final class RowKey implements Comparable<RowKey> {
+    private static final String EMPTY_KEY_EXCEPTION_MESSAGE = "Key Cannot be empty";
+
+    private final String[] values;
+    private final int hash;
+
+    private RowKey(String[] values) {
+        this.values = values;
+        this.hash = Arrays.hashCode(values);
+    }
+
+    /**
+     * Creates a key from the provided values.
+     *
+     * @param values the values that compose the key, in order
+     * @return the key composed of the provided values
+     * @throws NullPointerException          if any of the values is null
+     * @throws UnsupportedOperationException if all the values are empty or contain only white spaces
+     */
+    public static RowKey of(String... values) {
+        return ofOwnValues(values.clone());
+    }
 
-    RowKey(int[] normalKeyIndexes) {
-        this(normalKeyIndexes, null);
+    /**
+     * Creates a key that takes ownership of the provided array, the array should not be modified afterward.
+     *
+     * @param keyValues the values that compose the key, in order
+     * @return the key composed of the provided values
+     * @throws UnsupportedOperationException if all the values are empty or contain only white spaces
+     */
+    static RowKey ofOwnValues(String[] keyValues) {
+        checkKeyValues(keyValues);
+        return new RowKey(keyValues);
     }
 
-    RowKey(int[] normalKeyIndexes, int[] sortedKeyIndexes) {
-        this.normalKeyIndexes = normalKeyIndexes;
-        this.sortedKeyIndexes = sortedKeyIndexes;
+    /**
+     * Creates the key of the row, based on the positions of the columns that compose the key.
+     *
+     * @param row                 the row to get the key from
+     * @param keyColumnsPositions the positions of the key columns
+     * @return the key of the row
+     * @throws IndexOutOfBoundsException     if any of the provided positions is out of range
+     * @throws UnsupportedOperationException if the key is empty or contains only white spaces
+     */
+    static RowKey of(ERow row, int... keyColumnsPositions) {
+        String[] keyValues = new String[keyColumnsPositions.length];
+        for (int i = 0; i < keyColumnsPositions.length; i++) {
+            keyValues[i] = row.getCell(keyColumnsPositions[i]).getValue();
+        }
+        return ofOwnValues(keyValues);
     }
 
-    public int[] getNormalKeyIndexes() {
-        return normalKeyIndexes;
+    private static void checkKeyValues(String[] keyValues) {
+        boolean isBlank = true;
+        for (String value : keyValues) {
+            if (value == null) {
+                throw new NullPointerException("a key value cannot be null");
+            }
+            isBlank &= isBlank(value);
+        }
+        if (isBlank) {
+            throw new UnsupportedOperationException(EMPTY_KEY_EXCEPTION_MESSAGE);
+        }
     }
 
-    public void setNormalKeyIndexes(int[] normalKeyIndexes) {
-        this.normalKeyIndexes = normalKeyIndexes;
+    private static boolean isBlank(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
     }
 
-    public int[] getSortedKeyIndexes() {
-        return sortedKeyIndexes;
+    /**
+     * Returns the number of values that compose this key.
+     *
+     * @return the number of values of this key
+     */
+    public int size() {
+        return values.length;
     }
 
-    public void setSortedKeyIndexes(int[] sortedKeyIndexes) {
-        this.sortedKeyIndexes = sortedKeyIndexes;
+    /**
+     * Returns the value at the provided position of this key.
+     *
+     * @param position the position of the value
+     * @return the value at the provided position
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public String getValue(int position) {
+        return values[position];
     }
 
+    /**
+     * Compares the values of the keys one by one, in the order of the key indexes,
+     * a key that is the beginning of another key is ordered before it.
+     *
+     * @param other the key to compare with
+     * @return a negative integer, zero, or a positive integer if this key is less than, equal to,
+     * or greater than the other key
+     */
+    @Override
+    public int compareTo(RowKey other) {
+        int commonSize = Math.min(values.length, other.values.length);
+        for (int i = 0; i < commonSize; i++) {
+            int comparison = values[i].compareTo(other.values[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(values.length, other.values.length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RowKey)) {
+            return false;
+        }
+        RowKey rowKey = (RowKey) o;
+        return hash == rowKey.hash && Arrays.equals(values, rowKey.values);
+    }
 
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Returns the values of this key concatenated, which is the same as {@link ERow#getKey(int...)}.
+     *
+     * @return the concatenated values of this key
+     */
+    @Override
+    public String toString() {
+        if (values.length == 1) {
+            return values[0];
+        }
+        StringBuilder builder = new StringBuilder();
+        for (String value : values) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
 }
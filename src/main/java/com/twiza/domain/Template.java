@@ -17,15 +17,17 @@
 package com.twiza.domain;
 
 import java.nio.file.FileSystems;
-import java.nio.file.Paths;
 import java.util.List;
+import java.util.Objects;
 
 /**
- * Template class store are configuration needed to setup a sheet
+ * Template class store are configuration needed to setup a sheet,
+ * it's applied while the sheet is read, see {@link CompiledTemplate}.
  */
 public class Template {
     /**
-     * Pattern that will be matched with sheets for
+     * Pattern that will be matched with sheets for, in glob syntax, like the ignored sheets patterns:
+     * it's matched against {@code workbookName/sheetName}, the workbook's name without its extension.
      */
     private final String name;
     private List<String> matchingHeaders;
@@ -35,8 +37,13 @@ public class Template {
     private int[] deleteRows;
     private int[] keyColumns;
 
+    /**
+     * @param name the glob pattern of the sheets of this template
+     * @throws NullPointerException     if the name is null
+     * @throws IllegalArgumentException if the name is not a valid glob pattern
+     */
     public Template(String name) {
-        FileSystems.getDefault().getPathMatcher("").matches(Paths.get("fff"));
+        FileSystems.getDefault().getPathMatcher("glob:" + Objects.requireNonNull(name));
         this.name = name;
     }
 
@@ -91,4 +98,13 @@ public class Template {
     public void setKeyColumns(int[] keyColumns) {
         this.keyColumns = keyColumns;
     }
+
+    /**
+     * Compiles this template for the read of one sheet, later changes of this template don't affect it.
+     *
+     * @return a new {@link CompiledTemplate}, to be used for one sheet only
+     */
+    public CompiledTemplate compile() {
+        return new CompiledTemplate(this);
+    }
 }
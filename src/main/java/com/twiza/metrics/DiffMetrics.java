@@ -0,0 +1,117 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.metrics;
+
+/**
+ * Receives the timings and the counters of the diff pipeline: reading the workbooks, preparing the sheets,
+ * comparing them, and writing the diff. The metrics used by the pipeline are the ones set in {@link Metrics},
+ * implementations should be thread safe, since sheets are read and compared concurrently.
+ * <p>
+ * The sheet name of a metric is {@code null} when it concerns the whole workbook.
+ *
+ * @author Mohamed.Chamlal
+ */
+public interface DiffMetrics {
+
+    /**
+     * The timed phases of the diff pipeline.
+     */
+    enum Phase {
+        /**
+         * parsing a sheet into an {@code ESheet}, formatting its cells included.
+         */
+        READ_SHEET,
+        /**
+         * formatting the cells values of a sheet read with the POI usermodel, which is part of {@link #READ_SHEET}.
+         */
+        FORMAT_CELLS,
+        ADOPT_HEADERS,
+        /**
+         * building the map of the unique rows of a sheet by key.
+         */
+        UNIQUE_DATA,
+        MATCH_TEMPLATE,
+        COMPARE,
+        /**
+         * building a sheet of the written workbook, or saving the whole workbook to its file.
+         */
+        WRITE_SHEET
+    }
+
+    /**
+     * The counters of the diff pipeline.
+     */
+    enum Counter {
+        ROWS_READ,
+        CELLS_READ,
+        ROWS_COMPARED,
+        ROWS_WRITTEN,
+        BYTES_READ,
+        BYTES_WRITTEN
+    }
+
+    /**
+     * Records the duration of a phase.
+     *
+     * @param phase         the timed phase
+     * @param sheetName     the name of the sheet, {@code null} for the whole workbook
+     * @param durationNanos the duration of the phase, in nanoseconds
+     */
+    void recordDuration(Phase phase, String sheetName, long durationNanos);
+
+    /**
+     * Adds an amount to a counter.
+     *
+     * @param counter   the incremented counter
+     * @param sheetName the name of the sheet, {@code null} for the whole workbook
+     * @param amount    the amount to add
+     */
+    void increment(Counter counter, String sheetName, long amount);
+
+    /**
+     * Returns whether the metrics are recorded, the pipeline skips the measures that cost more than
+     * a call, like timing each cell, when they are not.
+     *
+     * @return {@code true} if the metrics are recorded
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Starts timing a phase, the duration is recorded when the returned timer is closed.
+     *
+     * @param phase     the timed phase
+     * @param sheetName the name of the sheet, {@code null} for the whole workbook
+     * @return the timer of the phase
+     */
+    default Timer startTimer(Phase phase, String sheetName) {
+        long start = System.nanoTime();
+        return () -> recordDuration(phase, sheetName, System.nanoTime() - start);
+    }
+
+    /**
+     * The timer of a running phase, to be used in a try-with-resources statement.
+     */
+    interface Timer extends AutoCloseable {
+        /**
+         * Stops the timer and records the duration of the phase.
+         */
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Metrics that emit JDK Flight Recorder events, so the phases of a diff show up in a recording
+ * next to the GC and allocation events of the same period. Started timers emit an event that covers
+ * the phase, durations recorded afterward and counters emit instant events.
+ * The events are only built when a recording enables them.
+ *
+ * @author Mohamed.Chamlal
+ */
+public class JfrDiffMetrics implements DiffMetrics {
+    private static final String CATEGORY = "Excel Diff";
+
+    @Override
+    public void recordDuration(Phase phase, String sheetName, long durationNanos) {
+        PhaseEvent event = new PhaseEvent();
+        if (event.isEnabled()) {
+            event.phase = phase.name();
+            event.sheetName = sheetName;
+            event.elapsed = durationNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void increment(Counter counter, String sheetName, long amount) {
+        CounterEvent event = new CounterEvent();
+        if (event.isEnabled()) {
+            event.counter = counter.name();
+            event.sheetName = sheetName;
+            event.amount = amount;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Timer startTimer(Phase phase, String sheetName) {
+        PhaseEvent event = new PhaseEvent();
+        long start = System.nanoTime();
+        event.begin();
+        return () -> {
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = phase.name();
+                event.sheetName = sheetName;
+                event.elapsed = System.nanoTime() - start;
+                event.commit();
+            }
+        };
+    }
+
+    @Name("com.twiza.DiffPhase")
+    @Label("Diff Phase")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+        @Label("Sheet")
+        String sheetName;
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("com.twiza.DiffCounter")
+    @Label("Diff Counter")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class CounterEvent extends Event {
+        @Label("Counter")
+        String counter;
+        @Label("Sheet")
+        String sheetName;
+        @Label("Amount")
+        long amount;
+    }
+}
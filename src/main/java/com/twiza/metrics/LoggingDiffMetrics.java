@@ -0,0 +1,117 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Metrics that log each duration and counter, and keep the totals of each phase and counter,
+ * so a summary can be logged at the end of a diff with {@link #logTotals()}.
+ *
+ * @author Mohamed.Chamlal
+ */
+public class LoggingDiffMetrics implements DiffMetrics {
+    private static final Logger logger = Logger.getLogger(LoggingDiffMetrics.class.getName());
+    private static final String WORKBOOK_SCOPE = "workbook";
+
+    private final Level level;
+    private final Map<Phase, LongAdder> phasesNanos = new EnumMap<>(Phase.class);
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+
+    /**
+     * Constructs metrics that log at the {@link Level#INFO} level.
+     */
+    public LoggingDiffMetrics() {
+        this(Level.INFO);
+    }
+
+    /**
+     * @param level the level of the logged metrics
+     */
+    public LoggingDiffMetrics(Level level) {
+        this.level = Objects.requireNonNull(level);
+        // the maps are filled once, so they are only read afterward
+        for (Phase phase : Phase.values()) {
+            phasesNanos.put(phase, new LongAdder());
+        }
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new LongAdder());
+        }
+    }
+
+    @Override
+    public void recordDuration(Phase phase, String sheetName, long durationNanos) {
+        phasesNanos.get(phase).add(durationNanos);
+        if (logger.isLoggable(level)) {
+            logger.log(level, () -> scope(sheetName) + ": " + phase + " took "
+                                    + TimeUnit.NANOSECONDS.toMillis(durationNanos) + " ms");
+        }
+    }
+
+    @Override
+    public void increment(Counter counter, String sheetName, long amount) {
+        counters.get(counter).add(amount);
+        if (logger.isLoggable(level)) {
+            logger.log(level, () -> scope(sheetName) + ": " + counter + " " + amount);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * @param phase the timed phase
+     * @return the total duration of the phase for all the sheets, in nanoseconds
+     */
+    public long getTotalNanos(Phase phase) {
+        return phasesNanos.get(phase).sum();
+    }
+
+    /**
+     * @param counter the counter
+     * @return the total of the counter for all the sheets
+     */
+    public long getTotal(Counter counter) {
+        return counters.get(counter).sum();
+    }
+
+    /**
+     * Logs the total duration of each phase and the total of each counter.
+     */
+    public void logTotals() {
+        if (!logger.isLoggable(level)) {
+            return;
+        }
+        StringBuilder totals = new StringBuilder("diff totals:");
+        phasesNanos.forEach((phase, nanos) -> totals.append(' ').append(phase).append('=')
+                                                    .append(TimeUnit.NANOSECONDS.toMillis(nanos.sum())).append("ms"));
+        counters.forEach((counter, total) -> totals.append(' ').append(counter).append('=').append(total.sum()));
+        logger.log(level, totals.toString());
+    }
+
+    private static String scope(String sheetName) {
+        return sheetName == null ? WORKBOOK_SCOPE : "sheet " + sheetName;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.metrics;
+
+import java.util.Objects;
+
+/**
+ * Holds the {@link DiffMetrics} used by the reader, the sheets and the writer,
+ * the default metrics are the {@link NoOpDiffMetrics}.
+ *
+ * @author Mohamed.Chamlal
+ */
+public final class Metrics {
+    private static volatile DiffMetrics diffMetrics = NoOpDiffMetrics.INSTANCE;
+
+    private Metrics() {
+    }
+
+    /**
+     * @return the metrics used by the diff pipeline
+     */
+    public static DiffMetrics get() {
+        return diffMetrics;
+    }
+
+    /**
+     * Sets the metrics used by the diff pipeline, from now on.
+     *
+     * @param diffMetrics the metrics to use, {@link NoOpDiffMetrics#INSTANCE} to stop recording
+     */
+    public static void set(DiffMetrics diffMetrics) {
+        Metrics.diffMetrics = Objects.requireNonNull(diffMetrics);
+    }
+}
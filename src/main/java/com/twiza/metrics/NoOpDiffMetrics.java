@@ -0,0 +1,49 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.metrics;
+
+/**
+ * Metrics that record nothing, the default of {@link Metrics}.
+ *
+ * @author Mohamed.Chamlal
+ */
+public final class NoOpDiffMetrics implements DiffMetrics {
+    public static final NoOpDiffMetrics INSTANCE = new NoOpDiffMetrics();
+    private static final Timer NO_OP_TIMER = () -> {
+    };
+
+    private NoOpDiffMetrics() {
+    }
+
+    @Override
+    public void recordDuration(Phase phase, String sheetName, long durationNanos) {
+    }
+
+    @Override
+    public void increment(Counter counter, String sheetName, long amount) {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public Timer startTimer(Phase phase, String sheetName) {
+        return NO_OP_TIMER;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.utils;
+
+import com.twiza.domain.Status;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a {@link ExcelBatchDiff}, one entry per compared pair of workbooks.
+ *
+ * @author Mohamed.Chamlal
+ */
+public class BatchDiffSummary {
+
+    private final List<WorkbookDiff> workbookDiffs;
+
+    BatchDiffSummary(List<WorkbookDiff> workbookDiffs) {
+        this.workbookDiffs = new ArrayList<>(workbookDiffs);
+    }
+
+    public List<WorkbookDiff> getWorkbookDiffs() {
+        return Collections.unmodifiableList(workbookDiffs);
+    }
+
+    /**
+     * Returns the number of workbooks with the provided status,
+     * {@code Status.COMMON} is used for the unchanged workbooks.
+     *
+     * @param status the status of the workbooks to count
+     * @return the number of workbooks with the provided status
+     */
+    public long countWorkbooks(Status status) {
+        return workbookDiffs.stream().filter(diff -> diff.getStatus() == status).count();
+    }
+
+    public long countFailures() {
+        return workbookDiffs.stream().filter(WorkbookDiff::isFailed).count();
+    }
+
+    public long getAddedRows() {
+        return workbookDiffs.stream().mapToLong(WorkbookDiff::getAddedRows).sum();
+    }
+
+    public long getDeletedRows() {
+        return workbookDiffs.stream().mapToLong(WorkbookDiff::getDeletedRows).sum();
+    }
+
+    public long getChangedRows() {
+        return workbookDiffs.stream().mapToLong(WorkbookDiff::getChangedRows).sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        workbookDiffs.forEach(diff -> builder.append(diff).append("\n"));
+        builder.append(workbookDiffs.size()).append(" workbooks: ")
+               .append(countWorkbooks(Status.CHANGED)).append(" changed, ")
+               .append(countWorkbooks(Status.ADDED)).append(" added, ")
+               .append(countWorkbooks(Status.DELETED)).append(" deleted, ")
+               .append(countWorkbooks(Status.COMMON)).append(" unchanged, ")
+               .append(countFailures()).append(" failed\n")
+               .append("rows: ").append(getAddedRows()).append(" added, ")
+               .append(getDeletedRows()).append(" deleted, ")
+               .append(getChangedRows()).append(" changed");
+        return builder.toString();
+    }
+
+    /**
+     * The result of the comparison of one pair of workbooks.
+     */
+    public static class WorkbookDiff {
+        private final Path relativePath;
+        private final Status status;
+        private final long addedRows;
+        private final long deletedRows;
+        private final long changedRows;
+        private final Exception failure;
+
+        WorkbookDiff(Path relativePath, Status status, long addedRows, long deletedRows, long changedRows) {
+            this.relativePath = relativePath;
+            this.status = status;
+            this.addedRows = addedRows;
+            this.deletedRows = deletedRows;
+            this.changedRows = changedRows;
+            this.failure = null;
+        }
+
+        WorkbookDiff(Path relativePath, Exception failure) {
+            this.relativePath = relativePath;
+            this.status = null;
+            this.addedRows = 0;
+            this.deletedRows = 0;
+            this.changedRows = 0;
+            this.failure = failure;
+        }
+
+        /**
+         * @return the path of the workbook relative to the compared folders
+         */
+        public Path getRelativePath() {
+            return relativePath;
+        }
+
+        /**
+         * @return the status of the workbook, {@code Status.COMMON} if it didn't change, null if the comparison failed
+         */
+        public Status getStatus() {
+            return status;
+        }
+
+        public long getAddedRows() {
+            return addedRows;
+        }
+
+        public long getDeletedRows() {
+            return deletedRows;
+        }
+
+        public long getChangedRows() {
+            return changedRows;
+        }
+
+        public boolean isFailed() {
+            return failure != null;
+        }
+
+        /**
+         * @return the exception that stopped the comparison of this workbook, null otherwise
+         */
+        public Exception getFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            if (isFailed()) {
+                return relativePath + "\tFAILED\t" + failure;
+            }
+            return relativePath + "\t" + status + "\t+" + addedRows + "\t-" + deletedRows + "\t~" + changedRows;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.utils;
+
+import com.twiza.domain.ECell;
+import com.twiza.domain.ERow;
+import com.twiza.domain.ESheet;
+import com.twiza.domain.ExcelRow;
+
+import java.util.*;
+
+/**
+ * The columns of a sheet to read, the other columns are neither formatted nor stored by {@link ExcelReader}.
+ * <p>
+ * The columns are read in the order of the projection, either by their position in the sheet,
+ * {@code 0} for the first column, or by their header, resolved from the first read row of the sheet:
+ * the first column holding each header is read, the headers missing in the first row are ignored.
+ * The first row stays a row of the sheet, so its headers can be adopted after the read.
+ *
+ * @author Mohamed.Chamlal
+ */
+public final class ColumnProjection {
+    private final int[] columnIndexes;
+    private final List<String> headers;
+
+    private ColumnProjection(int[] columnIndexes, List<String> headers) {
+        this.columnIndexes = columnIndexes;
+        this.headers = headers;
+    }
+
+    /**
+     * @param columnIndexes the positions of the columns to read, in the order of the read rows
+     * @return the projection of the columns at the provided positions, the positions after the end of a row
+     * are read as blanks
+     * @throws IllegalArgumentException if a position is negative or provided twice
+     */
+    public static ColumnProjection ofIndexes(int... columnIndexes) {
+        Objects.requireNonNull(columnIndexes);
+        Set<Integer> distinctIndexes = new HashSet<>();
+        for (int columnIndex : columnIndexes) {
+            if (columnIndex < 0 || !distinctIndexes.add(columnIndex)) {
+                throw new IllegalArgumentException("column indexes should be positive and distinct, provided: "
+                                                           + Arrays.toString(columnIndexes));
+            }
+        }
+        return new ColumnProjection(columnIndexes.clone(), null);
+    }
+
+    /**
+     * @param headers the headers of the columns to read, in the order of the read rows
+     * @return the projection of the columns with the provided headers in the first row of the sheet
+     */
+    public static ColumnProjection ofHeaders(String... headers) {
+        return ofHeaders(Arrays.asList(headers));
+    }
+
+    /**
+     * @param headers the headers of the columns to read, in the order of the read rows
+     * @return the projection of the columns with the provided headers in the first row of the sheet
+     */
+    public static ColumnProjection ofHeaders(List<String> headers) {
+        return new ColumnProjection(null, new ArrayList<>(Objects.requireNonNull(headers)));
+    }
+
+    /**
+     * @return the positions of the projected columns, null if the columns are projected by header
+     */
+    public int[] getColumnIndexes() {
+        return columnIndexes == null ? null : columnIndexes.clone();
+    }
+
+    /**
+     * @return the headers of the projected columns, null if the columns are projected by position
+     */
+    public List<String> getHeaders() {
+        return headers == null ? null : Collections.unmodifiableList(headers);
+    }
+
+    /**
+     * @return a new projection for the read of one sheet
+     */
+    RowProjection compile() {
+        SheetProjection projection = new SheetProjection();
+        if (columnIndexes != null) {
+            projection.project(columnIndexes);
+        }
+        return projection;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnProjection" + (columnIndexes != null ? Arrays.toString(columnIndexes) : headers);
+    }
+
+    /**
+     * The projection of one sheet, the columns projected by header are read entirely
+     * until the first row is read, then only the columns holding the projected headers are read.
+     */
+    private final class SheetProjection implements RowProjection {
+        /**
+         * the position in the read row of each column of the sheet, null until the columns are resolved.
+         */
+        private int[] positions;
+        private int width;
+
+        private void project(int[] projectedColumns) {
+            int maxColumn = -1;
+            for (int column : projectedColumns) {
+                maxColumn = Math.max(maxColumn, column);
+            }
+            positions = new int[maxColumn + 1];
+            Arrays.fill(positions, DROPPED);
+            for (int i = 0; i < projectedColumns.length; i++) {
+                positions[projectedColumns[i]] = i;
+            }
+            width = projectedColumns.length;
+        }
+
+        @Override
+        public boolean skipsRow(int rowIndex) {
+            return false;
+        }
+
+        @Override
+        public int getPosition(int columnIndex) {
+            if (positions == null) {
+                return columnIndex;
+            }
+            return columnIndex < positions.length ? positions[columnIndex] : DROPPED;
+        }
+
+        @Override
+        public int getWidth(int columnsNumber) {
+            return positions == null ? columnsNumber : width;
+        }
+
+        @Override
+        public ERow accept(ERow row) {
+            if (positions != null) {
+                return row;
+            }
+            List<String> firstRowValues = row.getCellsValues();
+            Map<String, Integer> firstColumns = new HashMap<>();
+            for (int i = 0; i < firstRowValues.size(); i++) {
+                firstColumns.putIfAbsent(firstRowValues.get(i), i);
+            }
+            int[] projectedColumns = headers.stream()
+                                            .distinct()
+                                            .map(firstColumns::get)
+                                            .filter(Objects::nonNull)
+                                            .mapToInt(Integer::intValue)
+                                            .toArray();
+            project(projectedColumns);
+            List<ECell> cells = new ArrayList<>(projectedColumns.length);
+            for (int column : projectedColumns) {
+                cells.add(row.getCell(column));
+            }
+            return new ExcelRow(cells);
+        }
+
+        @Override
+        public ESheet finish(ESheet sheet) {
+            return sheet;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.utils;
+
+import com.twiza.data.Ignore;
+import com.twiza.domain.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+
+/**
+ * Compares all the workbooks of two folders trees(two versions of the same repository),
+ * workbooks are paired by their path relative to the root of each tree.
+ * <p>
+ * The pairs are compared on a bounded pool of threads, and a pair is started only when its estimated
+ * memory fits in the memory budget, so that big workbooks are not all loaded at the same time.
+ * Folders and workbooks listed in {@link Ignore} are skipped, and the ignored sheets are not read.
+ *
+ * @author Mohamed.Chamlal
+ */
+public class ExcelBatchDiff {
+    private static final String EXTENSION_REGEX_PATTERN = "([.][^.]+$)";
+    private static final String DIFF_EXTENSION = ".xlsx";
+    private static final String EXCEL_LOCK_FILE_PREFIX = "~$";
+    private static final List<String> WORKBOOK_EXTENSIONS = Arrays.asList(".xlsx", ".xlsm", ".xls");
+    /**
+     * rough ratio between the heap used to read and compare a workbook and its size on disk.
+     */
+    private static final long HEAP_BYTES_PER_FILE_BYTE = 40;
+    private static final double DEFAULT_MEMORY_BUDGET_RATIO = 0.5;
+    /**
+     * the memory budget is managed in kilobytes, to fit in the permits of a {@link Semaphore}.
+     */
+    private static final int KILOBYTE = 1024;
+
+    private final int threadsNumber;
+    private final long memoryBudget;
+    private final ExcelReader.ReadMode readMode;
+
+    /**
+     * Constructs a batch diff that uses half of the max heap as memory budget.
+     *
+     * @param threadsNumber the maximum number of pairs compared at the same time
+     */
+    public ExcelBatchDiff(int threadsNumber) {
+        this(threadsNumber, (long) (Runtime.getRuntime().maxMemory() * DEFAULT_MEMORY_BUDGET_RATIO),
+             ExcelReader.ReadMode.USER_MODEL);
+    }
+
+    /**
+     * @param threadsNumber the maximum number of pairs compared at the same time
+     * @param memoryBudget  the heap, in bytes, that the pairs being compared can use together
+     * @param readMode      the mode used to read the workbooks
+     * @throws IllegalArgumentException if the threads number or the memory budget are not positive
+     */
+    public ExcelBatchDiff(int threadsNumber, long memoryBudget, ExcelReader.ReadMode readMode) {
+        if (threadsNumber < 1 || memoryBudget < KILOBYTE) {
+            throw new IllegalArgumentException("threads number and memory budget should be positive");
+        }
+        this.threadsNumber = threadsNumber;
+        this.memoryBudget = memoryBudget;
+        this.readMode = Objects.requireNonNull(readMode);
+    }
+
+    /**
+     * Compares the workbooks of the {@code newRoot} tree with the ones of the {@code oldRoot} tree,
+     * and writes a diff workbook for each pair that contains differences into {@code diffRoot},
+     * under the same relative path.
+     * A workbook that exists in one tree only is compared with an empty workbook.
+     *
+     * @param oldRoot  the root folder of the old version
+     * @param newRoot  the root folder of the new version
+     * @param diffRoot the folder where the diff workbooks are written
+     * @return the summary of the comparison of each pair
+     * @throws IOException if one of the trees cannot be walked
+     */
+    public BatchDiffSummary compare(Path oldRoot, Path newRoot, Path diffRoot) throws IOException {
+        SortedSet<Path> relativePaths = new TreeSet<>(listWorkbooks(oldRoot));
+        relativePaths.addAll(listWorkbooks(newRoot));
+        Semaphore memoryPermits = new Semaphore(toPermits(memoryBudget));
+        ExecutorService executor = Executors.newFixedThreadPool(threadsNumber);
+        List<Future<BatchDiffSummary.WorkbookDiff>> diffs = new ArrayList<>(relativePaths.size());
+        try {
+            for (Path relativePath : relativePaths) {
+                Path oldWorkbook = oldRoot.resolve(relativePath);
+                Path newWorkbook = newRoot.resolve(relativePath);
+                int permits = Math.min(toPermits(estimateMemory(oldWorkbook, newWorkbook)), toPermits(memoryBudget));
+                // back-pressure: wait until the pairs being compared release enough memory
+                memoryPermits.acquire(permits);
+                try {
+                    diffs.add(executor.submit(() -> {
+                        try {
+                            return compareWorkbooks(relativePath, oldWorkbook, newWorkbook, diffRoot);
+                        } finally {
+                            memoryPermits.release(permits);
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    memoryPermits.release(permits);
+                    throw e;
+                }
+            }
+            List<BatchDiffSummary.WorkbookDiff> workbookDiffs = new ArrayList<>(diffs.size());
+            for (Future<BatchDiffSummary.WorkbookDiff> diff : diffs) {
+                workbookDiffs.add(diff.get());
+            }
+            return new BatchDiffSummary(workbookDiffs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The batch diff was interrupted");
+        } catch (ExecutionException e) {
+            // compareWorkbooks catches the exceptions of the comparison, only errors can reach here
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private BatchDiffSummary.WorkbookDiff compareWorkbooks(Path relativePath, Path oldWorkbookPath,
+                                                           Path newWorkbookPath, Path diffRoot) {
+        try {
+            EWorkbook oldWorkbook = readWorkbook(oldWorkbookPath);
+            EWorkbook newWorkbook = readWorkbook(newWorkbookPath);
+            EWorkbook diffWorkbook = newWorkbook.compare(oldWorkbook);
+            BatchDiffSummary.WorkbookDiff workbookDiff = summarize(relativePath, diffWorkbook,
+                                                                   Files.exists(oldWorkbookPath),
+                                                                   Files.exists(newWorkbookPath));
+            if (workbookDiff.getStatus() != Status.COMMON) {
+                Path diffPath = diffRoot.resolve(relativePath.toString().replaceAll(EXTENSION_REGEX_PATTERN, DIFF_EXTENSION));
+                Files.createDirectories(diffPath.toAbsolutePath().getParent());
+                ExcelWriter.getInstance().writeToWorkbook(diffPath.toString(), diffWorkbook);
+            }
+            return workbookDiff;
+        } catch (Exception e) {
+            return new BatchDiffSummary.WorkbookDiff(relativePath, e);
+        }
+    }
+
+    /**
+     * Reads the workbook with its first row as headers, a missing workbook is read as an empty one.
+     */
+    private EWorkbook readWorkbook(Path workbookPath) throws IOException {
+        if (!Files.exists(workbookPath)) {
+            return new ExcelWorkbook();
+        }
+        EWorkbook workbook = ExcelReader.getInstance().read(workbookPath, Ignore.getSheets(), false, readMode);
+        workbook.getSheets().values().forEach(eSheet -> eSheet.adoptFirstRowAsHeaders(true));
+        return workbook;
+    }
+
+    private BatchDiffSummary.WorkbookDiff summarize(Path relativePath, EWorkbook diffWorkbook,
+                                                    boolean oldExists, boolean newExists) {
+        long addedRows = 0;
+        long deletedRows = 0;
+        long changedRows = 0;
+        boolean sheetsChanged = false;
+        for (ESheet sheet : diffWorkbook.getSheets().values()) {
+            sheetsChanged |= sheet.getStatus() != Status.NEW;
+            for (ERow row : sheet.getData()) {
+                Status rowStatus = sheet.getStatus() == Status.ADDED || sheet.getStatus() == Status.DELETED
+                                   ? sheet.getStatus() : row.getStatus();
+                if (rowStatus == Status.ADDED) {
+                    addedRows++;
+                } else if (rowStatus == Status.DELETED) {
+                    deletedRows++;
+                } else if (rowStatus == Status.CHANGED) {
+                    changedRows++;
+                }
+            }
+        }
+        Status status;
+        if (!oldExists) {
+            status = Status.ADDED;
+        } else if (!newExists) {
+            status = Status.DELETED;
+        } else if (sheetsChanged || addedRows + deletedRows + changedRows > 0) {
+            status = Status.CHANGED;
+        } else {
+            status = Status.COMMON;
+        }
+        return new BatchDiffSummary.WorkbookDiff(relativePath, status, addedRows, deletedRows, changedRows);
+    }
+
+    /**
+     * Lists the workbooks of a tree, relative to its root, skipping the ignored folders and workbooks.
+     * a pattern is matched against the relative path, and against the name of the folder/workbook.
+     */
+    private List<Path> listWorkbooks(Path root) throws IOException {
+        List<Path> workbooks = new ArrayList<>();
+        if (!Files.isDirectory(root)) {
+            return workbooks;
+        }
+        Ignore.getInstance();
+        Predicate<Path> folderShouldBeIgnored = matchesPathOrName(Ignore.getFolders());
+        Predicate<Path> workbookShouldBeIgnored = matchesPathOrName(Ignore.getWorkbooks());
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                Path relativePath = root.relativize(dir);
+                if (!dir.equals(root) && folderShouldBeIgnored.test(relativePath)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                Path relativePath = root.relativize(file);
+                if (isWorkbook(file) && !workbookShouldBeIgnored.test(relativePath)) {
+                    workbooks.add(relativePath);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return workbooks;
+    }
+
+    private Predicate<Path> matchesPathOrName(List<String> globPatterns) {
+        Predicate<Path> matchesAnyPattern = ExcelReader.matchesAnyPattern(globPatterns);
+        return path -> matchesAnyPattern.test(path) || matchesAnyPattern.test(path.getFileName());
+    }
+
+    private boolean isWorkbook(Path file) {
+        String fileName = file.getFileName().toString();
+        String lowerCaseName = fileName.toLowerCase();
+        return !fileName.startsWith(EXCEL_LOCK_FILE_PREFIX)
+                       && WORKBOOK_EXTENSIONS.stream().anyMatch(lowerCaseName::endsWith);
+    }
+
+    private long estimateMemory(Path oldWorkbook, Path newWorkbook) throws IOException {
+        long filesSize = 0;
+        for (Path workbook : new Path[]{oldWorkbook, newWorkbook}) {
+            if (Files.exists(workbook)) {
+                filesSize += Files.size(workbook);
+            }
+        }
+        return filesSize * HEAP_BYTES_PER_FILE_BYTE;
+    }
+
+    private int toPermits(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, bytes / KILOBYTE));
+    }
+}
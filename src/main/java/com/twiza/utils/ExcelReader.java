@@ -17,18 +17,42 @@
 package com.twiza.utils;
 
 import com.twiza.domain.*;
+import com.twiza.exceptions.HeaderNotMatchingException;
 import com.twiza.exceptions.WorkbookWithInvalidFormatException;
+import com.twiza.metrics.DiffMetrics;
+import com.twiza.metrics.Metrics;
 import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.ooxml.util.SAXHelper;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
+import javax.xml.parsers.ParserConfigurationException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -38,34 +62,80 @@ import java.util.stream.StreamSupport;
  * you can provide sheetsPatterns to be ignored and decide if empty rows should be kept
  */
 public final class ExcelReader {
-    private static final boolean PARALLEL_PROCESSING = false;
     private static final String GLOB_SYNTAX = "glob:";
     private static final String EXTENSION_REGEX_PATTERN = "([.][^.]+$)";
     private static final boolean WORKBOOK_READ_ONLY_MODE = true;
     private static final Logger logger = Logger.getLogger(String.valueOf(ExcelReader.class));
 
     private static final boolean FIRST_ROW_IS_NOT_HEADER = false;
+    /**
+     * by default the sheets of a workbook are read one after the other.
+     */
+    private static final int DEFAULT_SHEETS_PARALLELISM = 1;
+
+    /**
+     * The way the workbook file is parsed.
+     */
+    public enum ReadMode {
+        /**
+         * loads the whole workbook with the POI usermodel, supports all the formats (xls, xlsx).
+         */
+        USER_MODEL,
+        /**
+         * parses the sheets of an xlsx workbook one by one with a SAX parser,
+         * without building the POI usermodel, which keeps the memory used bounded to the read data.
+         * other formats are read with the {@link #USER_MODEL}.
+         */
+        STREAMING
+    }
+
+    /**
+     * The scope in which equal cells values share the same String instance.
+     */
+    public enum ValuesPooling {
+        /**
+         * each cell keeps the String instance created when it's read.
+         */
+        NONE,
+        /**
+         * equal values of the same sheet share one instance, the dictionary is dropped after the sheet is read.
+         */
+        SHEET,
+        /**
+         * equal values of all the sheets of the workbook share one instance.
+         */
+        WORKBOOK
+    }
     /**
      * a static instance of this class to ensure Singleton.
      */
     private static ExcelReader INSTANCE;
     /**
-     * Used to format cells into a String value.
+     * Used to format cells into a String value,
+     * {@link DataFormatter} is not thread safe, so each thread uses its own instance.
      */
-    private final DataFormatter dataFormatterInstance;
+    private final ThreadLocal<DataFormatter> dataFormatterInstance;
 //    /**
 //     * used to evaluate cells values.
 //     */
 //    private FormulaEvaluator formulaEvaluator;
 
-    private boolean keepEmptyRows = false;
+    /**
+     * the maximum number of sheets of the same workbook that are read at the same time.
+     */
+    private volatile int sheetsParallelism = DEFAULT_SHEETS_PARALLELISM;
+
+    /**
+     * the scope of the dictionary of the read values, by default the values are not pooled.
+     */
+    private volatile ValuesPooling valuesPooling = ValuesPooling.NONE;
 
     private ExcelReader() {
-        dataFormatterInstance = new DataFormatter();
+        dataFormatterInstance = ThreadLocal.withInitial(DataFormatter::new);
 
     }
 
-    public static ExcelReader getInstance() {
+    public static synchronized ExcelReader getInstance() {
         if (INSTANCE != null) {
             return INSTANCE;
         }
@@ -73,6 +143,44 @@ public final class ExcelReader {
         return INSTANCE;
     }
 
+    /**
+     * Sets the maximum number of sheets of the same workbook that are read at the same time,
+     * {@code 1} means that the sheets are read one after the other.
+     * Only xlsx workbooks are read in parallel, the other formats are always read sequentially.
+     *
+     * @param sheetsParallelism the maximum number of threads used to read one workbook
+     * @return this {@link ExcelReader}
+     * @throws IllegalArgumentException if {@code sheetsParallelism} is less than 1
+     */
+    public ExcelReader setSheetsParallelism(int sheetsParallelism) {
+        if (sheetsParallelism < 1) {
+            throw new IllegalArgumentException("sheets parallelism should be at least 1, provided: " + sheetsParallelism);
+        }
+        this.sheetsParallelism = sheetsParallelism;
+        return this;
+    }
+
+    public int getSheetsParallelism() {
+        return sheetsParallelism;
+    }
+
+    /**
+     * Sets the scope in which equal cells values are replaced by the same String instance.
+     * Pooling reduces the memory used by sheets with many repeated values,
+     * and makes the comparison of equal values an identity check.
+     *
+     * @param valuesPooling the scope of the values dictionary
+     * @return this {@link ExcelReader}
+     */
+    public ExcelReader setValuesPooling(ValuesPooling valuesPooling) {
+        this.valuesPooling = Objects.requireNonNull(valuesPooling);
+        return this;
+    }
+
+    public ValuesPooling getValuesPooling() {
+        return valuesPooling;
+    }
+
     /**
      * Reads excel workbook and convert it into {@link EWorkbook} instance
      *
@@ -104,11 +212,92 @@ public final class ExcelReader {
      * @throws IOException
      */
     public EWorkbook read(Path workbookPath, List<String> ignoredSheetsPatterns, boolean keepEmptyRows) throws IOException {
-        this.keepEmptyRows = keepEmptyRows;
+        return read(workbookPath, ignoredSheetsPatterns, keepEmptyRows, ReadMode.USER_MODEL);
+    }
+
+    /**
+     * Reads excel workbook and convert it into {@link EWorkbook} instance, using the provided {@link ReadMode}.
+     *
+     * @param workbookPath          the path of the workbook to be read
+     * @param ignoredSheetsPatterns glob patterns of the sheets to ignore
+     * @param keepEmptyRows         whether the empty rows should be kept
+     * @param readMode              the way the workbook is parsed
+     * @return an instance of {@link EWorkbook} that contains the workbook's data
+     * @throws IOException                        if the path provided doesn't exist or is not an excel file.
+     * @throws WorkbookWithInvalidFormatException if the input file is corrupted(files with invalid format)
+     */
+    public EWorkbook read(Path workbookPath, List<String> ignoredSheetsPatterns, boolean keepEmptyRows, ReadMode readMode) throws IOException {
+        return read(new ReadContext(workbookPath, sheetShouldBeRead(ignoredSheetsPatterns, workbookPath), keepEmptyRows,
+                                    valuesPooling, Collections.emptyMap()), readMode);
+    }
+
+    /**
+     * Reads excel workbook and convert it into {@link EWorkbook} instance, applying the templates to the sheets
+     * while they are read: the deleted rows are skipped, the cells of the dropped columns are never read,
+     * and the kept cells are read in the order of the template's headers, see {@link CompiledTemplate}.
+     * <p>
+     * A sheet is read with the first template whose name matches it, the names are glob patterns matched
+     * against {@code workbookName/sheetName} like the ignored sheets patterns, the other sheets are read as they are.
+     *
+     * @param workbookPath          the path of the workbook to be read
+     * @param ignoredSheetsPatterns glob patterns of the sheets to ignore
+     * @param keepEmptyRows         whether the empty rows should be kept, a row is empty if its read cells are blank
+     * @param readMode              the way the workbook is parsed
+     * @param templates             the templates of the sheets, null or empty to read the sheets as they are
+     * @return an instance of {@link EWorkbook} that contains the workbook's data
+     * @throws IOException                        if the path provided doesn't exist or is not an excel file.
+     * @throws WorkbookWithInvalidFormatException if the input file is corrupted(files with invalid format)
+     * @throws HeaderNotMatchingException         if a template with the {@link MatchingPolicy#TEMPLATE_FORCED} policy
+     *                                            has headers that are missing in its sheet
+     */
+    public EWorkbook read(Path workbookPath, List<String> ignoredSheetsPatterns, boolean keepEmptyRows, ReadMode readMode,
+                          List<Template> templates) throws IOException {
+        Map<String, Supplier<RowProjection>> projections = new LinkedHashMap<>();
+        if (templates != null) {
+            templates.forEach(template -> projections.putIfAbsent(template.getName(),
+                                                                  () -> RowProjection.of(template.compile())));
+        }
+        return read(new ReadContext(workbookPath, sheetShouldBeRead(ignoredSheetsPatterns, workbookPath), keepEmptyRows,
+                                    valuesPooling, projections), readMode);
+    }
+
+    /**
+     * Reads excel workbook and convert it into {@link EWorkbook} instance, reading only the projected columns
+     * of the sheets: the cells of the other columns are neither formatted nor stored, so the time and the memory
+     * taken by a wide sheet follow the number of projected columns, see {@link ColumnProjection}.
+     * <p>
+     * A sheet is read with the first projection whose pattern matches it, the patterns are glob patterns matched
+     * against {@code workbookName/sheetName} like the ignored sheets patterns, the other sheets are read entirely.
+     *
+     * @param workbookPath          the path of the workbook to be read
+     * @param ignoredSheetsPatterns glob patterns of the sheets to ignore
+     * @param keepEmptyRows         whether the empty rows should be kept, a row is empty if its projected cells are blank
+     * @param readMode              the way the workbook is parsed
+     * @param columnProjections     the projections of the sheets, by glob pattern, in the order they are matched
+     * @return an instance of {@link EWorkbook} that contains the workbook's data
+     * @throws IOException                        if the path provided doesn't exist or is not an excel file.
+     * @throws WorkbookWithInvalidFormatException if the input file is corrupted(files with invalid format)
+     */
+    public EWorkbook read(Path workbookPath, List<String> ignoredSheetsPatterns, boolean keepEmptyRows, ReadMode readMode,
+                          Map<String, ColumnProjection> columnProjections) throws IOException {
+        Map<String, Supplier<RowProjection>> projections = new LinkedHashMap<>();
+        if (columnProjections != null) {
+            columnProjections.forEach((pattern, projection) -> projections.put(pattern, projection::compile));
+        }
+        return read(new ReadContext(workbookPath, sheetShouldBeRead(ignoredSheetsPatterns, workbookPath), keepEmptyRows,
+                                    valuesPooling, projections), readMode);
+    }
+
+    private EWorkbook read(ReadContext context, ReadMode readMode) throws IOException {
+        Path workbookPath = context.workbookPath;
+        recordBytesRead(workbookPath);
+        if (readMode == ReadMode.STREAMING && FileMagic.valueOf(workbookPath.toFile()) == FileMagic.OOXML) {
+            return readStreaming(context);
+        }
         EWorkbook eWorkbook = null;
         try (Workbook workbook = createWorkbook(workbookPath)) {
 //            formulaEvaluator = workbook.getCreationHelper().createFormulaEvaluator();
-            List<ESheet> eSheets = retrieveSheets(workbook.spliterator(), ignoredSheetsPatterns, workbookPath);
+            List<ESheet> eSheets = retrieveSheets(workbook, context);
             eWorkbook = new ExcelWorkbook(workbookPath, eSheets);
         } catch (FileNotFoundException e) {
             e.printStackTrace();
@@ -120,6 +309,70 @@ public final class ExcelReader {
         return eWorkbook;
     }
 
+    /**
+     * Reads the non empty rows of one sheet, and passes each row to the consumer as soon as it's read,
+     * so the sheet is never held in memory. xlsx workbooks are parsed with the {@link ReadMode#STREAMING} mode,
+     * the other formats are loaded with the {@link ReadMode#USER_MODEL}.
+     * Rows are read at their own width, they are not padded to the width of the widest row.
+     *
+     * @param workbookPath the path of the workbook to be read
+     * @param sheetName    the name of the sheet to read
+     * @param rowConsumer  receives the rows of the sheet, in order
+     * @return {@code true} if the workbook contains the sheet, {@code false} otherwise
+     * @throws IOException                        if the path provided doesn't exist or is not an excel file.
+     * @throws WorkbookWithInvalidFormatException if the input file is corrupted(files with invalid format)
+     */
+    public boolean readRows(Path workbookPath, String sheetName, Consumer<ERow> rowConsumer) throws IOException {
+        Objects.requireNonNull(sheetName);
+        Objects.requireNonNull(rowConsumer);
+        ReadContext context = new ReadContext(workbookPath, sheetName::equals, false, valuesPooling, Collections.emptyMap());
+        recordBytesRead(workbookPath);
+        if (FileMagic.valueOf(workbookPath.toFile()) == FileMagic.OOXML) {
+            return readStreamingRows(context, sheetName, rowConsumer);
+        }
+        try (Workbook workbook = createWorkbook(workbookPath)) {
+            Sheet sheet = workbook.getSheet(sheetName);
+            if (sheet == null) {
+                return false;
+            }
+            DataFormatter dataFormatter = dataFormatterInstance.get();
+            StringPool valuesPool = context.sheetValuesPool();
+            for (Row row : sheet) {
+                ERow eRow = readRow(row, row.getLastCellNum(), context.keepEmptyRows, dataFormatter, valuesPool, null);
+                if (eRow != null) {
+                    rowConsumer.accept(eRow);
+                }
+            }
+            return true;
+        }
+    }
+
+    private boolean readStreamingRows(ReadContext context, String sheetName, Consumer<ERow> rowConsumer) throws IOException {
+        try (OPCPackage workbookPackage = OPCPackage.open(context.workbookPath.toFile(), PackageAccess.READ)) {
+            XSSFReader xssfReader = new XSSFReader(workbookPackage);
+            XSSFReader.SheetIterator sheetIterator = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+            while (sheetIterator.hasNext()) {
+                sheetIterator.next().close();
+                if (!context.sheetShouldBeRead.test(sheetIterator.getSheetName())) {
+                    continue;
+                }
+                StreamingSheetHandler sheetHandler = new StreamingSheetHandler(sheetName, new ReadOnlySharedStringsTable(workbookPackage),
+                                                                               xssfReader.getStylesTable(), dataFormatterInstance.get(),
+                                                                               context.keepEmptyRows, context.sheetValuesPool(),
+                                                                               rowConsumer);
+                try (InputStream sheetStream = sheetIterator.getSheetPart().getInputStream()) {
+                    XMLReader sheetParser = SAXHelper.newXMLReader();
+                    sheetParser.setContentHandler(sheetHandler);
+                    sheetParser.parse(new InputSource(sheetStream));
+                }
+                return true;
+            }
+            return false;
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new WorkbookWithInvalidFormatException("Unable to parse the workbook " + context.workbookPath, e);
+        }
+    }
+
     /**
      * create a workbook in readOnly mode from the specified path
      *
@@ -131,85 +384,346 @@ public final class ExcelReader {
         return WorkbookFactory.create(workbookPath.toFile(), null, WORKBOOK_READ_ONLY_MODE);
     }
 
+    /**
+     * Reads an xlsx workbook sheet by sheet with a SAX parser, the cells are read into the {@link ESheet}
+     * directly, without building the POI usermodel.
+     *
+     * @param context the options of this read
+     * @return an instance of {@link EWorkbook} that contains the workbook's data
+     * @throws IOException                        if the file wasn't found or was enable to be opened.
+     * @throws WorkbookWithInvalidFormatException if the content of the file cannot be parsed
+     */
+    private EWorkbook readStreaming(ReadContext context) throws IOException {
+        Path workbookPath = context.workbookPath;
+        List<ESheet> eSheets;
+        try (OPCPackage workbookPackage = OPCPackage.open(workbookPath.toFile(), PackageAccess.READ)) {
+            XSSFReader xssfReader = new XSSFReader(workbookPackage);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(workbookPackage);
+            StylesTable stylesTable = xssfReader.getStylesTable();
+            XSSFReader.SheetIterator sheetIterator = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+            List<Callable<ESheet>> sheetReaders = new ArrayList<>();
+            while (sheetIterator.hasNext()) {
+                sheetIterator.next().close();// the sheet's part is opened again by its reader
+                String sheetName = sheetIterator.getSheetName();
+                if (!context.sheetShouldBeRead.test(sheetName)) {
+                    continue;
+                }
+                PackagePart sheetPart = sheetIterator.getSheetPart();
+                sheetReaders.add(() -> readStreamingSheet(sheetName, sheetPart, sharedStrings, stylesTable, context,
+                                                          context.compileProjection(sheetName)));
+            }
+            eSheets = readSheets(sheetReaders, sheetsParallelism, workbookPath);
+        } catch (OpenXML4JException | SAXException e) {
+            throw new WorkbookWithInvalidFormatException("Unable to parse the workbook " + workbookPath, e);
+        }
+        return new ExcelWorkbook(workbookPath, eSheets);
+    }
+
+    private ESheet readStreamingSheet(String sheetName, PackagePart sheetPart, ReadOnlySharedStringsTable sharedStrings,
+                                      StylesTable stylesTable, ReadContext context, RowProjection projection)
+            throws IOException, SAXException, ParserConfigurationException {
+        StreamingSheetHandler sheetHandler = new StreamingSheetHandler(sheetName, sharedStrings, stylesTable,
+                                                                       dataFormatterInstance.get(), context.keepEmptyRows,
+                                                                       context.sheetValuesPool(), projection);
+        ESheet eSheet;
+        DiffMetrics metrics = Metrics.get();
+        try (DiffMetrics.Timer ignored = metrics.startTimer(DiffMetrics.Phase.READ_SHEET, sheetName);
+             InputStream sheetStream = sheetPart.getInputStream()) {
+            XMLReader sheetParser = SAXHelper.newXMLReader();
+            sheetParser.setContentHandler(sheetHandler);
+            sheetParser.parse(new InputSource(sheetStream));
+            eSheet = sheetHandler.buildSheet();
+        }
+        recordSheetSize(metrics, eSheet);
+        return eSheet.adoptFirstRowAsHeaders(FIRST_ROW_IS_NOT_HEADER);
+    }
+
 
     //retrieves all the sheets in workbook, after ignoring unnecessary ones
-    private List<ESheet> retrieveSheets(Spliterator<Sheet> sheetSpliterator, List<String> ignoreSheetsPatterns, Path workbookPath) {
-        return StreamSupport.stream(sheetSpliterator, PARALLEL_PROCESSING)
-                            .peek(sheet -> System.out.println("processing sheet " + sheet.getSheetName()))
-                            .filter(sheetShouldBeRead(ignoreSheetsPatterns, workbookPath))
-                            .peek(sheet -> System.out.println("not ignoredSheet " + sheet.getSheetName()))
-                            .map(this::readSheet)
-                            .map(sheet -> sheet.adoptFirstRowAsHeaders(FIRST_ROW_IS_NOT_HEADER))
-                            .collect(Collectors.toCollection(ArrayList::new));
+    private List<ESheet> retrieveSheets(Workbook workbook, ReadContext context) throws IOException {
+        List<Callable<ESheet>> sheetReaders = StreamSupport.stream(workbook.spliterator(), false)
+                                                           .filter(sheet -> context.sheetShouldBeRead.test(sheet.getSheetName()))
+                                                           .map(sheet -> (Callable<ESheet>) () -> readSheet(sheet, context,
+                                                                                                            context.compileProjection(sheet.getSheetName()))
+                                                                   .adoptFirstRowAsHeaders(FIRST_ROW_IS_NOT_HEADER))
+                                                           .collect(Collectors.toCollection(ArrayList::new));
+        // xls cell styles cache the data formats in static fields, so only xlsx sheets can be read concurrently
+        int parallelism = workbook instanceof XSSFWorkbook ? sheetsParallelism : 1;
+        return readSheets(sheetReaders, parallelism, context.workbookPath);
+    }
+
+    /**
+     * Runs the sheet readers, on a pool of at most {@code parallelism} threads,
+     * and returns the sheets in the same order as the readers.
+     *
+     * @param sheetReaders the tasks that read each sheet
+     * @param parallelism  the maximum number of sheets read at the same time
+     * @param workbookPath the path of the workbook being read
+     * @return the read sheets
+     * @throws IOException                        if a sheet cannot be read
+     * @throws WorkbookWithInvalidFormatException if the content of a sheet cannot be parsed
+     */
+    private List<ESheet> readSheets(List<Callable<ESheet>> sheetReaders, int parallelism, Path workbookPath) throws IOException {
+        List<ESheet> eSheets = new ArrayList<>(sheetReaders.size());
+        int threadsNumber = Math.min(parallelism, sheetReaders.size());
+        if (threadsNumber <= 1) {
+            for (Callable<ESheet> sheetReader : sheetReaders) {
+                try {
+                    eSheets.add(sheetReader.call());
+                } catch (Exception e) {
+                    throw sheetReadFailure(e, workbookPath);
+                }
+            }
+            return eSheets;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threadsNumber);
+        try {
+            for (Future<ESheet> sheetFuture : executor.invokeAll(sheetReaders)) {
+                eSheets.add(sheetFuture.get());
+            }
+            return eSheets;
+        } catch (ExecutionException e) {
+            throw sheetReadFailure(e.getCause(), workbookPath);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Reading the workbook " + workbookPath + " was interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
-    private Predicate<Sheet> sheetShouldBeRead(List<String> ignoreSheetsPatterns, Path workbookPath) {
+    /**
+     * Converts the failure of a sheet reader into the exception thrown by {@code read},
+     * unchecked exceptions are thrown as they are.
+     *
+     * @param cause        the failure of the sheet reader
+     * @param workbookPath the path of the workbook being read
+     * @return the {@link IOException} to throw
+     * @throws WorkbookWithInvalidFormatException if the sheet's content cannot be parsed
+     */
+    private IOException sheetReadFailure(Throwable cause, Path workbookPath) {
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new WorkbookWithInvalidFormatException("Unable to parse the workbook " + workbookPath, cause);
+    }
+
+    private Predicate<String> sheetShouldBeRead(List<String> ignoreSheetsPatterns, Path workbookPath) {
         return sheetShouldBeIgnored(ignoreSheetsPatterns, workbookPath).negate();
     }
 
     //idea: is it possible to use git check-ignore to verify if a sheet/workbook/folder should be ignore ??
-    private Predicate<Sheet> sheetShouldBeIgnored(List<String> ignoreSheetsPatterns, Path workbookPath) {
+    private Predicate<String> sheetShouldBeIgnored(List<String> ignoreSheetsPatterns, Path workbookPath) {
+        if (ignoreSheetsPatterns == null || ignoreSheetsPatterns.isEmpty()) {
+            return sheetName -> false;
+        }
+        Predicate<Path> matchesIgnorePattern = matchesAnyPattern(ignoreSheetsPatterns);
+        // patterns will be in the form of workbookPath/sheetName( a global sheet should start with |)
+        return sheetName -> matchesIgnorePattern.test(buildSheetPath(workbookPath, sheetName));
+    }
+
+    /**
+     * Builds a predicate that checks if a path matches any of the provided glob patterns.
+     *
+     * @param globPatterns the patterns, in glob syntax, null is considered as an empty list
+     * @return a predicate that returns {@code true} if the path matches at least one pattern
+     */
+    static Predicate<Path> matchesAnyPattern(List<String> globPatterns) {
         FileSystem defaultFileSystem = FileSystems.getDefault();
-        return sheet -> Optional.ofNullable(ignoreSheetsPatterns).orElseGet(ArrayList::new)
-                                .stream()
-                                .map(patternString -> GLOB_SYNTAX + patternString)// use glob syntax for matching
-                                .map(defaultFileSystem::getPathMatcher)
-                                .anyMatch(pathMatcher -> pathMatcher.matches(buildSheetPath(workbookPath, sheet.getSheetName())));// patterns will be in the form of workbookPath/sheetName( a global sheet should start with |)
+        List<PathMatcher> pathMatchers = Optional.ofNullable(globPatterns).orElseGet(ArrayList::new)
+                                                 .stream()
+                                                 .map(patternString -> GLOB_SYNTAX + patternString)// use glob syntax for matching
+                                                 .map(defaultFileSystem::getPathMatcher)
+                                                 .collect(Collectors.toList());
         //using anyMatch and apply negate() is more efficient than using noneMatch, because then it will traverse through the entire stream before returning a result.
-
+        return path -> pathMatchers.stream().anyMatch(pathMatcher -> pathMatcher.matches(path));
     }
 
-    private Path buildSheetPath(Path workbookPath, String sheetName) {
+    private static Path buildSheetPath(Path workbookPath, String sheetName) {
         String workbookName = workbookPath.getFileName().toString().replaceAll(EXTENSION_REGEX_PATTERN, "");
         return Paths.get(workbookName, sheetName);
     }
 
 
     /**
-     * Reads all sheet's non empty rows and return an instance of {@code ESheet}
+     * Reads all sheet's non empty rows and return an instance of {@code ESheet}.
+     * the sheet is traversed once, each row is read at its own width then padded with blanks
+     * to the width of the widest row.
      *
-     * @param sheet the sheet to be read
+     * @param sheet    the sheet to be read
+     * @param projection the projection of the sheet's rows, null to read the rows as they are
      * @return an {@code ESheet} that contains all the rows of the sheet( non empty rows only)
      */
-    private ESheet readSheet(Sheet sheet) {
-        ESheet eSheet = new ExcelSheet(sheet.getSheetName());
-        // get the max number of cells in all rows -> column number
-        int maxCellsNumber = StreamSupport.stream(sheet.spliterator(), false)
-                                          .mapToInt(Row::getLastCellNum)
-                                          .max().orElse(0);
-        StreamSupport.stream(sheet.spliterator(), false)
-                     .filter(this::isNotEmptyRow)
-                     .forEach(row -> eSheet.addRow(readRow(row, maxCellsNumber)));
+    private ESheet readSheet(Sheet sheet, ReadContext context, RowProjection projection) {
+        DataFormatter dataFormatter = dataFormatterInstance.get();
+        StringPool valuesPool = context.sheetValuesPool();
+        DiffMetrics metrics = Metrics.get();
+        // timing each cell costs more than formatting some of them, so it's only done when the metrics are recorded
+        FormatDuration formatDuration = metrics.isEnabled() ? new FormatDuration() : null;
+        ESheet eSheet;
+        try (DiffMetrics.Timer ignored = metrics.startTimer(DiffMetrics.Phase.READ_SHEET, sheet.getSheetName())) {
+            List<ERow> rows = new ArrayList<>(sheet.getPhysicalNumberOfRows());
+            // the max number of cells in all rows -> column number
+            int maxCellsNumber = 0;
+            for (Row row : sheet) {
+                if (projection != null && projection.skipsRow(row.getRowNum())) {
+                    continue;
+                }
+                int lastCellNumber = row.getLastCellNum();
+                maxCellsNumber = Math.max(maxCellsNumber, lastCellNumber);
+                ERow eRow = projection == null
+                        ? readRow(row, lastCellNumber, context.keepEmptyRows, dataFormatter, valuesPool, formatDuration)
+                        : readRow(row, lastCellNumber, projection, context.keepEmptyRows, dataFormatter, valuesPool, formatDuration);
+                if (eRow != null && projection != null) {
+                    eRow = projection.accept(eRow);
+                }
+                if (eRow != null) {
+                    rows.add(eRow);
+                }
+            }
+            if (projection == null) {
+                eSheet = buildSheet(sheet.getSheetName(), rows, maxCellsNumber);
+            } else {
+                eSheet = projection.finish(buildSheet(sheet.getSheetName(), rows, projection.getWidth(maxCellsNumber)));
+            }
+        }
+        if (formatDuration != null) {
+            metrics.recordDuration(DiffMetrics.Phase.FORMAT_CELLS, sheet.getSheetName(), formatDuration.nanos);
+        }
+        recordSheetSize(metrics, eSheet);
         return eSheet;
     }
 
+    private static void recordSheetSize(DiffMetrics metrics, ESheet eSheet) {
+        metrics.increment(DiffMetrics.Counter.ROWS_READ, eSheet.getName(), eSheet.getRowsNumber());
+        metrics.increment(DiffMetrics.Counter.CELLS_READ, eSheet.getName(),
+                          (long) eSheet.getRowsNumber() * eSheet.getColumnsNumber());
+    }
+
+    private static void recordBytesRead(Path workbookPath) {
+        DiffMetrics metrics = Metrics.get();
+        if (!metrics.isEnabled() || !Files.isRegularFile(workbookPath)) {
+            return;
+        }
+        try {
+            metrics.increment(DiffMetrics.Counter.BYTES_READ, null, Files.size(workbookPath));
+        } catch (IOException e) {
+            // the size is only a metric, the read reports the file's errors
+        }
+    }
+
     /**
-     * checks if a row contains only null or empty cells, used ti ignore empty rows during reading
+     * Builds a sheet from rows having different sizes, short rows are padded with blanks
+     * to have the same number of cells as the widest row.
      *
-     * @param row the row to check
-     * @return {@code true} if all cells are null or empty, {@code false} otherwise
+     * @param sheetName      the name of the sheet
+     * @param rows           the rows of the sheet
+     * @param maxCellsNumber the number of cells of the widest row
+     * @return an {@code ESheet} that contains the provided rows
      */
-    private boolean isNotEmptyRow(Row row) {
-        return keepEmptyRows || StreamSupport.stream(row.spliterator(), false)
-                                             .anyMatch(cell -> cell != null && cell.getCellType() != CellType.BLANK);
+    static ESheet buildSheet(String sheetName, List<ERow> rows, int maxCellsNumber) {
+        ESheet eSheet = new ExcelSheet(sheetName);
+        for (ERow row : rows) {
+            for (int i = row.getSize(); i < maxCellsNumber; i++) {
+                row.addCell(new ExcelCell(""));
+            }
+            eSheet.addRow(row);
+        }
+        return eSheet;
     }
 
-    private ERow readRow(Row row, int maxCellsNumber) {
+    /**
+     * Reads the cells of a row up to {@code lastCellNumber}, missing cells are read as blanks.
+     *
+     * @param row            the row to read
+     * @param lastCellNumber the number of cells to read
+     * @param keepEmptyRows  whether empty rows should be kept
+     * @param dataFormatter  the formatter of the cells values
+     * @param valuesPool     the dictionary of the read values, {@code null} if the values are not pooled
+     * @param formatDuration accumulates the time spent formatting the cells, {@code null} if it's not timed
+     * @return the read row, {@code null} if the row contains only null or blank cells and empty rows are not kept
+     */
+    private ERow readRow(Row row, int lastCellNumber, boolean keepEmptyRows, DataFormatter dataFormatter,
+                         StringPool valuesPool, FormatDuration formatDuration) {
         Objects.requireNonNull(row);
         ERow eRow = new ExcelRow();
+        boolean isEmptyRow = true;
         int firstCellPosition = 0;
-        for (int i = firstCellPosition; i < maxCellsNumber; i++) {
-            eRow.addCell(readCell(row.getCell(i, Row.MissingCellPolicy.CREATE_NULL_AS_BLANK)));
+        for (int i = firstCellPosition; i < lastCellNumber; i++) {
+            Cell cell = row.getCell(i, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
+            if (cell == null) {
+                eRow.addCell(new ExcelCell(""));
+            } else {
+                isEmptyRow = false;
+                if (formatDuration == null) {
+                    eRow.addCell(readCell(cell, dataFormatter, valuesPool));
+                } else {
+                    long start = System.nanoTime();
+                    eRow.addCell(readCell(cell, dataFormatter, valuesPool));
+                    formatDuration.nanos += System.nanoTime() - start;
+                }
+            }
+        }
+        return isEmptyRow && !keepEmptyRows ? null : eRow;
+    }
+
+    /**
+     * Reads the cells of a row that are kept by the projection, at their position in the read row,
+     * the cells of the dropped columns are not read, and the kept cells missing in the row are read as blanks.
+     *
+     * @param row            the row to read
+     * @param lastCellNumber the number of cells of the row in the sheet
+     * @param projection     the projection that gives the position of each cell in the read row
+     * @param keepEmptyRows  whether empty rows should be kept
+     * @param dataFormatter  the formatter of the cells values
+     * @param valuesPool     the dictionary of the read values, {@code null} if the values are not pooled
+     * @param formatDuration accumulates the time spent formatting the cells, {@code null} if it's not timed
+     * @return the read row, {@code null} if the kept cells are all blank and empty rows are not kept
+     */
+    private ERow readRow(Row row, int lastCellNumber, RowProjection projection, boolean keepEmptyRows,
+                         DataFormatter dataFormatter, StringPool valuesPool, FormatDuration formatDuration) {
+        ECell[] cells = new ECell[projection.getWidth(lastCellNumber)];
+        boolean isEmptyRow = true;
+        for (int i = 0; i < lastCellNumber; i++) {
+            int position = projection.getPosition(i);
+            if (position == RowProjection.DROPPED) {
+                continue;
+            }
+            Cell cell = row.getCell(i, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
+            if (cell != null) {
+                isEmptyRow = false;
+                if (formatDuration == null) {
+                    cells[position] = readCell(cell, dataFormatter, valuesPool);
+                } else {
+                    long start = System.nanoTime();
+                    cells[position] = readCell(cell, dataFormatter, valuesPool);
+                    formatDuration.nanos += System.nanoTime() - start;
+                }
+            }
         }
-        return eRow;
+        if (isEmptyRow && !keepEmptyRows) {
+            return null;
+        }
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] == null) {
+                cells[i] = new ExcelCell("");
+            }
+        }
+        return new ExcelRow(Arrays.asList(cells));
     }
 
-    private ECell readCell(Cell cell) {
+    private ECell readCell(Cell cell, DataFormatter dataFormatter, StringPool valuesPool) {
         Objects.requireNonNull(cell);
         //evaluate the cell value.
         //formulaEvaluator.evaluate(cell);
         //String value = dataFormatterInstance.formatCellValue(cell, formulaEvaluator);
-        //String value = dataFormatterInstance.formatCellValue(cell);
+        //String value = dataFormatter.formatCellValue(cell);
         String value;
         if (cell.getCellType() == CellType.FORMULA) {
             switch (cell.getCachedFormulaResultType()) {
@@ -226,13 +740,79 @@ public final class ExcelReader {
                     value = String.valueOf(cell.getRichStringCellValue());
                     break;
                 default:
-                    value = dataFormatterInstance.formatCellValue(cell);
+                    value = dataFormatter.formatCellValue(cell);
             }
         } else {
-            value = dataFormatterInstance.formatCellValue(cell);
+            value = dataFormatter.formatCellValue(cell);
         }
 
-        return new ExcelCell(value);
+        return new ExcelCell(valuesPool == null ? value : valuesPool.pool(value));
+    }
+
+    /**
+     * The time spent formatting the cells of the sheet being read, each sheet is read by a single thread.
+     */
+    private static final class FormatDuration {
+        private long nanos;
+    }
+
+    /**
+     * The options of one call to {@code read}, kept out of the reader's fields so that
+     * concurrent reads don't share any state.
+     */
+    private static final class ReadContext {
+        private final Path workbookPath;
+        private final Predicate<String> sheetShouldBeRead;
+        private final boolean keepEmptyRows;
+        private final ValuesPooling valuesPooling;
+        private final StringPool workbookValuesPool;
+        private final List<Supplier<RowProjection>> projections;
+        private final List<Predicate<Path>> projectionsMatchers;
+
+        /**
+         * @param projections the projections of the sheets by glob pattern, in the order they are matched
+         */
+        private ReadContext(Path workbookPath, Predicate<String> sheetShouldBeRead, boolean keepEmptyRows,
+                            ValuesPooling valuesPooling, Map<String, Supplier<RowProjection>> projections) {
+            this.workbookPath = workbookPath;
+            this.sheetShouldBeRead = sheetShouldBeRead;
+            this.keepEmptyRows = keepEmptyRows;
+            this.valuesPooling = valuesPooling;
+            this.workbookValuesPool = valuesPooling == ValuesPooling.WORKBOOK ? new StringPool() : null;
+            this.projections = new ArrayList<>(projections.values());
+            this.projectionsMatchers = projections.keySet().stream()
+                                                  .map(pattern -> matchesAnyPattern(Collections.singletonList(pattern)))
+                                                  .collect(Collectors.toList());
+        }
+
+        /**
+         * Compiles the first projection that matches the sheet, a new {@link RowProjection} for each sheet.
+         *
+         * @param sheetName the name of the sheet to read
+         * @return the projection of the sheet, {@code null} if no projection matches the sheet
+         */
+        private RowProjection compileProjection(String sheetName) {
+            if (projections.isEmpty()) {
+                return null;
+            }
+            Path sheetPath = buildSheetPath(workbookPath, sheetName);
+            for (int i = 0; i < projections.size(); i++) {
+                if (projectionsMatchers.get(i).test(sheetPath)) {
+                    return projections.get(i).get();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the dictionary to use for the values of a sheet, a new one for each sheet
+         * if the values are pooled per sheet.
+         *
+         * @return the dictionary of the sheet's values, {@code null} if the values are not pooled
+         */
+        private StringPool sheetValuesPool() {
+            return valuesPooling == ValuesPooling.SHEET ? new StringPool() : workbookValuesPool;
+        }
     }
 
 }
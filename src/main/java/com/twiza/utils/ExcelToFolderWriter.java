@@ -16,15 +16,36 @@
 
 package com.twiza.utils;
 
+import com.twiza.domain.ERow;
+import com.twiza.domain.ESheet;
 import com.twiza.domain.EWorkbook;
+import com.twiza.domain.Status;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
+ * Writes each sheet of a workbook to a file of a folder named after the workbook.
+ * <p>
+ * The sheets are written concurrently on a pool of at most {@link #getSheetsParallelism()} threads,
+ * each through its own buffered channel, and a sheet that cannot be written doesn't stop the others:
+ * the failures are reported per sheet in the returned {@link FolderExportSummary}.
+ * <p>
+ * {@link #exportIncrementally(EWorkbook, Format)} keeps a manifest of the hashes of the sheets files in the folder,
+ * and only rewrites the files of the changed sheets.
+ *
  * @author Mohamed.Chamlal, 25/11/2020
  */
 //IDEA: use this class to convert excel files into folder with sheets as text file
@@ -36,11 +57,49 @@ public class ExcelToFolderWriter {
     private static ExcelToFolderWriter INSTANCE;
 
     private static final String EXTENSION_REGEX_PATTERN = "([.][^.]+$)";
+    private static final int TEXT_BUFFER_SIZE = 256 * 1024;
+    private static final char VALUES_SEPARATOR = '\t';
+    private static final char ROWS_SEPARATOR = '\n';
+    /**
+     * the file of the folder that holds a line per sheet file: the hash of its content, a tab, then its name.
+     */
+    static final String MANIFEST_FILE_NAME = ".manifest";
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    /**
+     * the maximum number of sheets written at the same time.
+     */
+    private volatile int sheetsParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The format of the sheets files:
+     * <ul>
+     * <li>{@code TEXT}: a {@code .txt} file per sheet, with a line per row and tab separated values,
+     * values that contain tabs or line breaks cannot be read back.</li>
+     * <li>{@code BINARY}: a {@code .bin} file per sheet, in a versioned binary form where the values are stored
+     * column by column in a dictionary, with the headers, key indexes and status of the sheet,
+     * every value is read back as it was written.</li>
+     * </ul>
+     */
+    public enum Format {
+        TEXT(".txt"),
+        BINARY(".bin");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
 
     private ExcelToFolderWriter() {
     }
 
-    public static ExcelToFolderWriter getInstance() {
+    public static synchronized ExcelToFolderWriter getInstance() {
         if (INSTANCE != null) {
             return INSTANCE;
         }
@@ -48,45 +107,313 @@ public class ExcelToFolderWriter {
         return INSTANCE;
     }
 
+    /**
+     * Sets the maximum number of sheets written at the same time, {@code 1} writes them one after the other.
+     *
+     * @param sheetsParallelism the maximum number of threads used to write one workbook
+     * @return this {@link ExcelToFolderWriter}
+     * @throws IllegalArgumentException if {@code sheetsParallelism} is less than 1
+     */
+    public ExcelToFolderWriter setSheetsParallelism(int sheetsParallelism) {
+        if (sheetsParallelism < 1) {
+            throw new IllegalArgumentException("sheets parallelism should be at least 1, provided: " + sheetsParallelism);
+        }
+        this.sheetsParallelism = sheetsParallelism;
+        return this;
+    }
+
+    public int getSheetsParallelism() {
+        return sheetsParallelism;
+    }
+
     public boolean write(EWorkbook workbook) throws IOException {
+        return write(workbook, Format.TEXT);
+    }
+
+    /**
+     * Writes each sheet of the workbook to a file of a folder named after the workbook, in the provided format.
+     *
+     * @param workbook the workbook to write
+     * @param format   the format of the sheets files
+     * @return {@code true} if all the sheets are written, {@link #export(EWorkbook, Format)} tells which sheets failed
+     * @throws IOException if the folder cannot be created
+     */
+    public boolean write(EWorkbook workbook, Format format) throws IOException {
+        return export(workbook, format).countFailures() == 0;
+    }
+
+    /**
+     * Writes each sheet of the workbook to a file of a folder named after the workbook, in the provided format,
+     * a sheet that fails to be written is reported in the summary, and doesn't stop the other sheets.
+     *
+     * @param workbook the workbook to write
+     * @param format   the format of the sheets files
+     * @return the file or the failure of each sheet, in the order of the workbook's sheets
+     * @throws IOException            if the folder cannot be created
+     * @throws InterruptedIOException if the thread is interrupted while the sheets are written
+     */
+    public FolderExportSummary export(EWorkbook workbook, Format format) throws IOException {
+        Objects.requireNonNull(workbook);
+        Objects.requireNonNull(format);
         Path workbookPath = getWorkbookPath(workbook.getWorkbookPath());
-        workbookPath.toFile().mkdirs();
-        workbook.getSheets().values().forEach(sheet -> {
-            FileWriter writer = null;
-            try {
-                File output = Paths.get(workbookPath.toString(), sheet.getName() + ".txt").toFile();
-                writer = new FileWriter(output);
+        Files.createDirectories(workbookPath);
+        List<Callable<FolderExportSummary.SheetExport>> sheetWriters = new ArrayList<>();
+        for (ESheet sheet : workbook.getSheets().values()) {
+            Path output = workbookPath.resolve(sheet.getName() + format.extension);
+            sheetWriters.add(() -> exportSheet(sheet, output, format));
+        }
+        return new FolderExportSummary(workbookPath, runSheetWriters(sheetWriters, workbookPath));
+    }
 
-                if (sheet.getHeaders() != null) {
-                    writer.write(String.join("\t", sheet.getHeaders()) + "\n");
-                }
-                FileWriter finalWriter = writer;
-                sheet.getData().forEach(row -> {
-                    try {
-                        finalWriter.write(String.join("\t", row.getCellsValues()) + "\n");
-                    } catch (IOException e) {
-                        e.printStackTrace();
+    /**
+     * Writes the sheets of the workbook like {@link #export(EWorkbook, Format)}, but only the files of the sheets
+     * that changed since the last incremental export to the same folder: the content of each sheet is hashed as it
+     * would be written, and the file is rewritten only if the hash differs from the one of the folder's manifest,
+     * or if the file is missing. The files of the manifest that don't belong to a sheet of the workbook anymore,
+     * removed sheets or sheets exported in another format, are deleted.
+     * <p>
+     * The manifest is replaced once the sheets are written, the failed sheets are left out of it,
+     * so they are written again by the next export. A missing or unreadable manifest rewrites every sheet.
+     *
+     * @param workbook the workbook to write
+     * @param format   the format of the sheets files
+     * @return the status, {@code ADDED}, {@code CHANGED}, {@code COMMON} or {@code DELETED}, or the failure of each
+     * sheet file, in the order of the workbook's sheets followed by the deleted files
+     * @throws IOException            if the folder cannot be created, or the manifest cannot be written
+     * @throws InterruptedIOException if the thread is interrupted while the sheets are written
+     */
+    public FolderExportSummary exportIncrementally(EWorkbook workbook, Format format) throws IOException {
+        Objects.requireNonNull(workbook);
+        Objects.requireNonNull(format);
+        Path workbookPath = getWorkbookPath(workbook.getWorkbookPath());
+        Files.createDirectories(workbookPath);
+        Path manifestPath = workbookPath.resolve(MANIFEST_FILE_NAME);
+        Map<String, String> previousHashes = readManifest(manifestPath);
+        Map<String, String> hashes = new ConcurrentHashMap<>();
+        Set<String> fileNames = new HashSet<>();
+        List<Callable<FolderExportSummary.SheetExport>> sheetWriters = new ArrayList<>();
+        for (ESheet sheet : workbook.getSheets().values()) {
+            String fileName = sheet.getName() + format.extension;
+            fileNames.add(fileName);
+            Path output = workbookPath.resolve(fileName);
+            sheetWriters.add(() -> {
+                try {
+                    String hash = hashSheet(sheet, format);
+                    FolderExportSummary.SheetExport sheetExport;
+                    if (hash.equals(previousHashes.get(fileName)) && Files.isRegularFile(output)) {
+                        sheetExport = new FolderExportSummary.SheetExport(sheet.getName(), output, Status.COMMON, 0);
+                    } else {
+                        sheetExport = exportSheet(sheet, output, format);
+                    }
+                    if (!sheetExport.isFailed()) {
+                        hashes.put(fileName, hash);
                     }
-                });
+                    return sheetExport;
+                } catch (IOException | RuntimeException e) {
+                    return new FolderExportSummary.SheetExport(sheet.getName(), output, e);
+                }
+            });
+        }
+        List<FolderExportSummary.SheetExport> sheetExports = runSheetWriters(sheetWriters, workbookPath);
 
+        for (String fileName : previousHashes.keySet()) {
+            if (fileNames.contains(fileName)) {
+                continue;
+            }
+            Path removed = workbookPath.resolve(fileName).normalize();
+            if (!workbookPath.normalize().equals(removed.getParent())) {
+                // not a file of this folder, the manifest was edited by hand
+                continue;
+            }
+            String sheetName = fileName.replaceAll(EXTENSION_REGEX_PATTERN, "");
+            try {
+                Files.deleteIfExists(removed);
+                sheetExports.add(new FolderExportSummary.SheetExport(sheetName, removed, Status.DELETED, 0));
             } catch (IOException e) {
-                e.printStackTrace();
-            } finally {
-                if (writer != null) {
-                    try {
-                        writer.close();
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
+                // kept in the manifest, so the deletion is tried again by the next export
+                hashes.put(fileName, previousHashes.get(fileName));
+                sheetExports.add(new FolderExportSummary.SheetExport(sheetName, removed, e));
+            }
+        }
+        writeManifest(manifestPath, hashes);
+        return new FolderExportSummary(workbookPath, sheetExports);
+    }
+
+    private List<FolderExportSummary.SheetExport> runSheetWriters(List<Callable<FolderExportSummary.SheetExport>> sheetWriters,
+                                                                  Path workbookPath) throws IOException {
+        List<FolderExportSummary.SheetExport> sheetExports = new ArrayList<>(sheetWriters.size());
+        int threadsNumber = Math.min(sheetsParallelism, sheetWriters.size());
+        if (threadsNumber <= 1) {
+            for (Callable<FolderExportSummary.SheetExport> sheetWriter : sheetWriters) {
+                try {
+                    sheetExports.add(sheetWriter.call());
+                } catch (Exception e) {
+                    // the sheet writers report their own failures
+                    throw new IllegalStateException(e);
                 }
+            }
+            return sheetExports;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threadsNumber);
+        try {
+            for (Future<FolderExportSummary.SheetExport> sheetExport : executor.invokeAll(sheetWriters)) {
+                sheetExports.add(sheetExport.get());
+            }
+            return sheetExports;
+        } catch (ExecutionException e) {
+            // the sheet writers report their own failures
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Writing the workbook " + workbookPath + " was interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private FolderExportSummary.SheetExport exportSheet(ESheet sheet, Path output, Format format) {
+        Status status = Files.exists(output) ? Status.CHANGED : Status.ADDED;
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeSheet(sheet, channel, format);
+            return new FolderExportSummary.SheetExport(sheet.getName(), output, status, channel.size());
+        } catch (IOException | RuntimeException e) {
+            return new FolderExportSummary.SheetExport(sheet.getName(), output, e);
+        }
+    }
+
+    private void writeSheet(ESheet sheet, WritableByteChannel channel, Format format) throws IOException {
+        if (format == Format.BINARY) {
+            SheetCodec.write(sheet, channel);
+        } else {
+            writeText(sheet, channel);
+        }
+    }
+
+    /**
+     * Hashes the bytes the sheet's file would hold, without writing them.
+     */
+    private String hashSheet(ESheet sheet, Format format) throws IOException {
+        DigestChannel channel = new DigestChannel();
+        writeSheet(sheet, channel, format);
+        StringBuilder hash = new StringBuilder();
+        for (byte hashByte : channel.digest.digest()) {
+            hash.append(Character.forDigit((hashByte >> 4) & 0xF, 16)).append(Character.forDigit(hashByte & 0xF, 16));
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Reads the hash of each file of the manifest, the malformed lines are skipped,
+     * so their files are rewritten.
+     */
+    private Map<String, String> readManifest(Path manifestPath) {
+        Map<String, String> hashes = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(manifestPath, StandardCharsets.UTF_8)) {
+                int separator = line.indexOf(VALUES_SEPARATOR);
+                if (separator > 0 && separator < line.length() - 1) {
+                    hashes.put(line.substring(separator + 1), line.substring(0, separator));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // first incremental export to this folder
+        } catch (IOException e) {
+            // an unreadable manifest only costs a full export
+            hashes.clear();
+        }
+        return hashes;
+    }
+
+    /**
+     * Writes the manifest to a temporary file of the folder, then moves it to its name,
+     * so a stopped export never leaves a partial manifest.
+     */
+    private void writeManifest(Path manifestPath, Map<String, String> hashes) throws IOException {
+        StringBuilder manifest = new StringBuilder();
+        new TreeMap<>(hashes).forEach((fileName, hash) -> manifest.append(hash).append(VALUES_SEPARATOR)
+                                                                  .append(fileName).append(ROWS_SEPARATOR));
+        Path tempPath = Files.createTempFile(manifestPath.getParent(), MANIFEST_FILE_NAME, ".tmp");
+        try {
+            Files.write(tempPath, manifest.toString().getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(tempPath, manifestPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
 
+    /**
+     * Writes the headers and the rows of the sheet as UTF-8 lines of tab separated values,
+     * the values are copied to the buffer one by one, without building a string per row.
+     */
+    private void writeText(ESheet sheet, WritableByteChannel channel) throws IOException {
+        // the writer is not closed, so the channel stays open to be closed by its owner
+        Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), TEXT_BUFFER_SIZE),
+                                           TEXT_BUFFER_SIZE);
+        if (sheet.getHeaders() != null) {
+            writeValues(writer, sheet.getHeaders());
+        }
+        for (ERow row : sheet.getData()) {
+            int size = row.getSize();
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    writer.write(VALUES_SEPARATOR);
+                }
+                writer.write(row.getCell(i).getValue());
             }
-        });
-        return true;
+            writer.write(ROWS_SEPARATOR);
+        }
+        writer.flush();
+    }
+
+    private void writeValues(Writer writer, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(VALUES_SEPARATOR);
+            }
+            writer.write(values.get(i));
+        }
+        writer.write(ROWS_SEPARATOR);
     }
 
     private Path getWorkbookPath(Path workbookPath) {
         String workbookName = workbookPath.toString().replaceAll(EXTENSION_REGEX_PATTERN, "");
         return Paths.get(workbookName);
     }
+
+    /**
+     * A channel that feeds the written bytes to a digest instead of storing them.
+     */
+    private static final class DigestChannel implements WritableByteChannel {
+        private final MessageDigest digest;
+
+        private DigestChannel() {
+            try {
+                digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                // every Java platform supports SHA-256
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            int length = source.remaining();
+            digest.update(source);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 }
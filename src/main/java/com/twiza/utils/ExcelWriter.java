@@ -17,12 +17,19 @@
 package com.twiza.utils;
 
 import com.twiza.domain.*;
+import com.twiza.metrics.DiffMetrics;
+import com.twiza.metrics.Metrics;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.*;
 
 import java.awt.Color;
+import java.io.Closeable;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -32,20 +39,27 @@ public class ExcelWriter {
      * a static instance of this class to ensure Singleton.
      */
     private static ExcelWriter INSTANCE;
-    private CellStyle cellStyle;
-    private CellStyle headerCellStyle;
-    private CellStyle changedCellStyle;
-    private CellStyle addedRowStyle;
-    private CellStyle deletedRowStyle;
-    private CellStyle changedRowStyle;
-    private CellStyle defaultRowStyle;
+    /**
+     * the number of rows kept in memory by the {@code WriteMode.STREAMING} mode, older rows are flushed to disk.
+     */
+    private volatile int rowAccessWindowSize = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
 
-    private IndexedColorMap colorMap;
+    /**
+     * The way a workbook is built before being written:
+     * <ul>
+     * <li>{@code IN_MEMORY}: the whole workbook is built in memory, then written.</li>
+     * <li>{@code STREAMING}: only a window of rows per sheet is kept in memory, the other rows are flushed
+     * to temporary files, so the memory used doesn't depend on the sheets sizes.</li>
+     * </ul>
+     */
+    public enum WriteMode {
+        IN_MEMORY, STREAMING
+    }
 
     private ExcelWriter() {
     }
 
-    public static ExcelWriter getInstance() {
+    public static synchronized ExcelWriter getInstance() {
         if (INSTANCE != null) {
             return INSTANCE;
         }
@@ -54,37 +68,108 @@ public class ExcelWriter {
     }
 
     public void writeToWorkbook(String workbookPath, EWorkbook eWorkbook) throws IOException {
+        writeToWorkbook(workbookPath, eWorkbook, WriteMode.IN_MEMORY);
+    }
+
+    /**
+     * Writes the workbook to an xlsx file, coloring the sheets, rows and cells based on their status,
+     * and adding the changes history of the changed cells as comments.
+     *
+     * @param workbookPath the path of the xlsx file
+     * @param eWorkbook    the workbook to write
+     * @param writeMode    the way the workbook is built before being written
+     * @throws IOException if the file cannot be written
+     */
+    public void writeToWorkbook(String workbookPath, EWorkbook eWorkbook, WriteMode writeMode) throws IOException {
         Objects.requireNonNull(eWorkbook, "cannot write a null workbook to Excel");
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        colorMap = workbook.getStylesSource().getIndexedColors();
-        setUpStyles(workbook);
-        for (ESheet eSheet : eWorkbook.getSheets().values()) {
-            XSSFSheet sheet = workbook.createSheet(eSheet.getName());
-            setSheetTabColor(sheet, eSheet);
-            AtomicInteger rowIndex = new AtomicInteger(0);
-            if (eSheet.getHeaders() != null && !eSheet.getHeaders().isEmpty()){
-                writeHeadersToSheet(eSheet.getHeaders(), sheet, rowIndex.getAndIncrement());
+        XSSFWorkbook xssfWorkbook = new XSSFWorkbook();
+        WorkbookStyles styles = new WorkbookStyles(xssfWorkbook);
+        if (writeMode == WriteMode.STREAMING) {
+            SXSSFWorkbook workbook = new SXSSFWorkbook(xssfWorkbook, rowAccessWindowSize);
+            try {
+                writeSheets(workbook, eWorkbook, styles);
+                save(workbook, workbookPath);
+            } finally {
+                workbook.dispose();
+                workbook.close();
+            }
+        } else {
+            try {
+                writeSheets(xssfWorkbook, eWorkbook, styles);
+                save(xssfWorkbook, workbookPath);
+            } finally {
+                xssfWorkbook.close();
             }
-            eSheet.getData().forEach(row -> writeERowToSheet(row, sheet, rowIndex.getAndIncrement()));
         }
-        FileOutputStream outputStream = new FileOutputStream(workbookPath);
-        workbook.write(outputStream);
-        outputStream.close();
-        workbook.close();
     }
 
-    private void setUpStyles(Workbook workbook) {
-        headerCellStyle = buildCellStyle(workbook, true, IndexedColors.GREY_40_PERCENT.getIndex());
-        changedCellStyle = buildCellStyle(workbook, true, IndexedColors.LIGHT_ORANGE.getIndex());
-        addedRowStyle = buildCellStyle(workbook, true, IndexedColors.LIGHT_GREEN.getIndex());
-        deletedRowStyle = buildCellStyle(workbook, true, IndexedColors.RED.getIndex());
-        changedRowStyle = buildCellStyle(workbook, true, IndexedColors.LIGHT_YELLOW.getIndex());
-        defaultRowStyle = buildCellStyle(workbook, true, IndexedColors.WHITE.getIndex());
+    /**
+     * Opens a streaming xlsx workbook with a single sheet, whose rows are written one by one as they are produced,
+     * so a sheet that doesn't fit in memory can be written. Rows are colored and commented
+     * the same way {@link #writeToWorkbook(String, EWorkbook, WriteMode)} does it.
+     * The workbook is saved to {@code workbookPath} when the returned writer is closed.
+     *
+     * @param workbookPath the path of the xlsx file
+     * @param sheetName    the name of the sheet
+     * @return the writer of the sheet's rows
+     */
+    public SheetWriter openSheetWriter(String workbookPath, String sheetName) {
+        return new SheetWriter(Objects.requireNonNull(workbookPath), Objects.requireNonNull(sheetName));
+    }
+
+    /**
+     * Sets the number of rows per sheet kept in memory by the {@code WriteMode.STREAMING} mode.
+     *
+     * @param rowAccessWindowSize the number of rows, should be at least 1
+     * @return this instance
+     * @throws IllegalArgumentException if the rows number is less than 1
+     */
+    public ExcelWriter setRowAccessWindowSize(int rowAccessWindowSize) {
+        if (rowAccessWindowSize < 1) {
+            throw new IllegalArgumentException("the row access window size should be at least 1");
+        }
+        this.rowAccessWindowSize = rowAccessWindowSize;
+        return this;
+    }
 
+    public int getRowAccessWindowSize() {
+        return rowAccessWindowSize;
+    }
 
+    private void writeSheets(Workbook workbook, EWorkbook eWorkbook, WorkbookStyles styles) {
+        DiffMetrics metrics = Metrics.get();
+        for (ESheet eSheet : eWorkbook.getSheets().values()) {
+            try (DiffMetrics.Timer ignored = metrics.startTimer(DiffMetrics.Phase.WRITE_SHEET, eSheet.getName())) {
+                Sheet sheet = workbook.createSheet(eSheet.getName());
+                setSheetTabColor(sheet, eSheet.getStatus(), styles);
+                // only changed sheets have comments, the drawing that holds them is created once per sheet
+                Drawing<?> drawing = eSheet.getStatus() == Status.CHANGED ? sheet.createDrawingPatriarch() : null;
+                AtomicInteger rowIndex = new AtomicInteger(0);
+                if (eSheet.getHeaders() != null && !eSheet.getHeaders().isEmpty()){
+                    writeHeadersToSheet(eSheet.getHeaders(), sheet, rowIndex.getAndIncrement(), styles);
+                }
+                eSheet.getData().forEach(row -> writeERowToSheet(row, sheet, rowIndex.getAndIncrement(), styles, drawing));
+            }
+            metrics.increment(DiffMetrics.Counter.ROWS_WRITTEN, eSheet.getName(), eSheet.getData().size());
+        }
     }
 
-    private CellStyle buildCellStyle(Workbook workbook, boolean isHasBorders, short colorIndex) {
+    /**
+     * Writes the workbook to its file, the time spent serializing it is recorded as
+     * the {@code WRITE_SHEET} phase of the whole workbook.
+     */
+    private void save(Workbook workbook, String workbookPath) throws IOException {
+        DiffMetrics metrics = Metrics.get();
+        try (DiffMetrics.Timer ignored = metrics.startTimer(DiffMetrics.Phase.WRITE_SHEET, null);
+             FileOutputStream outputStream = new FileOutputStream(workbookPath)) {
+            workbook.write(outputStream);
+        }
+        if (metrics.isEnabled()) {
+            metrics.increment(DiffMetrics.Counter.BYTES_WRITTEN, null, Files.size(Paths.get(workbookPath)));
+        }
+    }
+
+    private static CellStyle buildCellStyle(Workbook workbook, boolean isHasBorders, short colorIndex) {
         CellStyle cellStyle = workbook.createCellStyle();
         if (isHasBorders) {
             addCellBorders(cellStyle);
@@ -95,7 +180,7 @@ public class ExcelWriter {
         return cellStyle;
     }
 
-    private void addCellBorders(CellStyle cellStyle) {
+    private static void addCellBorders(CellStyle cellStyle) {
         cellStyle.setBorderBottom(BorderStyle.THIN);
         cellStyle.setBorderTop(BorderStyle.THIN);
         cellStyle.setBorderRight(BorderStyle.THIN);
@@ -103,45 +188,51 @@ public class ExcelWriter {
     }
 
 
-    private void setSheetTabColor(XSSFSheet sheet, ESheet eSheet) {
-        switch (eSheet.getStatus()) {
+    private void setSheetTabColor(Sheet sheet, Status status, WorkbookStyles styles) {
+        IndexedColorMap colorMap = styles.colorMap;
+        switch (status) {
             case ADDED:
-                XSSFColor color = new XSSFColor(Color.GREEN, colorMap);
-                sheet.setTabColor(color);
+                setTabColor(sheet, new XSSFColor(Color.GREEN, colorMap));
                 break;
             case DELETED:
-                color = new XSSFColor(Color.RED, colorMap);
-                sheet.setTabColor(color);
+                setTabColor(sheet, new XSSFColor(Color.RED, colorMap));
                 break;
             case CHANGED:
-                color = new XSSFColor(Color.YELLOW, colorMap);
-                sheet.setTabColor(color);
+                setTabColor(sheet, new XSSFColor(Color.YELLOW, colorMap));
                 break;
             default:
         }
     }
 
-    private void writeHeadersToSheet(List<String> list, Sheet sheet, int rowNumber) {
+    private void setTabColor(Sheet sheet, XSSFColor color) {
+        if (sheet instanceof SXSSFSheet) {
+            ((SXSSFSheet) sheet).setTabColor(color);
+        } else {
+            ((XSSFSheet) sheet).setTabColor(color);
+        }
+    }
+
+    private void writeHeadersToSheet(List<String> list, Sheet sheet, int rowNumber, WorkbookStyles styles) {
         Row row = sheet.createRow(rowNumber);
         int columnIndex = 0;
         for (String value : list) {
             Cell cell = writeValueToCell(value, row, columnIndex++);
-            cell.setCellStyle(headerCellStyle);
+            cell.setCellStyle(styles.headerCellStyle);
         }
     }
 
-    private void writeERowToSheet(ERow eRow, Sheet sheet, int rowNumber) {
+    private void writeERowToSheet(ERow eRow, Sheet sheet, int rowNumber, WorkbookStyles styles, Drawing<?> drawing) {
         Row row = sheet.createRow(rowNumber);
         int columnIndex = 0;
         for (ECell eCell : eRow.getCells()) {
             Cell cell = writeValueToCell(eCell.getValue(), row, columnIndex++);
             if (eRow.getStatus().equals(Status.CHANGED) && eCell.getStatus().equals(Status.NEW)) {
-                cell.setCellStyle(changedRowStyle);
+                cell.setCellStyle(styles.changedRowStyle);
             } else {
-                updateCellColor(cell, eCell);
+                updateCellColor(cell, eCell, styles);
             }
 
-            assignCommentToCell(cell, eCell);
+            assignCommentToCell(cell, eCell, drawing);
         }
     }
 
@@ -152,29 +243,34 @@ public class ExcelWriter {
         return cell;
     }
 
-    private void updateCellColor(Cell cell, ECell eCell) {
+    private void updateCellColor(Cell cell, ECell eCell, WorkbookStyles styles) {
         switch (eCell.getStatus()) {
             case ADDED:
-                cell.setCellStyle(addedRowStyle);
+                cell.setCellStyle(styles.addedRowStyle);
                 break;
             case DELETED:
-                cell.setCellStyle(deletedRowStyle);
+                cell.setCellStyle(styles.deletedRowStyle);
                 break;
             case CHANGED:
-                cell.setCellStyle(changedCellStyle);
+                cell.setCellStyle(styles.changedCellStyle);
                 break;
             default:
 
         }
     }
 
-    private void assignCommentToCell(Cell cell, ECell eCell) {
+    private void assignCommentToCell(Cell cell, ECell eCell, Drawing<?> drawing) {
         if (eCell.getStatus().equals(Status.CHANGED)) {
-            cell.setCellComment(buildComment(cell, eCell.getChangesHistory()));
+            Drawing<?> sheetDrawing = drawing == null ? cell.getSheet().createDrawingPatriarch() : drawing;
+            cell.setCellComment(buildComment(cell, eCell.getChangesHistory(), sheetDrawing));
         }
     }
 
     public Comment buildComment(Cell cell, String commentText) {
+        return buildComment(cell, commentText, cell.getSheet().createDrawingPatriarch());
+    }
+
+    private Comment buildComment(Cell cell, String commentText, Drawing<?> drawing) {
         CreationHelper factory = cell.getSheet().getWorkbook().getCreationHelper();
         ClientAnchor anchor = factory.createClientAnchor();
         //i found it useful to show the comment box at the bottom right corner
@@ -182,12 +278,104 @@ public class ExcelWriter {
         anchor.setCol2(cell.getColumnIndex() + 3); //...and ends at that given column
         anchor.setRow1(cell.getRowIndex() + 1); //one row below the cell...
         anchor.setRow2(cell.getRowIndex() + 5); //...and 4 rows high
-        Drawing<?> drawing = cell.getSheet().createDrawingPatriarch();
         Comment comment = drawing.createCellComment(anchor);
+        //the streaming cells don't move the comment from its anchor to the cell, so it is done here
+        comment.setAddress(cell.getAddress());
         //set the comment text and author
         comment.setString(factory.createRichTextString(commentText));
         //comment.setAuthor(author);
         cell.setCellComment(comment);
         return comment;
     }
+
+    /**
+     * Writes the rows of one sheet to a streaming workbook, only a window of
+     * {@link #getRowAccessWindowSize()} rows is kept in memory.
+     */
+    public final class SheetWriter implements Closeable {
+        private final String workbookPath;
+        private final SXSSFWorkbook workbook;
+        private final WorkbookStyles styles;
+        private final Sheet sheet;
+        private int rowIndex;
+        private long writtenRowsNumber;
+        private Status status = Status.NEW;
+
+        private SheetWriter(String workbookPath, String sheetName) {
+            this.workbookPath = workbookPath;
+            XSSFWorkbook xssfWorkbook = new XSSFWorkbook();
+            this.styles = new WorkbookStyles(xssfWorkbook);
+            this.workbook = new SXSSFWorkbook(xssfWorkbook, rowAccessWindowSize);
+            this.sheet = workbook.createSheet(sheetName);
+        }
+
+        /**
+         * Writes the headers as the next row of the sheet.
+         *
+         * @param headers the headers of the sheet
+         */
+        public void writeHeaders(List<String> headers) {
+            writeHeadersToSheet(headers, sheet, rowIndex++, styles);
+        }
+
+        /**
+         * Writes the row as the next row of the sheet.
+         *
+         * @param eRow the row to write
+         */
+        public void writeRow(ERow eRow) {
+            writeERowToSheet(eRow, sheet, rowIndex++, styles, null);
+            writtenRowsNumber++;
+        }
+
+        /**
+         * Sets the status of the sheet, which decides the color of its tab.
+         *
+         * @param status the status of the sheet
+         */
+        public void setStatus(Status status) {
+            this.status = Objects.requireNonNull(status);
+        }
+
+        /**
+         * Saves the workbook, and deletes the temporary files of the streamed rows.
+         *
+         * @throws IOException if the file cannot be written
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                setSheetTabColor(sheet, status, styles);
+                Metrics.get().increment(DiffMetrics.Counter.ROWS_WRITTEN, sheet.getSheetName(), writtenRowsNumber);
+                save(workbook, workbookPath);
+            } finally {
+                workbook.dispose();
+                workbook.close();
+            }
+        }
+    }
+
+    /**
+     * The styles used to color a diff workbook, they belong to the workbook being written,
+     * so they are created for each write.
+     */
+    private static final class WorkbookStyles {
+        private final CellStyle headerCellStyle;
+        private final CellStyle changedCellStyle;
+        private final CellStyle addedRowStyle;
+        private final CellStyle deletedRowStyle;
+        private final CellStyle changedRowStyle;
+        private final CellStyle defaultRowStyle;
+        private final IndexedColorMap colorMap;
+
+        private WorkbookStyles(XSSFWorkbook workbook) {
+            colorMap = workbook.getStylesSource().getIndexedColors();
+            headerCellStyle = buildCellStyle(workbook, true, IndexedColors.GREY_40_PERCENT.getIndex());
+            changedCellStyle = buildCellStyle(workbook, true, IndexedColors.LIGHT_ORANGE.getIndex());
+            addedRowStyle = buildCellStyle(workbook, true, IndexedColors.LIGHT_GREEN.getIndex());
+            deletedRowStyle = buildCellStyle(workbook, true, IndexedColors.RED.getIndex());
+            changedRowStyle = buildCellStyle(workbook, true, IndexedColors.LIGHT_YELLOW.getIndex());
+            defaultRowStyle = buildCellStyle(workbook, true, IndexedColors.WHITE.getIndex());
+        }
+    }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.utils;
+
+import com.twiza.domain.Status;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of an export of a workbook by {@link ExcelToFolderWriter}, one entry per sheet.
+ *
+ * @author Mohamed.Chamlal
+ */
+public class FolderExportSummary {
+
+    private final Path folder;
+    private final List<SheetExport> sheetExports;
+
+    FolderExportSummary(Path folder, List<SheetExport> sheetExports) {
+        this.folder = folder;
+        this.sheetExports = new ArrayList<>(sheetExports);
+    }
+
+    /**
+     * @return the folder of the sheets files
+     */
+    public Path getFolder() {
+        return folder;
+    }
+
+    public List<SheetExport> getSheetExports() {
+        return Collections.unmodifiableList(sheetExports);
+    }
+
+    /**
+     * Returns the number of sheets files with the provided status: {@code ADDED} for the new files,
+     * {@code CHANGED} for the rewritten ones, {@code COMMON} for the files left unchanged by an incremental export,
+     * and {@code DELETED} for the files of the removed sheets.
+     *
+     * @param status the status of the sheets files to count
+     * @return the number of sheets files with the provided status
+     */
+    public long countSheets(Status status) {
+        return sheetExports.stream().filter(export -> export.getStatus() == status).count();
+    }
+
+    public long countFailures() {
+        return sheetExports.stream().filter(SheetExport::isFailed).count();
+    }
+
+    public long getWrittenBytes() {
+        return sheetExports.stream().mapToLong(SheetExport::getWrittenBytes).sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        sheetExports.forEach(export -> builder.append(export).append("\n"));
+        builder.append(sheetExports.size()).append(" sheets exported to ").append(folder).append(": ")
+               .append(countSheets(Status.ADDED)).append(" added, ")
+               .append(countSheets(Status.CHANGED)).append(" changed, ")
+               .append(countSheets(Status.COMMON)).append(" unchanged, ")
+               .append(countSheets(Status.DELETED)).append(" deleted, ")
+               .append(countFailures()).append(" failed, ")
+               .append(getWrittenBytes()).append(" bytes written");
+        return builder.toString();
+    }
+
+    /**
+     * The result of the export of one sheet.
+     */
+    public static class SheetExport {
+        private final String sheetName;
+        private final Path file;
+        private final Status status;
+        private final long writtenBytes;
+        private final Exception failure;
+
+        SheetExport(String sheetName, Path file, Status status, long writtenBytes) {
+            this.sheetName = sheetName;
+            this.file = file;
+            this.status = status;
+            this.writtenBytes = writtenBytes;
+            this.failure = null;
+        }
+
+        SheetExport(String sheetName, Path file, Exception failure) {
+            this.sheetName = sheetName;
+            this.file = file;
+            this.status = null;
+            this.writtenBytes = 0;
+            this.failure = failure;
+        }
+
+        public String getSheetName() {
+            return sheetName;
+        }
+
+        /**
+         * @return the file of the sheet, it may be missing or partially written if the export failed
+         */
+        public Path getFile() {
+            return file;
+        }
+
+        /**
+         * @return the status of the sheet's file, see {@link FolderExportSummary#countSheets(Status)},
+         * null if the export failed
+         */
+        public Status getStatus() {
+            return status;
+        }
+
+        public long getWrittenBytes() {
+            return writtenBytes;
+        }
+
+        public boolean isFailed() {
+            return failure != null;
+        }
+
+        /**
+         * @return the exception that stopped the export of this sheet, null otherwise
+         */
+        public Exception getFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            if (isFailed()) {
+                return sheetName + "\tFAILED\t" + failure;
+            }
+            return sheetName + "\t" + status + "\t" + file.getFileName() + "\t" + writtenBytes + " bytes";
+        }
+    }
+}
@@ -19,9 +19,11 @@ package com.twiza.utils;
 import com.twiza.domain.*;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -60,17 +62,42 @@ public class FolderToExcelReader {
         //TODO(4): convert txt files into sheets and add them to workbook
         //TODO(5): save the workbook ( add a suffix to not override the old file)
         Files.isDirectory(sheetsFolder);
-        try (Stream<Path> treePaths = Files.walk(sheetsFolder)) {
-            List<ESheet> sheets = treePaths.filter(path -> path.toString().endsWith(".txt"))
-                                           .map(this::textToESheet)
-                                           .collect(Collectors.toCollection(ArrayList::new));
-            EWorkbook workbook = new ExcelWorkbook(Paths.get(sheetsFolder.toString() + ".xlsx"), sheets);
+        try {
+            EWorkbook workbook = readWorkbook(sheetsFolder);
             ExcelWriter.getInstance().writeToWorkbook(workbook.getWorkbookPath().toString(), workbook);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Reads the sheets files of a folder written by {@link ExcelToFolderWriter}, in any of its formats,
+     * a folder should hold the sheets in a single format.
+     *
+     * @param sheetsFolder the folder of the sheets files
+     * @return the workbook of the sheets, named after the folder
+     * @throws IOException if a sheet file cannot be read
+     */
+    public EWorkbook readWorkbook(Path sheetsFolder) throws IOException {
+        List<ESheet> sheets = new ArrayList<>();
+        try (Stream<Path> treePaths = Files.walk(sheetsFolder)) {
+            for (Path path : treePaths.collect(Collectors.toList())) {
+                if (path.toString().endsWith(ExcelToFolderWriter.Format.TEXT.getExtension())) {
+                    sheets.add(textToESheet(path));
+                } else if (path.toString().endsWith(ExcelToFolderWriter.Format.BINARY.getExtension())) {
+                    sheets.add(binaryToESheet(path));
+                }
+            }
+        }
+        return new ExcelWorkbook(Paths.get(sheetsFolder.toString() + ".xlsx"), sheets);
+    }
+
+    private ESheet binaryToESheet(Path sheetPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(sheetPath, StandardOpenOption.READ)) {
+            return SheetCodec.read(channel);
+        }
+    }
+
     private ESheet textToESheet(Path sheetPath) {
         ESheet sheet = new ExcelSheet(sheetPath.getFileName().toString().replaceAll(EXTENSION_REGEX_PATTERN,""));
         try {
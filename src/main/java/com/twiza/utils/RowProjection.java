@@ -0,0 +1,110 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.utils;
+
+import com.twiza.domain.CompiledTemplate;
+import com.twiza.domain.ERow;
+import com.twiza.domain.ESheet;
+
+/**
+ * Tells {@link ExcelReader} which rows and cells of a sheet to read, and where to put the read cells,
+ * so the rows are read directly in their final form. A projection is used for the read of one sheet only.
+ *
+ * @author Mohamed.Chamlal
+ */
+interface RowProjection {
+    /**
+     * the position of a cell that is not read.
+     */
+    int DROPPED = CompiledTemplate.DROPPED;
+
+    /**
+     * @param rowIndex the position of the row in the sheet
+     * @return true if the row shouldn't be read at all
+     */
+    boolean skipsRow(int rowIndex);
+
+    /**
+     * @param columnIndex the position of the cell in the sheet's row
+     * @return the position of the cell in the read row, {@link #DROPPED} if the cell shouldn't be read
+     */
+    int getPosition(int columnIndex);
+
+    /**
+     * @param columnsNumber the number of cells of the sheet's row, the blank cells included
+     * @return the number of cells of the read row
+     */
+    int getWidth(int columnsNumber);
+
+    /**
+     * Passes a read row to the projection, before it's added to the sheet.
+     *
+     * @param row a row read with the positions of this projection
+     * @return the row to add to the sheet, null if the row is consumed by the projection, like a headers row
+     */
+    ERow accept(ERow row);
+
+    /**
+     * @param sheet the sheet built from the accepted rows
+     * @return the read sheet
+     */
+    ESheet finish(ESheet sheet);
+
+    /**
+     * @param template the template compiled for the sheet
+     * @return the projection applying the template
+     */
+    static RowProjection of(CompiledTemplate template) {
+        return new TemplateProjection(template);
+    }
+
+    /**
+     * Applies a {@link CompiledTemplate}, the headers row is kept by the template.
+     */
+    final class TemplateProjection implements RowProjection {
+        private final CompiledTemplate template;
+
+        private TemplateProjection(CompiledTemplate template) {
+            this.template = template;
+        }
+
+        @Override
+        public boolean skipsRow(int rowIndex) {
+            return template.skipsRow(rowIndex);
+        }
+
+        @Override
+        public int getPosition(int columnIndex) {
+            return template.getPosition(columnIndex);
+        }
+
+        @Override
+        public int getWidth(int columnsNumber) {
+            return template.getWidth(columnsNumber);
+        }
+
+        @Override
+        public ERow accept(ERow row) {
+            return template.accept(row) ? row : null;
+        }
+
+        @Override
+        public ESheet finish(ESheet sheet) {
+            return template.finish(sheet);
+        }
+    }
+}
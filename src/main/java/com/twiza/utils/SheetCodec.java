@@ -0,0 +1,325 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.utils;
+
+import com.twiza.domain.*;
+import com.twiza.exceptions.WorkbookWithInvalidFormatException;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The binary form of an {@link ESheet}: a versioned block of the sheet's name, status, headers and key indexes,
+ * followed by the values of the sheet, column by column, as indexes in a dictionary of the distinct values.
+ * <p>
+ * Strings are written as their length in bytes followed by their UTF-8 bytes, so any value round trips,
+ * tabs and line breaks included. The indexes take 1, 2 or 4 bytes depending on the size of the dictionary.
+ * Only the values are kept: the statuses of the rows and cells, and the changes histories are not written,
+ * so a read sheet is a sheet as {@link ExcelReader} reads it.
+ *
+ * @author Mohamed.Chamlal
+ */
+final class SheetCodec {
+    private static final int SHEET_MAGIC = 0x45534854;// "ESHT"
+    private static final short FORMAT_VERSION = 1;
+    private static final int NULL_HEADERS = -1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Status[] STATUSES = Status.values();
+
+    private SheetCodec() {
+    }
+
+    /**
+     * Writes the binary form of the sheet to the channel.
+     *
+     * @param sheet   the sheet to write
+     * @param channel the channel to write to, it's not closed
+     * @throws IOException if the channel cannot be written
+     */
+    static void write(ESheet sheet, WritableByteChannel channel) throws IOException {
+        ChannelOutput output = new ChannelOutput(channel);
+        write(sheet, output);
+        output.flush();
+    }
+
+    /**
+     * Writes the binary form of the sheet to the output, without flushing it,
+     * so several sheets can be written to the same output.
+     *
+     * @param sheet  the sheet to write
+     * @param output the buffered output
+     * @throws IOException if the channel of the output cannot be written
+     */
+    static void write(ESheet sheet, ChannelOutput output) throws IOException {
+        output.putInt(SHEET_MAGIC);
+        output.putShort(FORMAT_VERSION);
+        output.putString(sheet.getName());
+        output.put((byte) sheet.getStatus().ordinal());
+        List<String> headers = sheet.getHeaders();
+        if (headers == null) {
+            output.putInt(NULL_HEADERS);
+        } else {
+            output.putInt(headers.size());
+            for (String header : headers) {
+                output.putString(header);
+            }
+        }
+        int[] keyIndexes = sheet.getKeysIndexes();
+        output.putInt(keyIndexes.length);
+        for (int keyIndex : keyIndexes) {
+            output.putInt(keyIndex);
+        }
+
+        List<ERow> rows = sheet.getData();
+        int columnsNumber = sheet.getColumnsNumber();
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> distinctValues = new ArrayList<>();
+        int[] indexes = new int[rows.size() * columnsNumber];
+        for (int column = 0; column < columnsNumber; column++) {
+            for (int row = 0; row < rows.size(); row++) {
+                String value = rows.get(row).getCell(column).getValue();
+                Integer index = dictionary.putIfAbsent(value, distinctValues.size());
+                if (index == null) {
+                    index = distinctValues.size();
+                    distinctValues.add(value);
+                }
+                indexes[column * rows.size() + row] = index;
+            }
+        }
+        output.putInt(rows.size());
+        output.putInt(columnsNumber);
+        output.putInt(distinctValues.size());
+        for (String value : distinctValues) {
+            output.putString(value);
+        }
+        int indexWidth = indexWidth(distinctValues.size());
+        for (int index : indexes) {
+            output.putIndex(index, indexWidth);
+        }
+    }
+
+    /**
+     * Reads the sheet written to a file, the file is memory mapped while it's read.
+     *
+     * @param channel the channel of the file, it's not closed
+     * @return the read sheet
+     * @throws IOException                        if the file cannot be read
+     * @throws WorkbookWithInvalidFormatException if the file doesn't hold a complete sheet of a known version
+     */
+    static ESheet read(FileChannel channel) throws IOException {
+        return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+
+    /**
+     * Reads a sheet from the buffer, starting at its position, the position is moved after the sheet.
+     *
+     * @param buffer the buffer holding the binary form of the sheet
+     * @return the read sheet
+     * @throws WorkbookWithInvalidFormatException if the buffer doesn't hold a complete sheet of a known version
+     */
+    static ESheet read(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != SHEET_MAGIC) {
+                throw new WorkbookWithInvalidFormatException("Not a sheet block");
+            }
+            short version = buffer.getShort();
+            if (version != FORMAT_VERSION) {
+                throw new WorkbookWithInvalidFormatException("Unsupported sheet format version " + version);
+            }
+            String name = getString(buffer);
+            Status status = STATUSES[buffer.get()];
+            int headersNumber = buffer.getInt();
+            List<String> headers = null;
+            if (headersNumber != NULL_HEADERS) {
+                checkCount(headersNumber, Integer.BYTES, buffer);
+                headers = new ArrayList<>(headersNumber);
+                for (int i = 0; i < headersNumber; i++) {
+                    headers.add(getString(buffer));
+                }
+            }
+            int[] keyIndexes = new int[getCount(buffer, Integer.BYTES)];
+            for (int i = 0; i < keyIndexes.length; i++) {
+                keyIndexes[i] = buffer.getInt();
+            }
+
+            int rowsNumber = buffer.getInt();
+            int columnsNumber = buffer.getInt();
+            // rows without columns take no bytes, they cannot be bounded by the remaining bytes
+            if (rowsNumber < 0 || columnsNumber < 0 || (columnsNumber == 0 && rowsNumber != 0)) {
+                throw new WorkbookWithInvalidFormatException("Corrupted sheet size " + rowsNumber + " rows of "
+                                                                     + columnsNumber + " columns");
+            }
+            String[] distinctValues = new String[getCount(buffer, Integer.BYTES)];
+            for (int i = 0; i < distinctValues.length; i++) {
+                distinctValues[i] = getString(buffer);
+            }
+            int indexWidth = indexWidth(distinctValues.length);
+            int indexesStart = buffer.position();
+            long indexesLength = (long) rowsNumber * columnsNumber * indexWidth;
+            if (indexesLength > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            ESheet sheet = new ExcelSheet(name);
+            for (int row = 0; row < rowsNumber; row++) {
+                List<ECell> cells = new ArrayList<>(columnsNumber);
+                for (int column = 0; column < columnsNumber; column++) {
+                    int position = indexesStart + (column * rowsNumber + row) * indexWidth;
+                    cells.add(new ExcelCell(distinctValues[getIndex(buffer, position, indexWidth)]));
+                }
+                sheet.addRow(new ExcelRow(cells));
+            }
+            buffer.position(indexesStart + (int) indexesLength);
+            return sheet.setHeaders(headers)
+                        .setKeyIndexes(keyIndexes)
+                        .setStatus(status);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new WorkbookWithInvalidFormatException("Truncated or corrupted sheet block", e);
+        }
+    }
+
+    /**
+     * Reads the number of elements that follow in the buffer, checking that they fit in it before they're allocated,
+     * so a corrupted count is reported as an invalid format instead of exhausting the memory.
+     *
+     * @param buffer          the buffer holding the count, then the elements
+     * @param minElementBytes the minimum number of bytes taken by each element
+     * @return the number of elements
+     * @throws WorkbookWithInvalidFormatException if the count is negative, or the elements cannot fit in the buffer
+     */
+    static int getCount(ByteBuffer buffer, int minElementBytes) {
+        int count = buffer.getInt();
+        checkCount(count, minElementBytes, buffer);
+        return count;
+    }
+
+    private static void checkCount(int count, int minElementBytes, ByteBuffer buffer) {
+        if (count < 0 || (long) count * minElementBytes > buffer.remaining()) {
+            throw new WorkbookWithInvalidFormatException("Corrupted count " + count + ", only " + buffer.remaining()
+                                                                 + " bytes remain");
+        }
+    }
+
+    private static int indexWidth(int dictionarySize) {
+        if (dictionarySize <= 1 << Byte.SIZE) {
+            return Byte.BYTES;
+        }
+        if (dictionarySize <= 1 << Short.SIZE) {
+            return Short.BYTES;
+        }
+        return Integer.BYTES;
+    }
+
+    private static int getIndex(ByteBuffer buffer, int position, int indexWidth) {
+        switch (indexWidth) {
+            case Byte.BYTES:
+                return Byte.toUnsignedInt(buffer.get(position));
+            case Short.BYTES:
+                return Short.toUnsignedInt(buffer.getShort(position));
+            default:
+                return buffer.getInt(position);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = getCount(buffer, Byte.BYTES);
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Buffers the writes to a channel, the buffer is written to the channel each time it's full.
+     */
+    static final class ChannelOutput {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        ChannelOutput(WritableByteChannel channel) {
+            this.channel = Objects.requireNonNull(channel);
+        }
+
+        void put(byte value) throws IOException {
+            ensureRemaining(Byte.BYTES);
+            buffer.put(value);
+        }
+
+        void putShort(short value) throws IOException {
+            ensureRemaining(Short.BYTES);
+            buffer.putShort(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putIndex(int index, int indexWidth) throws IOException {
+            ensureRemaining(indexWidth);
+            switch (indexWidth) {
+                case Byte.BYTES:
+                    buffer.put((byte) index);
+                    break;
+                case Short.BYTES:
+                    buffer.putShort((short) index);
+                    break;
+                default:
+                    buffer.putInt(index);
+            }
+        }
+
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensureRemaining(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        /**
+         * Writes the buffered bytes to the channel.
+         *
+         * @throws IOException if the channel cannot be written
+         */
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensureRemaining(int bytesNumber) throws IOException {
+            if (buffer.remaining() < bytesNumber) {
+                flush();
+            }
+        }
+    }
+}
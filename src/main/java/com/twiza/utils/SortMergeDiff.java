@@ -0,0 +1,557 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.utils;
+
+import com.twiza.domain.*;
+import com.twiza.exceptions.HeaderNotMatchingException;
+import com.twiza.exceptions.SheetWithInconsistentDataException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Compares two versions of a sheet that don't fit in memory, by sorting the rows of each version
+ * by key on disk, then joining the two sorted versions key by key.
+ * <p>
+ * The rows of each version are read in runs that fit in the memory budget, each run is sorted by key
+ * and written to a temporary file, then the runs are merged: a key found in the old version only gives
+ * a DELETED row, a key found in the new version only gives an ADDED row, and a key found in both gives
+ * the result of {@link ERow#compare(ERow)}, as {@link ESheet#compare(ESheet)} does it.
+ * Unlike {@link ESheet#compare(ESheet)}, the diff rows are produced in the order of their keys,
+ * and they are passed on as soon as they are built, instead of being kept in a sheet.
+ *
+ * @author Mohamed.Chamlal
+ */
+public class SortMergeDiff {
+    /**
+     * the default heap, in bytes, used to sort each version of the sheet.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+    private static final String TEMP_DIRECTORY_PREFIX = "sort-merge-diff";
+    private static final String RUN_FILE_PREFIX = "run";
+    private static final int DEFAULT_KEY_INDEX = 0;
+    /**
+     * the maximum number of runs merged at the same time, more runs are first merged into bigger runs,
+     * so the number of open files stays bounded.
+     */
+    private static final int MAX_MERGED_RUNS = 64;
+    /**
+     * rough heap used by a buffered row, and by each of its values, besides the chars of the values.
+     */
+    private static final int ROW_OVERHEAD_BYTES = 64;
+    private static final int VALUE_OVERHEAD_BYTES = 48;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    private static final int END_OF_RUN = -1;
+    private static final int KILOBYTE = 1024;
+
+    private final Path tempDirectory;
+    private final long memoryBudget;
+    private int[] keyIndexes = {DEFAULT_KEY_INDEX};
+
+    /**
+     * Constructs a diff that uses the default temporary directory and the {@link #DEFAULT_MEMORY_BUDGET}.
+     */
+    public SortMergeDiff() {
+        this(Paths.get(System.getProperty("java.io.tmpdir")), DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * @param tempDirectory the directory where the sorted runs are written, they are deleted after each compare
+     * @param memoryBudget  the heap, in bytes, used to sort each version of the sheet
+     * @throws IllegalArgumentException if the memory budget is less than a kilobyte
+     */
+    public SortMergeDiff(Path tempDirectory, long memoryBudget) {
+        if (memoryBudget < KILOBYTE) {
+            throw new IllegalArgumentException("memory budget should be at least 1 kilobyte, provided: " + memoryBudget);
+        }
+        this.tempDirectory = Objects.requireNonNull(tempDirectory);
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Sets the positions of the columns that compose the key of the rows, the first column by default.
+     *
+     * @param keyIndexes the positions of the key columns
+     * @return this {@link SortMergeDiff}
+     * @throws IllegalArgumentException if no position is provided, or if a position is negative
+     */
+    public SortMergeDiff setKeyIndexes(int... keyIndexes) {
+        if (keyIndexes.length == 0 || Arrays.stream(keyIndexes).anyMatch(index -> index < 0)) {
+            throw new IllegalArgumentException("key indexes should be provided and positive: " + Arrays.toString(keyIndexes));
+        }
+        this.keyIndexes = keyIndexes.clone();
+        return this;
+    }
+
+    /**
+     * Compares one sheet of two workbooks, and writes the diff to a new xlsx workbook with the streaming writer.
+     * The first row of the sheet is considered as its headers, the headers of both versions should be the same.
+     * If the sheet exists in one of the workbooks only, all its rows are written as ADDED or DELETED.
+     *
+     * @param oldWorkbook  the path of the old version of the workbook
+     * @param newWorkbook  the path of the new version of the workbook
+     * @param sheetName    the name of the sheet to compare
+     * @param diffWorkbook the path of the written diff workbook
+     * @return the status of the sheet, computed as {@link ESheet#compare(ESheet)} does it
+     * @throws IOException                 if a workbook cannot be read, or the diff cannot be written
+     * @throws IllegalArgumentException    if the sheet exists in none of the workbooks
+     * @throws HeaderNotMatchingException  if the headers of the two versions are different
+     * @throws SheetWithInconsistentDataException if a version contains different rows with the same key
+     */
+    public Status compare(Path oldWorkbook, Path newWorkbook, String sheetName, Path diffWorkbook) throws IOException {
+        SheetRows oldRows = new SheetRows(oldWorkbook, sheetName);
+        SheetRows newRows = new SheetRows(newWorkbook, sheetName);
+        Path workDirectory = Files.createTempDirectory(tempDirectory, TEMP_DIRECTORY_PREFIX);
+        try {
+            SortedRuns oldRuns = sortInRuns(oldRows, workDirectory);
+            SortedRuns newRuns = sortInRuns(newRows, workDirectory);
+            if (!oldRows.found && !newRows.found) {
+                throw new IllegalArgumentException("The sheet " + sheetName + " doesn't exist in " + oldWorkbook
+                                                           + " nor in " + newWorkbook);
+            }
+            int width = Math.max(Math.max(oldRuns.width, newRuns.width), Math.max(oldRows.headersWidth(), newRows.headersWidth()));
+            List<String> headers = newRows.found ? newRows.paddedHeaders(width) : oldRows.paddedHeaders(width);
+            if (oldRows.found && newRows.found && !headers.equals(oldRows.paddedHeaders(width))) {
+                throw new HeaderNotMatchingException("Headers are not matching");
+            }
+            try (ExcelWriter.SheetWriter sheetWriter = ExcelWriter.getInstance()
+                                                                 .openSheetWriter(diffWorkbook.toString(), sheetName)) {
+                if (!headers.isEmpty()) {
+                    sheetWriter.writeHeaders(headers);
+                }
+                Status status = join(oldRuns, newRuns, width, sheetWriter::writeRow);
+                if (!oldRows.found) {
+                    status = Status.ADDED;
+                } else if (!newRows.found) {
+                    status = Status.DELETED;
+                }
+                sheetWriter.setStatus(status);
+                return status;
+            }
+        } finally {
+            deleteDirectory(workDirectory);
+        }
+    }
+
+    /**
+     * Compares two versions of a sheet, and passes the diff rows to {@code diffRows} in the order of their keys.
+     * Rows are padded with blanks to the width of the widest row of both versions.
+     *
+     * @param oldRows  the rows of the old version
+     * @param newRows  the rows of the new version
+     * @param diffRows receives the diff rows
+     * @return {@code CHANGED} if at least a row that exists in both versions has changed, {@code NEW} otherwise,
+     * as {@link ESheet#compare(ESheet)} does it
+     * @throws IOException                        if the rows cannot be read, or the runs cannot be written
+     * @throws SheetWithInconsistentDataException if a version contains different rows with the same key
+     */
+    public Status compare(RowsSource oldRows, RowsSource newRows, Consumer<ERow> diffRows) throws IOException {
+        Objects.requireNonNull(diffRows);
+        Path workDirectory = Files.createTempDirectory(tempDirectory, TEMP_DIRECTORY_PREFIX);
+        try {
+            SortedRuns oldRuns = sortInRuns(oldRows, workDirectory);
+            SortedRuns newRuns = sortInRuns(newRows, workDirectory);
+            return join(oldRuns, newRuns, Math.max(oldRuns.width, newRuns.width), diffRows);
+        } finally {
+            deleteDirectory(workDirectory);
+        }
+    }
+
+    /**
+     * Reads the rows in runs that fit in the memory budget, and writes each run, sorted by key, to a file.
+     */
+    private SortedRuns sortInRuns(RowsSource rowsSource, Path workDirectory) throws IOException {
+        SortedRuns sortedRuns = new SortedRuns();
+        List<SortEntry> buffer = new ArrayList<>();
+        long[] bufferedBytes = {0};
+        try {
+            rowsSource.forEachRow(row -> {
+                String[] values = row.getCellsValues().toArray(new String[0]);
+                sortedRuns.width = Math.max(sortedRuns.width, values.length);
+                buffer.add(new SortEntry(keyOf(values), values));
+                bufferedBytes[0] += estimateBytes(values);
+                if (bufferedBytes[0] >= memoryBudget) {
+                    try {
+                        sortedRuns.runs.add(writeRun(buffer, workDirectory));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    buffer.clear();
+                    bufferedBytes[0] = 0;
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (!buffer.isEmpty()) {
+            sortedRuns.runs.add(writeRun(buffer, workDirectory));
+        }
+        return sortedRuns;
+    }
+
+    private Path writeRun(List<SortEntry> buffer, Path workDirectory) throws IOException {
+        // the sort is stable, so rows with the same key stay in the order they were read
+        buffer.sort(Comparator.comparing(entry -> entry.key));
+        Path runPath = Files.createTempFile(workDirectory, RUN_FILE_PREFIX, null);
+        try (RunWriter runWriter = new RunWriter(runPath)) {
+            for (SortEntry entry : buffer) {
+                runWriter.write(entry.values);
+            }
+        }
+        return runPath;
+    }
+
+    /**
+     * Merges the sorted runs of both versions, and joins them key by key.
+     */
+    private Status join(SortedRuns oldRuns, SortedRuns newRuns, int width, Consumer<ERow> diffRows) throws IOException {
+        Status status = Status.NEW;
+        try (MergedRuns oldMergedRuns = mergeRuns(oldRuns.runs);
+             MergedRuns newMergedRuns = mergeRuns(newRuns.runs)) {
+            DistinctRows oldRows = new DistinctRows(oldMergedRuns);
+            DistinctRows newRows = new DistinctRows(newMergedRuns);
+            SortEntry oldEntry = oldRows.next();
+            SortEntry newEntry = newRows.next();
+            while (oldEntry != null || newEntry != null) {
+                int comparison = oldEntry == null ? 1 : newEntry == null ? -1 : oldEntry.key.compareTo(newEntry.key);
+                if (comparison < 0) {
+                    diffRows.accept(buildRow(oldEntry.values, width, Status.DELETED));
+                    oldEntry = oldRows.next();
+                } else if (comparison > 0) {
+                    diffRows.accept(buildRow(newEntry.values, width, Status.ADDED));
+                    newEntry = newRows.next();
+                } else {
+                    ERow row = buildRow(newEntry.values, width, Status.NEW).compare(buildRow(oldEntry.values, width, Status.NEW));
+                    if (row.getStatus() != Status.NEW) {
+                        status = Status.CHANGED;
+                    }
+                    diffRows.accept(row);
+                    oldEntry = oldRows.next();
+                    newEntry = newRows.next();
+                }
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Opens a reader that returns the rows of all the runs sorted by key, runs are merged into bigger runs
+     * until there are at most {@link #MAX_MERGED_RUNS} of them.
+     */
+    private MergedRuns mergeRuns(List<Path> runs) throws IOException {
+        LinkedList<Path> remainingRuns = new LinkedList<>(runs);
+        while (remainingRuns.size() > MAX_MERGED_RUNS) {
+            List<Path> mergedRuns = new ArrayList<>(remainingRuns.subList(0, MAX_MERGED_RUNS));
+            remainingRuns.subList(0, MAX_MERGED_RUNS).clear();
+            Path runPath = Files.createTempFile(mergedRuns.get(0).getParent(), RUN_FILE_PREFIX, null);
+            try (MergedRuns merged = new MergedRuns(mergedRuns);
+                 RunWriter runWriter = new RunWriter(runPath)) {
+                for (SortEntry entry = merged.next(); entry != null; entry = merged.next()) {
+                    runWriter.write(entry.values);
+                }
+            }
+            for (Path mergedRun : mergedRuns) {
+                Files.delete(mergedRun);
+            }
+            // the merged runs are the oldest ones, so the merged run keeps their place
+            remainingRuns.addFirst(runPath);
+        }
+        return new MergedRuns(remainingRuns);
+    }
+
+    private RowKey keyOf(String[] values) {
+        String[] keyValues = new String[keyIndexes.length];
+        for (int i = 0; i < keyIndexes.length; i++) {
+            keyValues[i] = keyIndexes[i] < values.length ? values[keyIndexes[i]] : "";
+        }
+        return RowKey.of(keyValues);
+    }
+
+    private static long estimateBytes(String[] values) {
+        long bytes = ROW_OVERHEAD_BYTES;
+        for (String value : values) {
+            bytes += VALUE_OVERHEAD_BYTES + 2L * value.length();
+        }
+        return bytes;
+    }
+
+    private static ERow buildRow(String[] values, int width, Status status) {
+        List<ECell> cells = new ArrayList<>(width);
+        for (int i = 0; i < width; i++) {
+            ECell cell = new ExcelCell(i < values.length ? values[i] : "");
+            cell.setStatus(status);
+            cells.add(cell);
+        }
+        ERow row = new ExcelRow(cells);
+        row.setStatus(status);
+        return row;
+    }
+
+    /**
+     * Checks if the values are the same once padded with blanks to the same width.
+     */
+    private static boolean haveSameValues(String[] values, String[] otherValues) {
+        for (int i = 0; i < Math.max(values.length, otherValues.length); i++) {
+            String value = i < values.length ? values[i] : "";
+            String otherValue = i < otherValues.length ? otherValues[i] : "";
+            if (!value.equals(otherValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * The rows of one version of a sheet, read one by one.
+     */
+    @FunctionalInterface
+    public interface RowsSource {
+        /**
+         * Reads the rows, and passes each one of them to the consumer, in order.
+         *
+         * @param rowConsumer receives the rows
+         * @throws IOException if the rows cannot be read
+         */
+        void forEachRow(Consumer<ERow> rowConsumer) throws IOException;
+    }
+
+    /**
+     * The rows of a sheet read with {@link ExcelReader#readRows(Path, String, Consumer)},
+     * the first row is kept aside as the headers of the sheet.
+     */
+    private static final class SheetRows implements RowsSource {
+        private final Path workbookPath;
+        private final String sheetName;
+        private boolean found;
+        private String[] headers;
+
+        private SheetRows(Path workbookPath, String sheetName) {
+            this.workbookPath = workbookPath;
+            this.sheetName = sheetName;
+        }
+
+        @Override
+        public void forEachRow(Consumer<ERow> rowConsumer) throws IOException {
+            if (workbookPath == null || !Files.exists(workbookPath)) {
+                return;
+            }
+            found = ExcelReader.getInstance().readRows(workbookPath, sheetName, row -> {
+                if (headers == null) {
+                    headers = row.getCellsValues().toArray(new String[0]);
+                } else {
+                    rowConsumer.accept(row);
+                }
+            });
+        }
+
+        private int headersWidth() {
+            return headers == null ? 0 : headers.length;
+        }
+
+        private List<String> paddedHeaders(int width) {
+            if (headers == null) {
+                return Collections.emptyList();
+            }
+            List<String> paddedHeaders = new ArrayList<>(Arrays.asList(headers));
+            while (paddedHeaders.size() < width) {
+                paddedHeaders.add("");
+            }
+            return paddedHeaders;
+        }
+    }
+
+    /**
+     * The files of the sorted runs of one version, and the width of its widest row.
+     */
+    private static final class SortedRuns {
+        private final List<Path> runs = new ArrayList<>();
+        private int width;
+    }
+
+    private static final class SortEntry {
+        private final RowKey key;
+        private final String[] values;
+
+        private SortEntry(RowKey key, String[] values) {
+            this.key = key;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Writes the values of the rows of a run, each row as its number of values, followed by the values in UTF-8.
+     */
+    private static final class RunWriter implements Closeable {
+        private final DataOutputStream output;
+
+        private RunWriter(Path runPath) throws IOException {
+            output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(runPath), IO_BUFFER_SIZE));
+        }
+
+        private void write(String[] values) throws IOException {
+            output.writeInt(values.length);
+            for (String value : values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.writeInt(END_OF_RUN);
+            output.close();
+        }
+    }
+
+    /**
+     * Reads back the rows of a run, in the order they were written.
+     */
+    private final class RunReader implements Closeable {
+        private final DataInputStream input;
+        private final int runIndex;
+        private SortEntry current;
+
+        private RunReader(Path runPath, int runIndex) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(runPath), IO_BUFFER_SIZE));
+            this.runIndex = runIndex;
+        }
+
+        /**
+         * Moves to the next row of the run.
+         *
+         * @return {@code false} if the end of the run is reached
+         */
+        private boolean advance() throws IOException {
+            int valuesNumber = input.readInt();
+            if (valuesNumber == END_OF_RUN) {
+                current = null;
+                return false;
+            }
+            String[] values = new String[valuesNumber];
+            for (int i = 0; i < valuesNumber; i++) {
+                byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                values[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            current = new SortEntry(keyOf(values), values);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+
+    /**
+     * Merges sorted runs into one sequence sorted by key, rows with the same key are returned
+     * in the order of their runs.
+     */
+    private final class MergedRuns implements Closeable {
+        private final List<RunReader> readers = new ArrayList<>();
+        private final PriorityQueue<RunReader> queue = new PriorityQueue<>(
+                Comparator.<RunReader, RowKey>comparing(reader -> reader.current.key)
+                        .thenComparingInt(reader -> reader.runIndex));
+
+        private MergedRuns(List<Path> runs) throws IOException {
+            try {
+                for (Path run : runs) {
+                    RunReader reader = new RunReader(run, readers.size());
+                    readers.add(reader);
+                    if (reader.advance()) {
+                        queue.add(reader);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return the next row, {@code null} once all the rows were read
+         */
+        private SortEntry next() throws IOException {
+            RunReader reader = queue.poll();
+            if (reader == null) {
+                return null;
+            }
+            SortEntry entry = reader.current;
+            if (reader.advance()) {
+                queue.add(reader);
+            }
+            return entry;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (RunReader reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Skips the repeated rows of a sorted sequence, as {@link ESheet#getUniqueRows()} does it,
+     * a key repeated with different values is rejected.
+     */
+    private static final class DistinctRows {
+        private final MergedRuns mergedRuns;
+        private SortEntry next;
+
+        private DistinctRows(MergedRuns mergedRuns) throws IOException {
+            this.mergedRuns = mergedRuns;
+            this.next = mergedRuns.next();
+        }
+
+        private SortEntry next() throws IOException {
+            SortEntry entry = next;
+            next = mergedRuns.next();
+            while (entry != null && next != null && entry.key.equals(next.key)) {
+                if (!haveSameValues(entry.values, next.values)) {
+                    throw new SheetWithInconsistentDataException(entry.key.toString());
+                }
+                next = mergedRuns.next();
+            }
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.utils;
+
+import com.twiza.domain.*;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * SAX handler that reads the xml of one xlsx sheet and builds its {@link ESheet},
+ * without loading the POI usermodel of the workbook.
+ * <p>
+ * cells are converted to text the same way {@link ExcelReader} does it for the usermodel:
+ * formulas are replaced by their cached results, other cells are formatted with a {@link DataFormatter}.
+ * <p>
+ * With a {@link RowProjection}, like a template or a {@link ColumnProjection}, the skipped rows are not read,
+ * and the cells of the dropped columns are neither buffered, converted nor stored.
+ *
+ * @author Mohamed.Chamlal
+ */
+class StreamingSheetHandler extends DefaultHandler {
+    private static final String ROW_ELEMENT = "row";
+    private static final String CELL_ELEMENT = "c";
+    private static final String VALUE_ELEMENT = "v";
+    private static final String FORMULA_ELEMENT = "f";
+    private static final String INLINE_TEXT_ELEMENT = "t";
+    private static final String INLINE_STRING_ELEMENT = "is";
+
+    private final String sheetName;
+    private final SharedStrings sharedStrings;
+    private final StylesTable stylesTable;
+    private final DataFormatter dataFormatter;
+    private final boolean keepEmptyRows;
+    private final StringPool valuesPool;
+    /**
+     * the projection of the rows, null if the rows are read as they are.
+     */
+    private final RowProjection projection;
+
+    private final List<ERow> rows = new ArrayList<>();
+    /**
+     * receives each row once it's read, by default the rows are kept to build the sheet.
+     */
+    private final Consumer<ERow> rowConsumer;
+    private int maxCellsNumber;
+
+    private ERow currentRow;
+    private boolean currentRowIsEmpty;
+    private int nextColumnIndex;
+    private int rowIndex = -1;
+    private boolean skippingRow;
+    /**
+     * the cells of the current row at their position in the read row, when the rows are projected.
+     */
+    private ECell[] projectedCells = new ECell[0];
+
+    private String cellType;
+    private String cellStyle;
+    private int cellColumnIndex;
+    private boolean cellHasFormula;
+    private boolean cellDropped;
+    private boolean readingInlineString;
+    private final StringBuilder cellValue = new StringBuilder();
+    private final StringBuilder formulaValue = new StringBuilder();
+    private StringBuilder currentText;
+
+    StreamingSheetHandler(String sheetName, SharedStrings sharedStrings, StylesTable stylesTable,
+                          DataFormatter dataFormatter, boolean keepEmptyRows, StringPool valuesPool) {
+        this(sheetName, sharedStrings, stylesTable, dataFormatter, keepEmptyRows, valuesPool, (RowProjection) null);
+    }
+
+    /**
+     * Constructs a handler that projects the rows while they are read.
+     *
+     * @param projection the projection of the sheet, null to read the rows as they are
+     */
+    StreamingSheetHandler(String sheetName, SharedStrings sharedStrings, StylesTable stylesTable,
+                          DataFormatter dataFormatter, boolean keepEmptyRows, StringPool valuesPool,
+                          RowProjection projection) {
+        this(sheetName, sharedStrings, stylesTable, dataFormatter, keepEmptyRows, valuesPool, projection, null);
+    }
+
+    /**
+     * Constructs a handler that passes the rows to the provided consumer as soon as they are read,
+     * instead of keeping them, the rows are not padded to the same number of cells.
+     */
+    StreamingSheetHandler(String sheetName, SharedStrings sharedStrings, StylesTable stylesTable,
+                          DataFormatter dataFormatter, boolean keepEmptyRows, StringPool valuesPool,
+                          Consumer<ERow> rowConsumer) {
+        this(sheetName, sharedStrings, stylesTable, dataFormatter, keepEmptyRows, valuesPool, null, rowConsumer);
+    }
+
+    private StreamingSheetHandler(String sheetName, SharedStrings sharedStrings, StylesTable stylesTable,
+                                  DataFormatter dataFormatter, boolean keepEmptyRows, StringPool valuesPool,
+                                  RowProjection projection, Consumer<ERow> rowConsumer) {
+        this.projection = projection;
+        this.rowConsumer = rowConsumer == null ? rows::add : rowConsumer;
+        this.sheetName = sheetName;
+        this.sharedStrings = sharedStrings;
+        this.stylesTable = stylesTable;
+        this.dataFormatter = dataFormatter;
+        this.keepEmptyRows = keepEmptyRows;
+        this.valuesPool = valuesPool;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        if (skippingRow) {
+            return;
+        }
+        switch (localName) {
+            case ROW_ELEMENT:
+                String rowReference = attributes.getValue("r");
+                rowIndex = rowReference == null ? rowIndex + 1 : Integer.parseInt(rowReference) - 1;
+                if (projection != null && projection.skipsRow(rowIndex)) {
+                    skippingRow = true;
+                    return;
+                }
+                currentRow = projection == null ? new ExcelRow() : null;
+                currentRowIsEmpty = true;
+                nextColumnIndex = 0;
+                break;
+            case CELL_ELEMENT:
+                cellType = attributes.getValue("t");
+                cellStyle = attributes.getValue("s");
+                String reference = attributes.getValue("r");
+                cellColumnIndex = reference == null ? nextColumnIndex : new CellReference(reference).getCol();
+                cellHasFormula = false;
+                // the text of a dropped cell is not even buffered
+                cellDropped = projection != null && projection.getPosition(cellColumnIndex) == RowProjection.DROPPED;
+                cellValue.setLength(0);
+                formulaValue.setLength(0);
+                break;
+            case VALUE_ELEMENT:
+                currentText = cellDropped ? null : cellValue;
+                break;
+            case FORMULA_ELEMENT:
+                cellHasFormula = true;
+                currentText = cellDropped ? null : formulaValue;
+                break;
+            case INLINE_STRING_ELEMENT:
+                readingInlineString = true;
+                break;
+            case INLINE_TEXT_ELEMENT:
+                if (readingInlineString && !cellDropped) {
+                    currentText = cellValue;
+                }
+                break;
+            default:
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        if (skippingRow) {
+            skippingRow = !ROW_ELEMENT.equals(localName);
+            return;
+        }
+        switch (localName) {
+            case ROW_ELEMENT:
+                endRow();
+                break;
+            case CELL_ELEMENT:
+                endCell();
+                break;
+            case INLINE_STRING_ELEMENT:
+                readingInlineString = false;
+                break;
+            case VALUE_ELEMENT:
+            case FORMULA_ELEMENT:
+            case INLINE_TEXT_ELEMENT:
+                currentText = null;
+                break;
+            default:
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        if (currentText != null) {
+            currentText.append(ch, start, length);
+        }
+    }
+
+    private void endCell() {
+        if (projection != null) {
+            endProjectedCell();
+            return;
+        }
+        //fill the missing cells between the previous cell and this one
+        for (int i = nextColumnIndex; i < cellColumnIndex; i++) {
+            currentRow.addCell(new ExcelCell(""));
+        }
+        boolean isBlank = !cellHasFormula && cellValue.length() == 0 && !"inlineStr".equals(cellType);
+        if (!isBlank) {
+            currentRowIsEmpty = false;
+        }
+        currentRow.addCell(new ExcelCell(isBlank ? "" : pool(readCellValue())));
+        nextColumnIndex = cellColumnIndex + 1;
+    }
+
+    /**
+     * Keeps the current cell at its position in the read row, the cell of a dropped column is not converted.
+     */
+    private void endProjectedCell() {
+        nextColumnIndex = cellColumnIndex + 1;
+        if (cellDropped) {
+            return;
+        }
+        int position = projection.getPosition(cellColumnIndex);
+        boolean isBlank = !cellHasFormula && cellValue.length() == 0 && !"inlineStr".equals(cellType);
+        if (isBlank) {
+            return;
+        }
+        currentRowIsEmpty = false;
+        if (position >= projectedCells.length) {
+            projectedCells = Arrays.copyOf(projectedCells, Math.max(position + 1, projectedCells.length * 2));
+        }
+        projectedCells[position] = new ExcelCell(pool(readCellValue()));
+    }
+
+    private void endRow() {
+        if (projection != null) {
+            endProjectedRow();
+            return;
+        }
+        // the row's last cell number is counted even for empty rows, as the usermodel does
+        maxCellsNumber = Math.max(maxCellsNumber, currentRow.getSize());
+        if (keepEmptyRows || !currentRowIsEmpty) {
+            rowConsumer.accept(currentRow);
+        }
+        currentRow = null;
+    }
+
+    /**
+     * Builds the read row from the kept cells, at the width given by the projection,
+     * the kept cells missing in the row are read as blanks.
+     */
+    private void endProjectedRow() {
+        maxCellsNumber = Math.max(maxCellsNumber, nextColumnIndex);
+        int width = projection.getWidth(nextColumnIndex);
+        if (keepEmptyRows || !currentRowIsEmpty) {
+            List<ECell> cells = new ArrayList<>(width);
+            for (int i = 0; i < width; i++) {
+                ECell cell = i < projectedCells.length ? projectedCells[i] : null;
+                cells.add(cell == null ? new ExcelCell("") : cell);
+            }
+            ERow row = projection.accept(new ExcelRow(cells));
+            if (row != null) {
+                rowConsumer.accept(row);
+            }
+        }
+        Arrays.fill(projectedCells, null);
+    }
+
+    /**
+     * Converts the raw value of the current cell into a String, following the rules of
+     * {@code ExcelReader.readCell}.
+     *
+     * @return the text value of the current cell
+     */
+    private String readCellValue() {
+        String rawValue = cellValue.toString();
+        if (cellHasFormula) {
+            return readFormulaCachedResult(rawValue);
+        }
+        if (cellType == null || "n".equals(cellType)) {
+            return formatNumber(rawValue);
+        }
+        switch (cellType) {
+            case "s":
+                return sharedStrings.getItemAt(Integer.parseInt(rawValue)).getString();
+            case "b":
+                return "0".equals(rawValue) ? "FALSE" : "TRUE";
+            default:
+                // errors, inlineStr and str are already stored as text
+                return rawValue;
+        }
+    }
+
+    private String pool(String value) {
+        return valuesPool == null ? value : valuesPool.pool(value);
+    }
+
+    private String readFormulaCachedResult(String rawValue) {
+        if (cellType == null || "n".equals(cellType)) {
+            return String.valueOf(rawValue.isEmpty() ? 0 : Double.parseDouble(rawValue));
+        }
+        switch (cellType) {
+            case "b":
+                return String.valueOf(!"0".equals(rawValue));
+            case "e":
+                //without evaluator the usermodel returns the formula itself for errors
+                return formulaValue.toString();
+            default:
+                return rawValue;
+        }
+    }
+
+    private String formatNumber(String rawValue) {
+        double value = Double.parseDouble(rawValue);
+        int formatIndex = 0;
+        String formatString = null;
+        if (cellStyle != null && stylesTable != null) {
+            XSSFCellStyle style = stylesTable.getStyleAt(Integer.parseInt(cellStyle));
+            if (style != null) {
+                formatIndex = style.getDataFormat();
+                formatString = style.getDataFormatString();
+            }
+        }
+        if (formatString == null) {
+            formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+        }
+        return dataFormatter.formatRawCellContents(value, formatIndex, formatString);
+    }
+
+    /**
+     * Builds the sheet from the rows read, short rows are padded with blanks
+     * to have the same number of cells as the widest row.
+     *
+     * @return an {@code ESheet} that contains the rows read
+     */
+    ESheet buildSheet() {
+        if (projection == null) {
+            return ExcelReader.buildSheet(sheetName, rows, maxCellsNumber);
+        }
+        return projection.finish(ExcelReader.buildSheet(sheetName, rows, projection.getWidth(maxCellsNumber)));
+    }
+}
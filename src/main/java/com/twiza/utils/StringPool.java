@@ -0,0 +1,86 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A dictionary of the values read from a sheet or a workbook, equal values are replaced by
+ * the first instance read, so repeated values (statuses, codes, categories...) are stored once in memory,
+ * and comparing them ends on the identity check of {@link String#equals(Object)}.
+ * <p>
+ * the pool stops adding new values once it holds {@code maxSize} distinct values,
+ * values that were not pooled are returned as they are.
+ * It can be shared by the threads reading the sheets of the same workbook.
+ *
+ * @author Mohamed.Chamlal
+ */
+final class StringPool {
+    /**
+     * the default maximum number of distinct values kept by a pool.
+     */
+    static final int DEFAULT_MAX_SIZE = 1 << 16;
+
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxSize;
+
+    StringPool() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    StringPool(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("the max size of the pool cannot be negative, provided: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the pooled instance equal to the provided value, the value itself is pooled
+     * if it's the first time it's seen and the pool is not full.
+     *
+     * @param value the value to pool
+     * @return an instance equal to {@code value}, shared by all the equal values read before
+     */
+    String pool(String value) {
+        String pooledValue = values.get(value);
+        if (pooledValue != null) {
+            return pooledValue;
+        }
+        if (size.get() >= maxSize) {
+            return value;
+        }
+        pooledValue = values.putIfAbsent(value, value);
+        if (pooledValue != null) {
+            return pooledValue;
+        }
+        size.incrementAndGet();
+        return value;
+    }
+
+    /**
+     * Returns the number of distinct values in this pool.
+     *
+     * @return the number of distinct values in this pool
+     */
+    int size() {
+        return size.get();
+    }
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.utils;
+
+import com.twiza.domain.*;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Generates two versions of a workbook, written to xlsx files with the POI streaming API,
+ * to load test the reading and the comparison of workbooks with controlled sizes and contents.
+ * <p>
+ * Each sheet starts with a row of headers, followed by rows whose first column is a unique key.
+ * Every generated key is, with the configured ratios, only in the new version (ADDED), only in the
+ * old version (DELETED), in both versions with one different value (CHANGED), or in both versions
+ * with the same values (NEW). The values are drawn from {@link #setValuesCardinality(int)} distinct values,
+ * the last {@link #setFormulaColumnsNumber(int)} columns hold formulas with their cached result,
+ * and rows can be written twice (duplicate keys with the same values) or followed by a blank row.
+ * <p>
+ * The generation is deterministic for a given seed. The number of rows expected in the diff for each
+ * {@link Status} is counted while the rows are written, and the workbooks as {@link ExcelReader} reads them
+ * can be kept in memory with {@link #setModelKept(boolean)}, so the result of
+ * {@link EWorkbook#compare(EWorkbook)} on the generated files can be asserted.
+ *
+ * @author Mohamed.Chamlal
+ */
+public class WorkbookGenerator {
+    public static final long DEFAULT_SEED = 42;
+    private static final String SHEET_NAME_PREFIX = "Sheet";
+    private static final String KEY_HEADER = "Key";
+    private static final String VALUE_HEADER_PREFIX = "Column";
+    private static final String FORMULA_HEADER_PREFIX = "Formula";
+    private static final String KEY_PREFIX = "Key";
+    private static final String VALUE_PREFIX = "Value";
+    private static final String CHANGED_VALUE_SUFFIX = "*";
+    private static final int KEY_INDEX = 0;
+    private static final int MIN_COLUMNS_NUMBER = 2;
+
+    private int sheetsNumber = 1;
+    private int rowsNumber = 1000;
+    private int columnsNumber = 10;
+    private int valuesCardinality = 100;
+    private int formulaColumnsNumber = 0;
+    private double addedRowsRatio = 0;
+    private double deletedRowsRatio = 0;
+    private double changedRowsRatio = 0;
+    private double duplicateRowsRatio = 0;
+    private double blankRowsRatio = 0;
+    private long seed = DEFAULT_SEED;
+    private boolean modelKept = false;
+
+    /**
+     * @param sheetsNumber the number of sheets of each workbook, named Sheet1, Sheet2...
+     * @return this generator
+     * @throws IllegalArgumentException if the number is less than 1
+     */
+    public WorkbookGenerator setSheetsNumber(int sheetsNumber) {
+        this.sheetsNumber = checkPositive(sheetsNumber, "sheetsNumber");
+        return this;
+    }
+
+    /**
+     * @param rowsNumber the number of generated keys of each sheet, the headers, duplicate and blank rows aside
+     * @return this generator
+     * @throws IllegalArgumentException if the number is less than 1
+     */
+    public WorkbookGenerator setRowsNumber(int rowsNumber) {
+        this.rowsNumber = checkPositive(rowsNumber, "rowsNumber");
+        return this;
+    }
+
+    /**
+     * @param columnsNumber the number of columns of each sheet, including the key and the formula columns
+     * @return this generator
+     * @throws IllegalArgumentException if the number is less than 2
+     */
+    public WorkbookGenerator setColumnsNumber(int columnsNumber) {
+        if (columnsNumber < MIN_COLUMNS_NUMBER) {
+            throw new IllegalArgumentException("columnsNumber should be at least " + MIN_COLUMNS_NUMBER);
+        }
+        this.columnsNumber = columnsNumber;
+        return this;
+    }
+
+    /**
+     * @param valuesCardinality the number of distinct values of the non key columns
+     * @return this generator
+     * @throws IllegalArgumentException if the number is less than 1
+     */
+    public WorkbookGenerator setValuesCardinality(int valuesCardinality) {
+        this.valuesCardinality = checkPositive(valuesCardinality, "valuesCardinality");
+        return this;
+    }
+
+    /**
+     * @param formulaColumnsNumber the number of last columns that hold the length of a value column,
+     *                             computed by a formula whose result is cached in the file
+     * @return this generator
+     * @throws IllegalArgumentException if the number is negative
+     */
+    public WorkbookGenerator setFormulaColumnsNumber(int formulaColumnsNumber) {
+        if (formulaColumnsNumber < 0) {
+            throw new IllegalArgumentException("formulaColumnsNumber cannot be negative");
+        }
+        this.formulaColumnsNumber = formulaColumnsNumber;
+        return this;
+    }
+
+    /**
+     * @param addedRowsRatio the fraction of the keys that are only in the new version
+     * @return this generator
+     * @throws IllegalArgumentException if the ratio is not between 0 and 1
+     */
+    public WorkbookGenerator setAddedRowsRatio(double addedRowsRatio) {
+        this.addedRowsRatio = checkRatio(addedRowsRatio, "addedRowsRatio");
+        return this;
+    }
+
+    /**
+     * @param deletedRowsRatio the fraction of the keys that are only in the old version
+     * @return this generator
+     * @throws IllegalArgumentException if the ratio is not between 0 and 1
+     */
+    public WorkbookGenerator setDeletedRowsRatio(double deletedRowsRatio) {
+        this.deletedRowsRatio = checkRatio(deletedRowsRatio, "deletedRowsRatio");
+        return this;
+    }
+
+    /**
+     * @param changedRowsRatio the fraction of the keys that are in both versions with one different value
+     * @return this generator
+     * @throws IllegalArgumentException if the ratio is not between 0 and 1
+     */
+    public WorkbookGenerator setChangedRowsRatio(double changedRowsRatio) {
+        this.changedRowsRatio = checkRatio(changedRowsRatio, "changedRowsRatio");
+        return this;
+    }
+
+    /**
+     * @param duplicateRowsRatio the fraction of the rows written twice in a row, with the same key and values
+     * @return this generator
+     * @throws IllegalArgumentException if the ratio is not between 0 and 1
+     */
+    public WorkbookGenerator setDuplicateRowsRatio(double duplicateRowsRatio) {
+        this.duplicateRowsRatio = checkRatio(duplicateRowsRatio, "duplicateRowsRatio");
+        return this;
+    }
+
+    /**
+     * @param blankRowsRatio the fraction of the rows followed by a row of blank cells
+     * @return this generator
+     * @throws IllegalArgumentException if the ratio is not between 0 and 1
+     */
+    public WorkbookGenerator setBlankRowsRatio(double blankRowsRatio) {
+        this.blankRowsRatio = checkRatio(blankRowsRatio, "blankRowsRatio");
+        return this;
+    }
+
+    /**
+     * @param seed the seed of the random values, the same seed and settings generate the same workbooks
+     * @return this generator
+     */
+    public WorkbookGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @param modelKept whether the generated workbooks are also kept in memory, as {@link ExcelReader} reads them,
+     *                  it should stay {@code false} for workbooks that don't fit in the heap
+     * @return this generator
+     */
+    public WorkbookGenerator setModelKept(boolean modelKept) {
+        this.modelKept = modelKept;
+        return this;
+    }
+
+    /**
+     * Writes the old and the new versions of the workbook, only a window of rows is kept in memory
+     * unless the model is kept.
+     *
+     * @param oldWorkbookPath the path of the old version, overwritten if it exists
+     * @param newWorkbookPath the path of the new version, overwritten if it exists
+     * @return the paths of the generated workbooks, and what their diff should contain
+     * @throws IOException           if the workbooks cannot be written
+     * @throws IllegalStateException if the ratios of added, deleted and changed rows sum up to more than 1,
+     *                               or if there are not less formula columns than non key columns
+     */
+    public GeneratedWorkbooks generate(Path oldWorkbookPath, Path newWorkbookPath) throws IOException {
+        Objects.requireNonNull(oldWorkbookPath);
+        Objects.requireNonNull(newWorkbookPath);
+        if (addedRowsRatio + deletedRowsRatio + changedRowsRatio > 1) {
+            throw new IllegalStateException("the ratios of added, deleted and changed rows sum up to more than 1");
+        }
+        if (formulaColumnsNumber >= columnsNumber - 1) {
+            throw new IllegalStateException("at least one column besides the key should not be a formula");
+        }
+        GeneratedWorkbooks generated = new GeneratedWorkbooks(oldWorkbookPath, newWorkbookPath);
+        List<ESheet> oldSheets = new ArrayList<>();
+        List<ESheet> newSheets = new ArrayList<>();
+        Random random = new Random(seed);
+        SXSSFWorkbook oldWorkbook = new SXSSFWorkbook();
+        SXSSFWorkbook newWorkbook = new SXSSFWorkbook();
+        try {
+            for (int i = 1; i <= sheetsNumber; i++) {
+                String sheetName = SHEET_NAME_PREFIX + i;
+                GeneratedSheet oldSheet = new GeneratedSheet(oldWorkbook.createSheet(sheetName));
+                GeneratedSheet newSheet = new GeneratedSheet(newWorkbook.createSheet(sheetName));
+                generateSheet(oldSheet, newSheet, random, generated);
+                if (modelKept) {
+                    oldSheets.add(oldSheet.model);
+                    newSheets.add(newSheet.model);
+                }
+            }
+            save(oldWorkbook, oldWorkbookPath);
+            save(newWorkbook, newWorkbookPath);
+        } finally {
+            oldWorkbook.dispose();
+            oldWorkbook.close();
+            newWorkbook.dispose();
+            newWorkbook.close();
+        }
+        if (modelKept) {
+            generated.oldWorkbook = new ExcelWorkbook(oldWorkbookPath, oldSheets);
+            generated.newWorkbook = new ExcelWorkbook(newWorkbookPath, newSheets);
+        }
+        return generated;
+    }
+
+    private void generateSheet(GeneratedSheet oldSheet, GeneratedSheet newSheet, Random random,
+                               GeneratedWorkbooks generated) {
+        String[] headers = buildHeaders();
+        oldSheet.writeRow(headers, false);
+        newSheet.writeRow(headers, false);
+        int valueColumnsNumber = columnsNumber - formulaColumnsNumber;
+        for (int i = 0; i < rowsNumber; i++) {
+            String[] values = new String[valueColumnsNumber];
+            values[KEY_INDEX] = KEY_PREFIX + i;
+            for (int j = 1; j < valueColumnsNumber; j++) {
+                values[j] = VALUE_PREFIX + random.nextInt(valuesCardinality);
+            }
+            Status status = drawStatus(random.nextDouble());
+            String[] newValues = values;
+            if (status == Status.CHANGED) {
+                newValues = values.clone();
+                int changedColumn = 1 + random.nextInt(valueColumnsNumber - 1);
+                newValues[changedColumn] += CHANGED_VALUE_SUFFIX;
+            }
+            boolean isDuplicated = random.nextDouble() < duplicateRowsRatio;
+            boolean isFollowedByBlankRow = random.nextDouble() < blankRowsRatio;
+            if (status != Status.ADDED) {
+                oldSheet.writeRows(values, isDuplicated, isFollowedByBlankRow);
+            }
+            if (status != Status.DELETED) {
+                newSheet.writeRows(newValues, isDuplicated, isFollowedByBlankRow);
+            }
+            generated.count(status);
+        }
+    }
+
+    private Status drawStatus(double draw) {
+        if (draw < addedRowsRatio) {
+            return Status.ADDED;
+        }
+        if (draw < addedRowsRatio + deletedRowsRatio) {
+            return Status.DELETED;
+        }
+        if (draw < addedRowsRatio + deletedRowsRatio + changedRowsRatio) {
+            return Status.CHANGED;
+        }
+        return Status.NEW;
+    }
+
+    private String[] buildHeaders() {
+        int valueColumnsNumber = columnsNumber - formulaColumnsNumber;
+        String[] headers = new String[valueColumnsNumber];
+        headers[KEY_INDEX] = KEY_HEADER;
+        for (int j = 1; j < valueColumnsNumber; j++) {
+            headers[j] = VALUE_HEADER_PREFIX + j;
+        }
+        return headers;
+    }
+
+    private void save(SXSSFWorkbook workbook, Path workbookPath) throws IOException {
+        try (OutputStream outputStream = Files.newOutputStream(workbookPath)) {
+            workbook.write(outputStream);
+        }
+    }
+
+    private static int checkPositive(int value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " should be positive");
+        }
+        return value;
+    }
+
+    private static double checkRatio(double ratio, String name) {
+        if (!(ratio >= 0 && ratio <= 1)) {
+            throw new IllegalArgumentException(name + " should be between 0 and 1");
+        }
+        return ratio;
+    }
+
+    /**
+     * One version of a generated sheet, with the model of its rows when it's kept.
+     */
+    private final class GeneratedSheet {
+        private final Sheet sheet;
+        private final ESheet model;
+        private int rowIndex;
+
+        private GeneratedSheet(Sheet sheet) {
+            this.sheet = sheet;
+            this.model = modelKept ? new ExcelSheet(sheet.getSheetName()) : null;
+        }
+
+        private void writeRows(String[] values, boolean isDuplicated, boolean isFollowedByBlankRow) {
+            writeRow(values, true);
+            if (isDuplicated) {
+                writeRow(values, true);
+            }
+            if (isFollowedByBlankRow) {
+                writeBlankRow();
+            }
+        }
+
+        /**
+         * writes the values followed by the formula columns, the formulas compute the length of a value column,
+         * their result is cached as a number, unless the row is the headers row.
+         */
+        private void writeRow(String[] values, boolean isDataRow) {
+            Row row = sheet.createRow(rowIndex);
+            List<ECell> cells = modelKept ? new ArrayList<>(columnsNumber) : null;
+            for (int j = 0; j < values.length; j++) {
+                row.createCell(j).setCellValue(values[j]);
+                if (modelKept) {
+                    cells.add(new ExcelCell(values[j]));
+                }
+            }
+            for (int j = values.length; j < columnsNumber; j++) {
+                Cell cell = row.createCell(j);
+                String cellValue;
+                if (isDataRow) {
+                    int referencedColumn = 1 + (j - values.length) % (values.length - 1);
+                    cell.setCellFormula("LEN(" + CellReference.convertNumToColString(referencedColumn) + (rowIndex + 1) + ")");
+                    double cachedResult = values[referencedColumn].length();
+                    cell.setCellValue(cachedResult);
+                    cellValue = String.valueOf(cachedResult);
+                } else {
+                    cellValue = FORMULA_HEADER_PREFIX + (j - values.length + 1);
+                    cell.setCellValue(cellValue);
+                }
+                if (modelKept) {
+                    cells.add(new ExcelCell(cellValue));
+                }
+            }
+            if (modelKept) {
+                model.addRow(new ExcelRow(cells));
+            }
+            rowIndex++;
+        }
+
+        /**
+         * writes a row of blank cells, which is skipped when the workbook is read.
+         */
+        private void writeBlankRow() {
+            Row row = sheet.createRow(rowIndex++);
+            for (int j = 0; j < columnsNumber; j++) {
+                row.createCell(j);
+            }
+        }
+    }
+
+    /**
+     * The generated workbooks, and the number of rows of each {@link Status} expected in their diff.
+     */
+    public static final class GeneratedWorkbooks {
+        private final Path oldWorkbookPath;
+        private final Path newWorkbookPath;
+        private final Map<Status, Integer> expectedRowsNumbers = new EnumMap<>(Status.class);
+        private EWorkbook oldWorkbook;
+        private EWorkbook newWorkbook;
+
+        private GeneratedWorkbooks(Path oldWorkbookPath, Path newWorkbookPath) {
+            this.oldWorkbookPath = oldWorkbookPath;
+            this.newWorkbookPath = newWorkbookPath;
+        }
+
+        private void count(Status status) {
+            expectedRowsNumbers.merge(status, 1, Integer::sum);
+        }
+
+        public Path getOldWorkbookPath() {
+            return oldWorkbookPath;
+        }
+
+        public Path getNewWorkbookPath() {
+            return newWorkbookPath;
+        }
+
+        /**
+         * Returns the number of distinct keys of all the sheets that should have the provided status
+         * in the diff of the new version with the old one, once their first rows are adopted as headers.
+         *
+         * @param status the status of the diff rows
+         * @return the number of keys expected with this status
+         */
+        public int getExpectedRowsNumber(Status status) {
+            return expectedRowsNumbers.getOrDefault(status, 0);
+        }
+
+        /**
+         * @return the old version as {@link ExcelReader} should read it, {@code null} if the model wasn't kept
+         */
+        public EWorkbook getOldWorkbook() {
+            return oldWorkbook;
+        }
+
+        /**
+         * @return the new version as {@link ExcelReader} should read it, {@code null} if the model wasn't kept
+         */
+        public EWorkbook getNewWorkbook() {
+            return newWorkbook;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright  2020  Chamlal.Mohamed
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twiza.utils;
+
+import com.twiza.domain.ESheet;
+import com.twiza.domain.EWorkbook;
+import com.twiza.domain.ExcelWorkbook;
+import com.twiza.exceptions.WorkbookWithInvalidFormatException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A cache on disk of the workbooks parsed by {@link ExcelReader}, so a workbook that is read again,
+ * like an old revision diffed against each new one, is loaded from its snapshot instead of being parsed by POI.
+ * <p>
+ * A snapshot is found by the SHA-256 hash of the workbook's content, its file name and the read options
+ * that change the read sheets: the ignored sheets patterns and {@code keepEmptyRows}. Snapshots hold the sheets
+ * in the binary form of {@link SheetCodec}, and are memory mapped when they are loaded.
+ * <p>
+ * Several processes can share the same cache directory: a snapshot is written to a temporary file
+ * then moved to its name, so a snapshot is either complete or absent, and a snapshot that cannot be loaded
+ * is read again from the workbook. When the snapshots exceed the maximum size, the least recently used ones
+ * are deleted, a snapshot is used when it's written or loaded.
+ *
+ * @author Mohamed.Chamlal
+ */
+public class WorkbookSnapshotCache {
+    /**
+     * the default maximum size of the snapshots, in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 1024L * 1024 * 1024;
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+    private static final int WORKBOOK_MAGIC = 0x4557424b;// "EWBK"
+    private static final short FORMAT_VERSION = 1;
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+    /**
+     * temporary files older than this were left by a process that stopped while writing a snapshot.
+     */
+    private static final long STALE_TEMP_FILE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Path cacheDirectory;
+    private final long maxSize;
+    private final AtomicLong hitsNumber = new AtomicLong();
+    private final AtomicLong missesNumber = new AtomicLong();
+
+    /**
+     * @param cacheDirectory the directory of the snapshots, created if it doesn't exist
+     */
+    public WorkbookSnapshotCache(Path cacheDirectory) {
+        this(cacheDirectory, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param cacheDirectory the directory of the snapshots, created if it doesn't exist
+     * @param maxSize        the maximum size of the snapshots, in bytes
+     * @throws IllegalArgumentException if the maximum size is less than 1
+     */
+    public WorkbookSnapshotCache(Path cacheDirectory, long maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize should be positive");
+        }
+        this.cacheDirectory = Objects.requireNonNull(cacheDirectory);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Reads the workbook from its snapshot if the cache has one, otherwise reads it with {@link ExcelReader}
+     * and adds its snapshot to the cache.
+     *
+     * @param workbookPath the path of the workbook to be read
+     * @return an instance of {@link EWorkbook} that contains the workbook's data
+     * @throws IOException                        if the path provided doesn't exist or is not an excel file.
+     * @throws WorkbookWithInvalidFormatException if the input file is corrupted(files with invalid format)
+     */
+    public EWorkbook read(Path workbookPath) throws IOException {
+        return read(workbookPath, null, false, ExcelReader.ReadMode.USER_MODEL);
+    }
+
+    /**
+     * Reads the workbook from its snapshot if the cache has one, otherwise reads it with {@link ExcelReader}
+     * and adds its snapshot to the cache. The read mode is only used to parse the workbook,
+     * both modes share the same snapshots.
+     *
+     * @param workbookPath          the path of the workbook to be read
+     * @param ignoredSheetsPatterns glob patterns of the sheets to ignore
+     * @param keepEmptyRows         whether the empty rows should be kept
+     * @param readMode              the way the workbook is parsed when it's not in the cache
+     * @return an instance of {@link EWorkbook} that contains the workbook's data
+     * @throws IOException                        if the path provided doesn't exist or is not an excel file.
+     * @throws WorkbookWithInvalidFormatException if the input file is corrupted(files with invalid format)
+     */
+    public EWorkbook read(Path workbookPath, List<String> ignoredSheetsPatterns, boolean keepEmptyRows,
+                          ExcelReader.ReadMode readMode) throws IOException {
+        Objects.requireNonNull(workbookPath);
+        Path snapshotPath = cacheDirectory.resolve(snapshotKey(workbookPath, ignoredSheetsPatterns, keepEmptyRows)
+                                                           + SNAPSHOT_EXTENSION);
+        EWorkbook workbook = loadSnapshot(snapshotPath, workbookPath);
+        if (workbook != null) {
+            hitsNumber.incrementAndGet();
+            return workbook;
+        }
+        missesNumber.incrementAndGet();
+        workbook = ExcelReader.getInstance().read(workbookPath, ignoredSheetsPatterns, keepEmptyRows, readMode);
+        if (workbook != null) {
+            writeSnapshot(workbook, snapshotPath);
+            evictLeastRecentlyUsed();
+        }
+        return workbook;
+    }
+
+    /**
+     * @return the number of reads loaded from a snapshot
+     */
+    public long getHitsNumber() {
+        return hitsNumber.get();
+    }
+
+    /**
+     * @return the number of reads that parsed the workbook
+     */
+    public long getMissesNumber() {
+        return missesNumber.get();
+    }
+
+    /**
+     * Loads the snapshot, a snapshot that is missing, deleted meanwhile by another process, or corrupted
+     * is a cache miss, corrupted snapshots are deleted.
+     *
+     * @return the snapshot's workbook, {@code null} if it cannot be loaded
+     */
+    private EWorkbook loadSnapshot(Path snapshotPath, Path workbookPath) {
+        if (!Files.isRegularFile(snapshotPath)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            EWorkbook workbook = readWorkbook(buffer, workbookPath);
+            touch(snapshotPath);
+            return workbook;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | WorkbookWithInvalidFormatException e) {
+            deleteQuietly(snapshotPath);
+            return null;
+        }
+    }
+
+    private EWorkbook readWorkbook(ByteBuffer buffer, Path workbookPath) {
+        if (buffer.remaining() < Integer.BYTES + Short.BYTES + Integer.BYTES
+                    || buffer.getInt() != WORKBOOK_MAGIC || buffer.getShort() != FORMAT_VERSION) {
+            throw new WorkbookWithInvalidFormatException("Not a workbook snapshot of version " + FORMAT_VERSION);
+        }
+        // a sheet block takes more than a count, so the count is checked against the remaining bytes
+        int sheetsNumber = SheetCodec.getCount(buffer, Integer.BYTES);
+        List<ESheet> sheets = new ArrayList<>(sheetsNumber);
+        for (int i = 0; i < sheetsNumber; i++) {
+            sheets.add(SheetCodec.read(buffer));
+        }
+        if (buffer.hasRemaining()) {
+            throw new WorkbookWithInvalidFormatException("Unexpected bytes after the last sheet of the snapshot");
+        }
+        return new ExcelWorkbook(workbookPath, sheets);
+    }
+
+    /**
+     * Writes the snapshot to a temporary file of the cache directory, then moves it to its name,
+     * so the other processes never see a partial snapshot.
+     */
+    private void writeSnapshot(EWorkbook workbook, Path snapshotPath) throws IOException {
+        Files.createDirectories(cacheDirectory);
+        Path tempPath = Files.createTempFile(cacheDirectory, snapshotPath.getFileName().toString(), TEMP_FILE_EXTENSION);
+        try {
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                SheetCodec.ChannelOutput output = new SheetCodec.ChannelOutput(channel);
+                output.putInt(WORKBOOK_MAGIC);
+                output.putShort(FORMAT_VERSION);
+                output.putInt(workbook.getSheets().size());
+                for (ESheet sheet : workbook.getSheets().values()) {
+                    SheetCodec.write(sheet, output);
+                }
+                output.flush();
+            }
+            try {
+                Files.move(tempPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            deleteQuietly(tempPath);
+        }
+    }
+
+    /**
+     * Deletes the least recently used snapshots until the snapshots fit in the maximum size,
+     * and the temporary files left by stopped processes. Files deleted meanwhile by other processes are skipped.
+     */
+    private synchronized void evictLeastRecentlyUsed() throws IOException {
+        List<SnapshotFile> snapshots = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        try (Stream<Path> paths = Files.list(cacheDirectory)) {
+            for (Path path : paths.collect(Collectors.toList())) {
+                try {
+                    String fileName = path.getFileName().toString();
+                    long lastModified = Files.getLastModifiedTime(path).toMillis();
+                    if (fileName.endsWith(SNAPSHOT_EXTENSION)) {
+                        snapshots.add(new SnapshotFile(path, Files.size(path), lastModified));
+                    } else if (fileName.endsWith(TEMP_FILE_EXTENSION) && now - lastModified > STALE_TEMP_FILE_MILLIS) {
+                        deleteQuietly(path);
+                    }
+                } catch (NoSuchFileException e) {
+                    // deleted by another process
+                }
+            }
+        }
+        long size = snapshots.stream().mapToLong(snapshot -> snapshot.size).sum();
+        snapshots.sort(Comparator.comparingLong(snapshot -> snapshot.lastModified));
+        for (SnapshotFile snapshot : snapshots) {
+            if (size <= maxSize) {
+                return;
+            }
+            deleteQuietly(snapshot.path);
+            size -= snapshot.size;
+        }
+    }
+
+    private String snapshotKey(Path workbookPath, List<String> ignoredSheetsPatterns, boolean keepEmptyRows)
+            throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(workbookPath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        // the ignored sheets patterns are matched against the workbook's file name
+        StringBuilder options = new StringBuilder().append('\0').append(workbookPath.getFileName())
+                                                   .append('\0').append(keepEmptyRows)
+                                                   .append('\0').append(FORMAT_VERSION);
+        if (ignoredSheetsPatterns != null) {
+            ignoredSheetsPatterns.forEach(pattern -> options.append('\0').append(pattern));
+        }
+        digest.update(options.toString().getBytes(StandardCharsets.UTF_8));
+        StringBuilder key = new StringBuilder();
+        for (byte hashByte : digest.digest()) {
+            key.append(Character.forDigit((hashByte >> 4) & 0xF, 16)).append(Character.forDigit(hashByte & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void touch(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // the snapshot is only used less recently than it should, it was probably evicted meanwhile
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // another process may be holding the file, it will be deleted by a later eviction
+        }
+    }
+
+    private static final class SnapshotFile {
+        private final Path path;
+        private final long size;
+        private final long lastModified;
+
+        private SnapshotFile(Path path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.twiza.domain;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class ColumnarSheetTests {
+    private static final List<String> HEADERS = Arrays.asList("Key", "Header1", "Header2");
+
+    @Test
+    public void columnarSheetHasSameDataAsExcelSheet() {
+        ESheet excelSheet = new ExcelSheet("Sheet", buildRows(10, 0), HEADERS);
+        ESheet columnarSheet = new ColumnarSheet("Sheet", buildRows(10, 0), HEADERS);
+        Assert.assertEquals(excelSheet.getData(), columnarSheet.getData());
+        Assert.assertEquals(excelSheet.getUniqueData(), columnarSheet.getUniqueData());
+        Assert.assertEquals(3, columnarSheet.getColumnsNumber());
+        Assert.assertEquals(10, columnarSheet.getRowsNumber());
+        Assert.assertEquals(columnarSheet, new ColumnarSheet(excelSheet));
+    }
+
+    @Test
+    public void compareGivesSameResultAsExcelSheet() {
+        ESheet excelDiff = new ExcelSheet("Sheet", buildRows(100, 1), HEADERS)
+                                   .compare(new ExcelSheet("Sheet", buildRows(100, 0), HEADERS));
+        ESheet columnarDiff = new ColumnarSheet("Sheet", buildRows(100, 1), HEADERS)
+                                      .compare(new ColumnarSheet("Sheet", buildRows(100, 0), HEADERS));
+        Assert.assertEquals(Status.CHANGED, columnarDiff.getStatus());
+        Assert.assertEquals(excelDiff.getData(), columnarDiff.getData());
+        Assert.assertEquals(statuses(excelDiff), statuses(columnarDiff));
+        Assert.assertEquals(9, columnarDiff.getData().stream().filter(row -> row.getStatus() == Status.CHANGED).count());
+        Assert.assertEquals(1, columnarDiff.getData().stream().filter(row -> row.getStatus() == Status.DELETED).count());
+        Assert.assertEquals(1, columnarDiff.getData().stream().filter(row -> row.getStatus() == Status.ADDED).count());
+    }
+
+    @Test
+    public void compareKeepsChangesHistoryOfChangedCellsOnly() {
+        ESheet diffSheet = new ColumnarSheet("Sheet", buildRows(20, 1), HEADERS)
+                                   .compare(new ExcelSheet("Sheet", buildRows(20, 0), HEADERS));
+        for (ERow row : diffSheet.getData()) {
+            for (ECell cell : row.getCells()) {
+                Assert.assertEquals(cell.getStatus() == Status.CHANGED, !cell.getChangesHistory().isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void rowsViewsReadAndUpdateTheSheet() {
+        ESheet sheet = new ColumnarSheet("Sheet", buildRows(5, 0), HEADERS);
+        ERow row = sheet.getRow(RowKey.of("Key2"));
+        Assert.assertEquals(Arrays.asList("Key2", "value21", "value22"), row.getCellsValues());
+        Assert.assertEquals("value21", row.getCell(1).updateValue("newValue"));
+        Assert.assertEquals("newValue", sheet.getRow(2).getCell(1).getValue());
+        Assert.assertEquals(Status.CHANGED, sheet.getRow(2).getCell(1).getStatus());
+        Assert.assertFalse(sheet.getRow(2).getCell(1).getChangesHistory().isEmpty());
+    }
+
+    @Test
+    public void rowsViewsCompareGivesRowsDetachedFromTheOldRow() {
+        ESheet sheet = new ColumnarSheet("Sheet", buildRows(5, 0), HEADERS);
+        ERow oldRow = buildRow("Key2", "value21", "value22");
+        ERow view = sheet.getRow(2);
+        Assert.assertSame(view, view.compare(oldRow));
+        oldRow.getCell(2).updateValue("oldValue");
+        ERow diffRow = view.compare(oldRow);
+        Assert.assertNotSame(oldRow, diffRow);
+        Assert.assertEquals(Status.CHANGED, diffRow.getStatus());
+        Assert.assertEquals("value22", diffRow.getCell(2).getValue());
+        diffRow.getCell(1).updateValue("newValue");
+        Assert.assertEquals("value21", oldRow.getCell(1).getValue());
+    }
+
+    @Test
+    public void deleteRowsMovesRemainingRowsAndHistories() {
+        ESheet sheet = new ColumnarSheet("Sheet", buildRows(6, 0), HEADERS);
+        sheet.getRow(4).getCell(2).updateValue("changed");
+        sheet.deleteRows(0, 2);
+        sheet.deleteRow(sheet.getRow(0));
+        Assert.assertEquals(3, sheet.getRowsNumber());
+        Assert.assertEquals("Key3", sheet.getRow(0).getCell(0).getValue());
+        Assert.assertEquals("changed", sheet.getRow(1).getCell(2).getValue());
+        Assert.assertFalse(sheet.getRow(1).getCell(2).getChangesHistory().isEmpty());
+        Assert.assertTrue(sheet.getRow(0).getCell(2).getChangesHistory().isEmpty());
+        Assert.assertNull(sheet.getRow("Key0"));
+        Assert.assertNotNull(sheet.getRow("Key5"));
+    }
+
+    @Test
+    public void addRowAtPositionMovesFollowingRows() {
+        ESheet sheet = new ColumnarSheet("Sheet", buildRows(3, 0), HEADERS);
+        sheet.addRow(1, buildRow("NewKey", "a", "b"));
+        sheet.addRow(0, new ExcelRow(Arrays.asList(new ExcelCell("Blanks"))), true);
+        Assert.assertEquals(Arrays.asList("Blanks", "", ""), sheet.getRow(0).getCellsValues());
+        Assert.assertEquals("NewKey", sheet.getRow(2).getCell(0).getValue());
+        Assert.assertEquals("Key1", sheet.getRow(3).getCell(0).getValue());
+        Assert.assertEquals(5, sheet.getRowsNumber());
+    }
+
+    @Test
+    public void columnsOperationsGiveSameResultAsExcelSheet() {
+        ESheet excelSheet = new ExcelSheet("Sheet", buildRows(5, 0), HEADERS);
+        ESheet columnarSheet = new ColumnarSheet("Sheet", buildRows(5, 0), HEADERS);
+        for (ESheet sheet : Arrays.asList(excelSheet, columnarSheet)) {
+            sheet.addColumn(1, sheet.getColumn(2));
+            sheet.deleteColumns(3);
+        }
+        Assert.assertEquals(excelSheet.getHeaders(), columnarSheet.getHeaders());
+        Assert.assertEquals(excelSheet.getData(), columnarSheet.getData());
+        Assert.assertEquals(excelSheet.getColumn("Header2").getCells(), columnarSheet.getColumn("Header2").getCells());
+    }
+
+    @Test
+    public void matchWithTemplateGivesSameResultAsExcelSheet() {
+        List<String> template = Arrays.asList("Header2", "Missing", "Key");
+        for (ESheet.TemplateMode mode : ESheet.TemplateMode.values()) {
+            ESheet excelSheet = new ExcelSheet("Sheet", buildRows(5, 0), HEADERS).matchWithTemplate(template, mode);
+            ESheet columnarSheet = new ColumnarSheet("Sheet", buildRows(5, 0), HEADERS).matchWithTemplate(template, mode);
+            Assert.assertEquals(mode.toString(), excelSheet.getHeaders(), columnarSheet.getHeaders());
+            Assert.assertEquals(mode.toString(), excelSheet.getData(), columnarSheet.getData());
+        }
+    }
+
+    @Test
+    public void adoptFirstRowAsHeaders() {
+        List<ERow> rows = buildRows(3, 0);
+        rows.add(0, buildRow("A", "B", "C"));
+        ESheet sheet = new ColumnarSheet("Sheet", rows, null).adoptFirstRowAsHeaders(true);
+        Assert.assertEquals(Arrays.asList("A", "B", "C"), sheet.getHeaders());
+        Assert.assertEquals(3, sheet.getRowsNumber());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void rowsViewsCellsCannotBeRemoved() {
+        new ColumnarSheet("Sheet", buildRows(2, 0), HEADERS).getRow(0).removeCell(0);
+    }
+
+    private List<Status> statuses(ESheet sheet) {
+        return sheet.getData().stream().map(ERow::getStatus).collect(Collectors.toList());
+    }
+
+    /**
+     * builds rows where the keys are shifted by {@code shift}, and one row out of ten changes between 2 versions.
+     */
+    private List<ERow> buildRows(int rowsNumber, int shift) {
+        List<ERow> rows = new ArrayList<>(rowsNumber);
+        for (int i = shift; i < rowsNumber + shift; i++) {
+            String lastValue = i % 10 == 0 ? "value" + i + 2 + shift : "value" + i + 2;
+            rows.add(buildRow("Key" + i, "value" + i + 1, lastValue));
+        }
+        return rows;
+    }
+
+    private ERow buildRow(String... values) {
+        List<ECell> cells = new ArrayList<>();
+        for (String value : values) {
+            cells.add(new ExcelCell(value));
+        }
+        return new ExcelRow(cells);
+    }
+}
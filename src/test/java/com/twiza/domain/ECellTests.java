@@ -145,4 +145,49 @@ public class ECellTests {
         Assert.assertNotEquals(cell1.hashCode(), cell2.hashCode());
     }
 
+    /**
+     * end hashCode tests
+     * start fingerprint tests
+     */
+    @Test
+    public void cellFingerprintFollowsTheValue() {
+        ECell cell = new ExcelCell("value1");
+        Assert.assertEquals(new ExcelCell("value1").getFingerprint(), cell.getFingerprint());
+        cell.updateValue("value2");
+        Assert.assertEquals(new ExcelCell("value2").getFingerprint(), cell.getFingerprint());
+        Assert.assertNotEquals(new ExcelCell("value1").getFingerprint(), cell.getFingerprint());
+    }
+
+    @Test
+    public void cellHasNoChangesUntilItsValueIsUpdated() {
+        ECell cell = new ExcelCell("value1");
+        Assert.assertTrue(cell.getChanges().isEmpty());
+        cell.updateValue("value2");
+        cell.updateValue("value3");
+        Assert.assertEquals(2, cell.getChanges().size());
+        Assert.assertEquals("value1", cell.getChanges().get(0).getOldValue());
+        Assert.assertEquals("value2", cell.getChanges().get(1).getOldValue());
+        Assert.assertEquals(2, cell.getChangesHistory().split("\n").length);
+    }
+
+    @Test
+    public void copiedCellSharesChangesUntilOneOfThemChanges() {
+        ECell cell = new ExcelCell("value1");
+        cell.updateValue("value2");
+        ECell copy = new ExcelCell(cell);
+        Assert.assertSame(cell.getChanges(), copy.getChanges());
+        copy.updateValue("value3");
+        Assert.assertEquals(1, cell.getChanges().size());
+        Assert.assertEquals(2, copy.getChanges().size());
+    }
+
+    @Test
+    public void changesHistoryCanBeReadBack() {
+        ECell cell = new ExcelCell("value1");
+        cell.updateValue("value2");
+        cell.updateValue("value3");
+        ECell readCell = new ExcelCell(cell.getValue(), cell.getChangesHistory());
+        Assert.assertEquals(cell.getChanges(), readCell.getChanges());
+        Assert.assertEquals(cell.getChangesHistory(), readCell.getChangesHistory());
+    }
 }
@@ -135,16 +135,87 @@ public class ERowTests {
         row.compare(oldRow);
     }
 
-//    @Test
-//    public void compareReturnsRowEqualToTheOldRowIfNoChangesAreMade() {
-//        List<ECell> oldCells = mockCells(CELLS_LIST_SIZE);
-//        List<ECell> newCells = mockCells(CELLS_LIST_SIZE);
-//        newCells.forEach(cell -> when(cell.updateValue(any())).thenReturn(null));
-//        ERow oldRow = new ExcelRow(oldCells);
-//        ERow newRow = new ExcelRow(oldCells);
-//        ERow diffRow = newRow.compare(oldRow);
-//        assert
-//
-//    }
+    @Test
+    public void compareReturnsTheCurrentRowWithoutCopyingItIfNoChangesAreMade() {
+        ERow oldRow = buildRow("key", "value1", "value2");
+        ERow newRow = buildRow("key", "value1", "value2");
+        List<ECell> newCells = new ArrayList<>(newRow.getCells());
+        ERow diffRow = newRow.compare(oldRow);
+        Assert.assertSame(newRow, diffRow);
+        for (int i = 0; i < newCells.size(); i++) {
+            Assert.assertSame(newCells.get(i), diffRow.getCell(i));
+        }
+        Assert.assertEquals(Status.NEW, diffRow.getStatus());
+        // the diff row doesn't share the old row's cells
+        diffRow.getCell(1).updateValue("updated");
+        Assert.assertEquals("value1", oldRow.getCell(1).getValue());
+    }
+
+    @Test
+    public void compareConfirmsEqualFingerprintsWithTheCellsValues() {
+        ERow newRow = buildRow("key", "value1", "value2");
+        ERow oldRow = new ExcelRow(buildRow("key", "value1", "value3").getCells()) {
+            @Override
+            public long getFingerprint() {
+                // a collision with the new row's fingerprint
+                return newRow.getFingerprint();
+            }
+        };
+        ERow diffRow = newRow.compare(oldRow);
+        Assert.assertEquals(Status.CHANGED, diffRow.getStatus());
+        Assert.assertEquals("value2", diffRow.getCell(2).getValue());
+    }
+
+    @Test
+    public void compareUpdatesOnlyTheChangedCells() {
+        ERow oldRow = buildRow("key", "value1", "value2");
+        ERow newRow = buildRow("key", "value1", "value3");
+        ERow diffRow = newRow.compare(oldRow);
+        Assert.assertEquals(Status.CHANGED, diffRow.getStatus());
+        Assert.assertEquals(Status.NEW, diffRow.getCell(1).getStatus());
+        Assert.assertEquals(Status.CHANGED, diffRow.getCell(2).getStatus());
+        Assert.assertEquals("value3", diffRow.getCell(2).getValue());
+        Assert.assertEquals("value2", oldRow.getCell(2).getValue());
+    }
+
+    @Test
+    public void rowFingerprintDependsOnCellsOrder() {
+        Assert.assertEquals(buildRow("a", "b").getFingerprint(), buildRow("a", "b").getFingerprint());
+        Assert.assertNotEquals(buildRow("a", "b").getFingerprint(), buildRow("b", "a").getFingerprint());
+    }
+
+    @Test
+    public void rowFingerprintFollowsCellsUpdates() {
+        ERow row = buildRow("a", "b");
+        Assert.assertEquals(buildRow("a", "b").getFingerprint(), row.getFingerprint());
+        row.replaceCell(1, new ExcelCell("c"));
+        Assert.assertEquals(buildRow("a", "c").getFingerprint(), row.getFingerprint());
+        row.replaceCell(0, new ExcelCell("d"));
+        Assert.assertEquals(buildRow("d", "c").getFingerprint(), row.getFingerprint());
+        row.addCell(new ExcelCell("e"));
+        Assert.assertEquals(buildRow("d", "c", "e").getFingerprint(), row.getFingerprint());
+        row.removeCell(2);
+        row.replaceCell(0, new ExcelCell("a"));
+        Assert.assertEquals(buildRow("a", "c").getFingerprint(), row.getFingerprint());
+    }
+
+    @Test
+    public void compareSeesCellsUpdatedAfterTheFingerprintIsComputed() {
+        ERow oldRow = buildRow("key", "value1");
+        ERow newRow = buildRow("key", "value1");
+        Assert.assertEquals(oldRow.getFingerprint(), newRow.getFingerprint());
+        newRow.getCell(1).updateValue("value2");
+        ERow diffRow = newRow.compare(oldRow);
+        Assert.assertEquals(Status.CHANGED, diffRow.getStatus());
+        Assert.assertEquals("value1", oldRow.getCell(1).getValue());
+    }
+
+    private ERow buildRow(String... values) {
+        List<ECell> rowCells = new ArrayList<>();
+        for (String value : values) {
+            rowCells.add(new ExcelCell(value));
+        }
+        return new ExcelRow(rowCells);
+    }
 
 }
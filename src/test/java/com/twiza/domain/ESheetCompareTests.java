@@ -0,0 +1,63 @@
+package com.twiza.domain;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks {@link ExcelSheet#compare(ESheet)} on generated sheets, the scaling of the compare with the rows number
+ * is measured by the jmh {@code SheetCompareBenchmark}.
+ */
+public class ESheetCompareTests {
+    private static final int COLUMNS_NUMBER = 4;
+    private static final List<String> HEADERS = Arrays.asList("Key", "Header2", "Header3", "Header4");
+
+    @Test
+    public void compareDetectsAddedDeletedAndChangedRows() {
+        ESheet diffSheet = buildSheet(1_000, 1).compare(buildSheet(1_000, 0));
+        long changedRows = diffSheet.getData().stream().filter(row -> row.getStatus() == Status.CHANGED).count();
+        long deletedRows = diffSheet.getData().stream().filter(row -> row.getStatus() == Status.DELETED).count();
+        long addedRows = diffSheet.getData().stream().filter(row -> row.getStatus() == Status.ADDED).count();
+        Assert.assertEquals(99, changedRows);
+        Assert.assertEquals(1, deletedRows);
+        Assert.assertEquals(1, addedRows);
+    }
+
+    @Test
+    public void compareDoesNotCopyTheCellsOfUnchangedRows() {
+        ESheet oldSheet = buildSheet(10, 0);
+        ESheet diffSheet = buildSheet(10, 0).compare(oldSheet);
+        List<ERow> unchangedRows = new ArrayList<>();
+        diffSheet.getData().stream()
+                 .filter(row -> row.getCell(0).getValue().equals("Key1"))
+                 .forEach(unchangedRows::add);
+        Assert.assertEquals(2, unchangedRows.size());
+        ERow currentRow = unchangedRows.get(0);
+        ERow comparedRow = unchangedRows.get(1);
+        Assert.assertNotSame(currentRow, comparedRow);
+        Assert.assertEquals(Status.NEW, comparedRow.getStatus());
+        for (int i = 0; i < COLUMNS_NUMBER; i++) {
+            Assert.assertSame(currentRow.getCell(i), comparedRow.getCell(i));
+            Assert.assertNotSame(oldSheet.getRow(1).getCell(i), comparedRow.getCell(i));
+        }
+    }
+
+    /**
+     * builds a sheet where the keys are shifted by {@code shift}, and one row out of ten changes between 2 versions.
+     */
+    private ESheet buildSheet(int rowsNumber, int shift) {
+        List<ERow> rows = new ArrayList<>(rowsNumber);
+        for (int i = shift; i < rowsNumber + shift; i++) {
+            List<ECell> cells = new ArrayList<>(COLUMNS_NUMBER);
+            cells.add(new ExcelCell("Key" + i));
+            for (int j = 1; j < COLUMNS_NUMBER; j++) {
+                cells.add(new ExcelCell(i % 10 == 0 ? "value" + i + j + shift : "value" + i + j));
+            }
+            rows.add(new ExcelRow(cells));
+        }
+        return new ExcelSheet("Sheet", rows, HEADERS);
+    }
+}
@@ -13,6 +13,7 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -326,6 +327,37 @@ public class ESheetTests {
         Assert.assertEquals(cellsSize - 1, sheet.getColumnsNumber());
     }
 
+    @Test
+    public void deleteColumnsDeletesUnorderedAndRepeatedPositionsOnce() {
+        int[] columnsToDelete = {4, 0, 2, 4};
+        ESheet sheet = new ExcelSheet(sheetName, getRealRows(3), headers).deleteColumns(columnsToDelete);
+        Assert.assertArrayEquals(new int[]{4, 0, 2, 4}, columnsToDelete);
+        Assert.assertEquals(Arrays.asList("Header2", "Header4", "Header6"), sheet.getHeaders());
+        Assert.assertEquals(3, sheet.getColumnsNumber());
+        Assert.assertEquals(Arrays.asList("value21", "value23", "value25"), sheet.getRow(2).getCellsValues());
+    }
+
+    @Test
+    public void deleteColumnsLeavesTheSheetUnchangedIfAPositionIsOutOfRange() {
+        ESheet sheet = new ExcelSheet(sheetName, getRealRows(3), headers);
+        try {
+            sheet.deleteColumns(1, cellsSize);
+            Assert.fail("the position " + cellsSize + " is out of range");
+        } catch (IndexOutOfBoundsException e) {
+            Assert.assertEquals(headers, sheet.getHeaders());
+            Assert.assertEquals(getRealRows(3), sheet.getData());
+        }
+    }
+
+    @Test
+    public void deleteColumnsWithEmptyHeadersDeletesAllTheBlankHeadersColumns() {
+        headers.set(1, "");
+        headers.set(3, "  ");
+        ESheet sheet = new ExcelSheet(sheetName, getRealRows(2), headers).deleteColumnsWithEmptyHeaders();
+        Assert.assertEquals(Arrays.asList("Header1", "Header3", "Header5", "Header6"), sheet.getHeaders());
+        Assert.assertEquals(Arrays.asList("value10", "value12", "value14", "value15"), sheet.getRow(1).getCellsValues());
+    }
+
     @Test(expected = IndexOutOfBoundsException.class)
     public void deleteColumnsRangeThrowsOutOfBoundExceptionIfBeginIndexIsBiggerThanEndIndex() {
         int rowsSize = 5;
@@ -476,12 +508,138 @@ public class ESheetTests {
     }
 
 
+    @Test
+    public void getRowWithKeyReturnsFirstRowHavingTheKey() {
+        rows = getRealRows(5);
+        rows.add(new ExcelRow(rows.get(2)));
+        ESheet sheet = new ExcelSheet(sheetName, rows, headers);
+        Assert.assertSame(sheet.getData().get(2), sheet.getRow("value20"));
+        Assert.assertNull(sheet.getRow("missingKey"));
+    }
+
+    @Test
+    public void getRowWithKeyIsUpdatedAfterAddingAndDeletingRows() {
+        rows = getRealRows(5);
+        ESheet sheet = new ExcelSheet(sheetName, rows, headers);
+        Assert.assertNotNull(sheet.getRow("value00"));
+        ERow newRow = getRealRows(6).get(5);
+        sheet.addRow(newRow);
+        Assert.assertSame(newRow, sheet.getRow("value50"));
+        sheet.deleteRow(rows.get(0));
+        Assert.assertNull(sheet.getRow("value00"));
+        sheet.deleteRows(0);
+        Assert.assertNull(sheet.getRow("value10"));
+    }
+
+    @Test
+    public void getRowWithKeyIsUpdatedAfterChangingKeyIndexes() {
+        rows = getRealRows(5);
+        ESheet sheet = new ExcelSheet(sheetName, rows, headers);
+        Assert.assertNotNull(sheet.getRow("value30"));
+        sheet.setKeyIndexes(1, 2);
+        Assert.assertNull(sheet.getRow("value30"));
+        Assert.assertSame(rows.get(3), sheet.getRow("value31value32"));
+    }
+
+    @Test
+    public void getRowWithKeyIsUpdatedAfterDeletingColumns() {
+        rows = getRealRows(5);
+        ESheet sheet = new ExcelSheet(sheetName, rows, headers);
+        Assert.assertNotNull(sheet.getRow("value40"));
+        sheet.deleteColumns(0);
+        Assert.assertNull(sheet.getRow("value40"));
+        Assert.assertSame(rows.get(4), sheet.getRow("value41"));
+    }
+
     public ERow mockERow(int size, String key) {
         ERow row = mockERow(size);
         when(row.getKey(anyInt())).thenReturn(key);
+        when(row.getRowKey(anyInt())).thenReturn(RowKey.of(key));
         return row;
     }
 
+    @Test
+    public void parallelCompareGivesSameSheetAsSequentialCompare() {
+        ESheet sequentialDiff = buildChangedSheet().compare(new ExcelSheet(sheetName, getRealRows(5000), headers));
+        ESheet parallelDiff = buildChangedSheet().compare(new ExcelSheet(sheetName, getRealRows(5000), headers), 4);
+        Assert.assertEquals(Status.CHANGED, parallelDiff.getStatus());
+        Assert.assertEquals(sequentialDiff.getRowsNumber(), parallelDiff.getRowsNumber());
+        for (int i = 0; i < sequentialDiff.getRowsNumber(); i++) {
+            ERow expectedRow = sequentialDiff.getRow(i);
+            ERow row = parallelDiff.getRow(i);
+            Assert.assertEquals(expectedRow.getCellsValues(), row.getCellsValues());
+            Assert.assertEquals(expectedRow.getStatus(), row.getStatus());
+            for (int j = 0; j < cellsSize; j++) {
+                Assert.assertEquals(expectedRow.getCell(j).getStatus(), row.getCell(j).getStatus());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compareThrowsExceptionIfParallelismIsLessThanOne() {
+        new ExcelSheet(sheetName, getRealRows(2), headers).compare(null, 0);
+    }
+
+    @Test
+    public void matchWithTemplateMovesAddsAndDeletesColumnsInEachMode() {
+        List<String> template = Arrays.asList("Header3", "Header1", "Missing");
+        ESheet matched = new ExcelSheet(sheetName, getRealRows(2), headers).matchWithTemplate(template, ESheet.TemplateMode.MATCH);
+        Assert.assertEquals(Arrays.asList("Header3", "Header1"), matched.getHeaders());
+        Assert.assertEquals(Arrays.asList("value12", "value10"), matched.getRow(1).getCellsValues());
+
+        ESheet concatenated = new ExcelSheet(sheetName, getRealRows(2), headers).matchWithTemplate(template, ESheet.TemplateMode.CONCAT);
+        Assert.assertEquals(Arrays.asList("Header3", "Header1", "Missing", "Header2", "Header4", "Header5", "Header6"),
+                            concatenated.getHeaders());
+        Assert.assertEquals(Arrays.asList("value12", "value10", "", "value11", "value13", "value14", "value15"),
+                            concatenated.getRow(1).getCellsValues());
+
+        ESheet specific = new ExcelSheet(sheetName, getRealRows(2), headers).matchWithTemplate(template, ESheet.TemplateMode.SPECIFIC);
+        Assert.assertEquals(template, specific.getHeaders());
+        Assert.assertEquals(Arrays.asList("value02", "value00", ""), specific.getRow(0).getCellsValues());
+        Assert.assertEquals(3, specific.getColumnsNumber());
+    }
+
+    @Test
+    public void matchWithTemplateMovesAgainTheColumnOfARepeatedHeader() {
+        // the column of the first occurrence is moved to the position of the second one
+        List<String> template = Arrays.asList("Header1", "Header1", "Header2");
+        ESheet concatenated = new ExcelSheet(sheetName, getRealRows(1), headers)
+                .matchWithTemplate(template, ESheet.TemplateMode.CONCAT);
+        Assert.assertEquals(Arrays.asList("Header1", "Header3", "Header2", "Header4", "Header5", "Header6"),
+                            concatenated.getHeaders());
+        Assert.assertEquals(Arrays.asList("value00", "value02", "value01", "value03", "value04", "value05"),
+                            concatenated.getRow(0).getCellsValues());
+    }
+
+    @Test
+    public void parallelMatchWithTemplateGivesSameSheetAsSequentialMatch() {
+        List<String> template = Arrays.asList("Header6", "Missing", "Header2", "Header4");
+        for (ESheet.TemplateMode mode : ESheet.TemplateMode.values()) {
+            ESheet sequentialSheet = new ExcelSheet(sheetName, getRealRows(20000), headers).matchWithTemplate(template, mode);
+            ESheet parallelSheet = new ExcelSheet(sheetName, getRealRows(20000), headers).matchWithTemplate(template, mode, 4);
+            Assert.assertEquals(sequentialSheet.getHeaders(), parallelSheet.getHeaders());
+            Assert.assertEquals(sequentialSheet.getData(), parallelSheet.getData());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void matchWithTemplateThrowsExceptionIfParallelismIsLessThanOne() {
+        new ExcelSheet(sheetName, getRealRows(2), headers).matchWithTemplate(headers, ESheet.TemplateMode.MATCH, 0);
+    }
+
+    /**
+     * builds a new version of the real rows, where the first rows are deleted, one row out of ten is changed,
+     * and new rows are added.
+     */
+    private ESheet buildChangedSheet() {
+        List<ERow> newRows = getRealRows(5100);
+        newRows.subList(0, 50).clear();
+        for (int i = 0; i < newRows.size(); i += 10) {
+            newRows.get(i).getCell(cellsSize - 1).updateValue("changed" + i);
+        }
+        return new ExcelSheet(sheetName, newRows, headers);
+    }
+
     public ERow mockERow(int size, int columnToDelete) {
         ERow row = mockERow(size);
         when(row.removeCell(columnToDelete)).then(removeCellAnswer);
@@ -12,7 +12,10 @@ import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.when;
@@ -55,6 +58,49 @@ public class EWorkbookTests {
     }
 
 
+    @Test
+    public void concurrentCompareGivesSameWorkbookAsSequentialCompare() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (long memoryBudget : new long[]{1, Long.MAX_VALUE}) {
+                EWorkbook sequentialDiff = buildWorkbook(1, 8).compare(buildWorkbook(0, 7));
+                EWorkbook concurrentDiff = buildWorkbook(1, 8).compare(buildWorkbook(0, 7), executor, memoryBudget);
+                Assert.assertEquals(new ArrayList<>(sequentialDiff.getSheets().keySet()),
+                                    new ArrayList<>(concurrentDiff.getSheets().keySet()));
+                for (ESheet expectedSheet : sequentialDiff.getSheets().values()) {
+                    ESheet sheet = concurrentDiff.getSheet(expectedSheet.getName());
+                    Assert.assertEquals(expectedSheet.getStatus(), sheet.getStatus());
+                    Assert.assertEquals(expectedSheet.getData(), sheet.getData());
+                }
+                Assert.assertEquals(Status.ADDED, concurrentDiff.getSheet("Sheet7").getStatus());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void concurrentCompareThrowsExceptionIfMemoryBudgetIsNotPositive() {
+        new ExcelWorkbook().compare(new ExcelWorkbook(), Executors.newSingleThreadExecutor(), 0);
+    }
+
+    /**
+     * builds a workbook of {@code sheetsNumber} sheets, where the keys of the rows are shifted by {@code shift}.
+     */
+    private EWorkbook buildWorkbook(int shift, int sheetsNumber) {
+        List<String> headers = Arrays.asList("Key", "Value");
+        List<ESheet> workbookSheets = new ArrayList<>();
+        for (int i = 0; i < sheetsNumber; i++) {
+            List<ERow> rows = new ArrayList<>();
+            for (int j = shift; j < 200 + shift; j++) {
+                String value = j % 10 == 0 ? "value" + j + "_" + shift : "value" + j;
+                rows.add(new ExcelRow(Arrays.asList(new ExcelCell("Key" + j), new ExcelCell(value))));
+            }
+            workbookSheets.add(new ExcelSheet("Sheet" + i, rows, headers));
+        }
+        return new ExcelWorkbook(Paths.get(workbookName), workbookSheets);
+    }
+
     ESheet mockESheet(String sheetName) {
         ESheet sheet = mock(ESheet.class);
         when(sheet.getName()).thenReturn(sheetName);
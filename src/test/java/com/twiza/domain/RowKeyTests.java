@@ -0,0 +1,100 @@
+package com.twiza.domain;
+
+import com.twiza.exceptions.SheetWithInconsistentDataException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RowKeyTests {
+
+    @Test
+    public void keysWithSameValuesAreEqual() {
+        RowKey key1 = RowKey.of("a", "b");
+        RowKey key2 = RowKey.of("a", "b");
+        Assert.assertEquals(key1, key2);
+        Assert.assertEquals(key1.hashCode(), key2.hashCode());
+    }
+
+    @Test
+    public void keysWithSameConcatenationAreNotEqual() {
+        Assert.assertNotEquals(RowKey.of("ab", "c"), RowKey.of("a", "bc"));
+        Assert.assertEquals(RowKey.of("ab", "c").toString(), RowKey.of("a", "bc").toString());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void keyThrowsExceptionIfAllValuesAreBlank() {
+        RowKey.of(" ", "");
+    }
+
+    @Test
+    public void keyAcceptsBlankValuesIfOneValueIsNotBlank() {
+        RowKey key = RowKey.of("", "b");
+        Assert.assertEquals(2, key.size());
+        Assert.assertEquals("b", key.getValue(1));
+    }
+
+    @Test
+    public void rowKeyReusesTheCellsValues() {
+        ERow row = buildRow("key", "value");
+        RowKey key = row.getRowKey(0, 1);
+        Assert.assertSame(row.getCell(0).getValue(), key.getValue(0));
+        Assert.assertEquals(RowKey.of("key", "value"), key);
+    }
+
+    @Test
+    public void compareDistinguishesComposedKeysWithSameConcatenation() {
+        List<String> headers = Arrays.asList("Key1", "Key2", "Value");
+        List<ERow> oldRows = new ArrayList<>(Arrays.asList(buildRow("ab", "c", "1"), buildRow("a", "bc", "2")));
+        List<ERow> newRows = new ArrayList<>(Arrays.asList(buildRow("ab", "c", "1"), buildRow("a", "bc", "2")));
+        ESheet oldSheet = new ExcelSheet("Sheet", oldRows, headers).setKeyIndexes(0, 1);
+        ESheet newSheet = new ExcelSheet("Sheet", newRows, headers).setKeyIndexes(0, 1);
+        Assert.assertSame(newRows.get(1), newSheet.getRow(RowKey.of("a", "bc")));
+        ESheet diffSheet = newSheet.compare(oldSheet);
+        Assert.assertEquals(Status.NEW, diffSheet.getStatus());
+        Assert.assertTrue(diffSheet.getData().stream().allMatch(row -> row.getStatus() == Status.NEW));
+    }
+
+    @Test
+    public void getUniqueDataThrowsIfComposedKeysHaveSameConcatenation() {
+        List<String> headers = Arrays.asList("Key1", "Key2", "Value");
+        List<ERow> rows = Arrays.asList(buildRow("ab", "c", "1"), buildRow("a", "bc", "2"));
+        for (ESheet sheet : Arrays.asList(new ExcelSheet("Sheet", rows, headers).setKeyIndexes(0, 1),
+                                          new ColumnarSheet("Sheet", rows, headers).setKeyIndexes(0, 1))) {
+            Assert.assertEquals(2, sheet.getUniqueRows().size());
+            try {
+                sheet.getUniqueData();
+                Assert.fail("the keys (ab, c) and (a, bc) have the same concatenation");
+            } catch (SheetWithInconsistentDataException e) {
+                Assert.assertTrue(e.getMessage().contains("abc"));
+            }
+        }
+    }
+
+    @Test
+    public void getRowWithConcatenatedKeyFollowsTheRowsIndex() {
+        List<String> headers = Arrays.asList("Key1", "Key2", "Value");
+        List<ERow> rows = Arrays.asList(buildRow("ab", "c", "1"), buildRow("a", "bc", "2"), buildRow("x", "y", "3"));
+        for (ESheet sheet : Arrays.asList(new ExcelSheet("Sheet", new ArrayList<>(rows), headers).setKeyIndexes(0, 1),
+                                          new ColumnarSheet("Sheet", rows, headers).setKeyIndexes(0, 1))) {
+            // the first row of a shared concatenation is returned
+            Assert.assertEquals("1", sheet.getRow("abc").getCell(2).getValue());
+            Assert.assertEquals("3", sheet.getRow("xy").getCell(2).getValue());
+            Assert.assertNull(sheet.getRow("zz"));
+            sheet.addRow(buildRow("z", "z", "4"));
+            Assert.assertEquals("4", sheet.getRow("zz").getCell(2).getValue());
+            sheet.deleteRows(0);
+            Assert.assertEquals("2", sheet.getRow("abc").getCell(2).getValue());
+        }
+    }
+
+    private ERow buildRow(String... values) {
+        List<ECell> cells = new ArrayList<>();
+        for (String value : values) {
+            cells.add(new ExcelCell(value));
+        }
+        return new ExcelRow(cells);
+    }
+}
@@ -0,0 +1,89 @@
+package com.twiza.metrics;
+
+import com.twiza.domain.EWorkbook;
+import com.twiza.domain.ESheet;
+import com.twiza.utils.ExcelReader;
+import com.twiza.utils.ExcelWriter;
+import com.twiza.utils.WorkbookGenerator;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.Level;
+
+public class DiffMetricsTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void resetMetrics() {
+        Metrics.set(NoOpDiffMetrics.INSTANCE);
+    }
+
+    @Test
+    public void loggingMetricsCollectTheTotalsOfTheDiffPipeline() throws IOException {
+        LoggingDiffMetrics metrics = new LoggingDiffMetrics(Level.FINEST);
+        Metrics.set(metrics);
+        Path oldPath = temporaryFolder.getRoot().toPath().resolve("old.xlsx");
+        Path newPath = temporaryFolder.getRoot().toPath().resolve("new.xlsx");
+        new WorkbookGenerator().setRowsNumber(200).setChangedRowsRatio(0.1).generate(oldPath, newPath);
+
+        EWorkbook oldWorkbook = ExcelReader.getInstance().read(oldPath);
+        EWorkbook newWorkbook = ExcelReader.getInstance().read(newPath, null, false, ExcelReader.ReadMode.STREAMING);
+        oldWorkbook.getSheets().values().forEach(sheet -> sheet.adoptFirstRowAsHeaders(true));
+        newWorkbook.getSheets().values().forEach(sheet -> sheet.adoptFirstRowAsHeaders(true));
+        EWorkbook diffWorkbook = newWorkbook.compare(oldWorkbook);
+        ExcelWriter.getInstance().writeToWorkbook(temporaryFolder.getRoot().toPath().resolve("diff.xlsx").toString(),
+                                                  diffWorkbook);
+
+        Assert.assertEquals(2 * 201, metrics.getTotal(DiffMetrics.Counter.ROWS_READ));
+        Assert.assertEquals(2 * 201 * 10, metrics.getTotal(DiffMetrics.Counter.CELLS_READ));
+        Assert.assertEquals(200, metrics.getTotal(DiffMetrics.Counter.ROWS_COMPARED));
+        ESheet diffSheet = diffWorkbook.getSheet("Sheet1");
+        Assert.assertEquals(diffSheet.getData().size(), metrics.getTotal(DiffMetrics.Counter.ROWS_WRITTEN));
+        Assert.assertTrue(metrics.getTotal(DiffMetrics.Counter.BYTES_READ) > 0);
+        Assert.assertTrue(metrics.getTotal(DiffMetrics.Counter.BYTES_WRITTEN) > 0);
+        for (DiffMetrics.Phase phase : new DiffMetrics.Phase[]{DiffMetrics.Phase.READ_SHEET, DiffMetrics.Phase.FORMAT_CELLS,
+                DiffMetrics.Phase.COMPARE, DiffMetrics.Phase.UNIQUE_DATA, DiffMetrics.Phase.WRITE_SHEET}) {
+            Assert.assertTrue(phase.toString(), metrics.getTotalNanos(phase) > 0);
+        }
+    }
+
+    @Test
+    public void jfrMetricsEmitEventsWhenTheyAreRecorded() throws IOException {
+        Path recordingPath = temporaryFolder.getRoot().toPath().resolve("diff.jfr");
+        DiffMetrics metrics = new JfrDiffMetrics();
+        try (Recording recording = new Recording()) {
+            recording.enable("com.twiza.DiffPhase");
+            recording.enable("com.twiza.DiffCounter");
+            recording.start();
+            try (DiffMetrics.Timer ignored = metrics.startTimer(DiffMetrics.Phase.COMPARE, "Sheet")) {
+                metrics.increment(DiffMetrics.Counter.ROWS_COMPARED, "Sheet", 10);
+            }
+            recording.stop();
+            recording.dump(recordingPath);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingPath);
+        Assert.assertEquals(2, events.size());
+        RecordedEvent counterEvent = events.stream().filter(event -> event.hasField("counter")).findFirst().get();
+        Assert.assertEquals("ROWS_COMPARED", counterEvent.getString("counter"));
+        Assert.assertEquals(10, counterEvent.getLong("amount"));
+        RecordedEvent phaseEvent = events.stream().filter(event -> event.hasField("phase")).findFirst().get();
+        Assert.assertEquals("COMPARE", phaseEvent.getString("phase"));
+        Assert.assertEquals("Sheet", phaseEvent.getString("sheetName"));
+    }
+
+    @Test
+    public void noOpMetricsAreNotEnabled() {
+        Assert.assertFalse(Metrics.get().isEnabled());
+    }
+}
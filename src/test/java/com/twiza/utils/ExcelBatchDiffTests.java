@@ -0,0 +1,129 @@
+package com.twiza.utils;
+
+import com.twiza.data.Ignore;
+import com.twiza.domain.Status;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class ExcelBatchDiffTests {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void resetIgnore() {
+        Ignore.getInstance().setFoldersToIgnore(new ArrayList<>());
+    }
+
+    @Test
+    public void compareReportsEachPairOfWorkbooks() throws IOException {
+        Path oldRoot = temporaryFolder.newFolder("old").toPath();
+        Path newRoot = temporaryFolder.newFolder("new").toPath();
+        Path diffRoot = temporaryFolder.newFolder("diff").toPath();
+        createWorkbook(oldRoot.resolve("unchanged.xlsx"), 10, "a");
+        createWorkbook(newRoot.resolve("unchanged.xlsx"), 10, "a");
+        createWorkbook(oldRoot.resolve("sub/changed.xlsx"), 10, "a");
+        createWorkbook(newRoot.resolve("sub/changed.xlsx"), 11, "b");
+        createWorkbook(oldRoot.resolve("deleted.xlsx"), 3, "a");
+        createWorkbook(newRoot.resolve("added.xlsx"), 4, "a");
+
+        BatchDiffSummary summary = new ExcelBatchDiff(2).compare(oldRoot, newRoot, diffRoot);
+
+        Map<Path, BatchDiffSummary.WorkbookDiff> diffs = byPath(summary);
+        Assert.assertEquals(4, diffs.size());
+        Assert.assertEquals(0, summary.countFailures());
+        Assert.assertEquals(Status.COMMON, diffs.get(Paths.get("unchanged.xlsx")).getStatus());
+        BatchDiffSummary.WorkbookDiff changed = diffs.get(Paths.get("sub", "changed.xlsx"));
+        Assert.assertEquals(Status.CHANGED, changed.getStatus());
+        Assert.assertEquals(1, changed.getAddedRows());
+        Assert.assertEquals(10, changed.getChangedRows());
+        Assert.assertEquals(Status.DELETED, diffs.get(Paths.get("deleted.xlsx")).getStatus());
+        Assert.assertEquals(3, diffs.get(Paths.get("deleted.xlsx")).getDeletedRows());
+        Assert.assertEquals(Status.ADDED, diffs.get(Paths.get("added.xlsx")).getStatus());
+        Assert.assertEquals(4, diffs.get(Paths.get("added.xlsx")).getAddedRows());
+
+        Assert.assertFalse(Files.exists(diffRoot.resolve("unchanged.xlsx")));
+        Assert.assertTrue(Files.exists(diffRoot.resolve("sub/changed.xlsx")));
+        Assert.assertTrue(Files.exists(diffRoot.resolve("deleted.xlsx")));
+        Assert.assertTrue(Files.exists(diffRoot.resolve("added.xlsx")));
+    }
+
+    @Test
+    public void compareSkipsIgnoredFoldersAndLockFiles() throws IOException {
+        Path oldRoot = temporaryFolder.newFolder("old").toPath();
+        Path newRoot = temporaryFolder.newFolder("new").toPath();
+        createWorkbook(oldRoot.resolve("kept.xlsx"), 2, "a");
+        createWorkbook(newRoot.resolve("kept.xlsx"), 2, "a");
+        createWorkbook(newRoot.resolve("archive/old.xlsx"), 2, "a");
+        createWorkbook(newRoot.resolve("~$kept.xlsx"), 2, "a");
+        Ignore.getInstance().setFoldersToIgnore(Collections.singletonList("archive"));
+
+        BatchDiffSummary summary = new ExcelBatchDiff(1).compare(oldRoot, newRoot,
+                                                                 temporaryFolder.newFolder("diff").toPath());
+
+        Assert.assertEquals(1, summary.getWorkbookDiffs().size());
+        Assert.assertEquals(Paths.get("kept.xlsx"), summary.getWorkbookDiffs().get(0).getRelativePath());
+    }
+
+    @Test
+    public void compareRecordsFailuresWithoutStoppingTheBatch() throws IOException {
+        Path oldRoot = temporaryFolder.newFolder("old").toPath();
+        Path newRoot = temporaryFolder.newFolder("new").toPath();
+        Files.write(oldRoot.resolve("corrupted.xlsx"), "not a workbook".getBytes());
+        Files.write(newRoot.resolve("corrupted.xlsx"), "not a workbook".getBytes());
+        createWorkbook(oldRoot.resolve("valid.xlsx"), 2, "a");
+        createWorkbook(newRoot.resolve("valid.xlsx"), 2, "b");
+
+        BatchDiffSummary summary = new ExcelBatchDiff(2, 1024 * 1024, ExcelReader.ReadMode.STREAMING)
+                                           .compare(oldRoot, newRoot, temporaryFolder.newFolder("diff").toPath());
+
+        Map<Path, BatchDiffSummary.WorkbookDiff> diffs = byPath(summary);
+        Assert.assertEquals(1, summary.countFailures());
+        Assert.assertTrue(diffs.get(Paths.get("corrupted.xlsx")).isFailed());
+        Assert.assertEquals(Status.CHANGED, diffs.get(Paths.get("valid.xlsx")).getStatus());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchDiffNeedsAtLeastOneThread() {
+        new ExcelBatchDiff(0);
+    }
+
+    private Map<Path, BatchDiffSummary.WorkbookDiff> byPath(BatchDiffSummary summary) {
+        return summary.getWorkbookDiffs()
+                      .stream()
+                      .collect(Collectors.toMap(BatchDiffSummary.WorkbookDiff::getRelativePath, Function.identity()));
+    }
+
+    private void createWorkbook(Path workbookPath, int rowsNumber, String value) throws IOException {
+        Files.createDirectories(workbookPath.getParent());
+        try (XSSFWorkbook workbook = new XSSFWorkbook();
+             OutputStream outputStream = Files.newOutputStream(workbookPath)) {
+            Sheet sheet = workbook.createSheet("Data");
+            Row headers = sheet.createRow(0);
+            headers.createCell(0).setCellValue("Key");
+            headers.createCell(1).setCellValue("Value");
+            for (int i = 1; i <= rowsNumber; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue("Key" + i);
+                row.createCell(1).setCellValue(value + i);
+            }
+            workbook.write(outputStream);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.twiza.utils;
+
+import com.twiza.domain.ESheet;
+import com.twiza.domain.EWorkbook;
+import com.twiza.domain.MatchingPolicy;
+import com.twiza.domain.Template;
+import com.twiza.exceptions.HeaderNotMatchingException;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ExcelReaderTests {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void streamingReadGivesSameDataAsUserModelRead() throws IOException {
+        Path workbookPath = createWorkbook();
+        assertSameData(read(workbookPath, false, ExcelReader.ReadMode.USER_MODEL),
+                       read(workbookPath, false, ExcelReader.ReadMode.STREAMING));
+    }
+
+    @Test
+    public void streamingReadKeepsEmptyRowsLikeUserModelRead() throws IOException {
+        Path workbookPath = createWorkbook();
+        EWorkbook streamedWorkbook = read(workbookPath, true, ExcelReader.ReadMode.STREAMING);
+        assertSameData(read(workbookPath, true, ExcelReader.ReadMode.USER_MODEL), streamedWorkbook);
+        Assert.assertEquals(5, streamedWorkbook.getSheet("Data").getRowsNumber());
+    }
+
+    @Test
+    public void streamingReadGivesSameDataAsUserModelReadForResourcesWorkbooks() throws IOException {
+        for (String resource : new String[]{"test1.xlsx", "test2.xlsx", "Financial_Sample.xlsx"}) {
+            Path workbookPath = ResourceHelper.getResourceFile(resource).toPath();
+            assertSameData(read(workbookPath, false, ExcelReader.ReadMode.USER_MODEL),
+                           read(workbookPath, false, ExcelReader.ReadMode.STREAMING));
+        }
+    }
+
+    @Test
+    public void streamingReadIgnoresSheetsMatchingPatterns() throws IOException {
+        Path workbookPath = createWorkbook();
+        List<String> ignoredSheets = Collections.singletonList("*/Ignored*");
+        EWorkbook workbook = ExcelReader.getInstance().read(workbookPath, ignoredSheets, false,
+                                                            ExcelReader.ReadMode.STREAMING);
+        Assert.assertEquals(1, workbook.getSize());
+        Assert.assertNull(workbook.getSheet("IgnoredSheet"));
+    }
+
+    @Test
+    public void parallelReadGivesSameDataAsSequentialRead() throws IOException {
+        Path workbookPath = createWorkbook(8);
+        ExcelReader reader = ExcelReader.getInstance();
+        for (ExcelReader.ReadMode readMode : ExcelReader.ReadMode.values()) {
+            EWorkbook sequentialWorkbook = read(workbookPath, false, readMode);
+            reader.setSheetsParallelism(4);
+            try {
+                EWorkbook parallelWorkbook = read(workbookPath, false, readMode);
+                Assert.assertEquals(9, parallelWorkbook.getSize());
+                assertSameData(sequentialWorkbook, parallelWorkbook);
+            } finally {
+                reader.setSheetsParallelism(1);
+            }
+        }
+    }
+
+    @Test
+    public void concurrentReadsDoNotShareOptions() throws Exception {
+        Path workbookPath = createWorkbook(2);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<EWorkbook>> workbooks = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                boolean keepEmptyRows = i % 2 == 0;
+                workbooks.add(executor.submit(() -> read(workbookPath, keepEmptyRows, ExcelReader.ReadMode.USER_MODEL)));
+            }
+            for (int i = 0; i < workbooks.size(); i++) {
+                int expectedRows = i % 2 == 0 ? 5 : 4;
+                Assert.assertEquals(expectedRows, workbooks.get(i).get().getSheet("Data").getRowsNumber());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void pooledReadGivesSameDataAndSharesEqualValues() throws IOException {
+        Path workbookPath = createWorkbook(2);
+        ExcelReader reader = ExcelReader.getInstance();
+        for (ExcelReader.ReadMode readMode : ExcelReader.ReadMode.values()) {
+            EWorkbook notPooledWorkbook = read(workbookPath, false, readMode);
+            try {
+                reader.setValuesPooling(ExcelReader.ValuesPooling.SHEET);
+                EWorkbook sheetPooledWorkbook = read(workbookPath, false, readMode);
+                reader.setValuesPooling(ExcelReader.ValuesPooling.WORKBOOK);
+                EWorkbook workbookPooledWorkbook = read(workbookPath, false, readMode);
+                assertSameData(notPooledWorkbook, sheetPooledWorkbook);
+                assertSameData(notPooledWorkbook, workbookPooledWorkbook);
+
+                Assert.assertSame(readMode.toString(), keyValue(workbookPooledWorkbook, "Data"),
+                                  keyValue(workbookPooledWorkbook, "Data1"));
+                ESheet sheet = sheetPooledWorkbook.getSheet("Data");
+                Assert.assertSame(readMode.toString(), sheet.getRow(1).getCell(8).getValue(),
+                                  sheet.getRow(3).getCell(8).getValue());
+            } finally {
+                reader.setValuesPooling(ExcelReader.ValuesPooling.NONE);
+            }
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void setValuesPoolingThrowsNullPointerIfNull() {
+        ExcelReader.getInstance().setValuesPooling(null);
+    }
+
+    @Test
+    public void templateIsAppliedWhileReadingLikeOnTheReadSheet() throws IOException {
+        Path workbookPath = createTemplateWorkbook();
+        Template template = buildTemplate(MatchingPolicy.TEMPLATE_MATCH, "Number", "Key", "Missing");
+        for (ExcelReader.ReadMode readMode : ExcelReader.ReadMode.values()) {
+            EWorkbook workbook = ExcelReader.getInstance().read(workbookPath, null, false, readMode,
+                                                                Collections.singletonList(template));
+            ESheet sheet = workbook.getSheet("Data");
+            Assert.assertEquals(Arrays.asList("Number", "Key", "Missing"), sheet.getHeaders());
+            Assert.assertArrayEquals(new int[]{1}, sheet.getKeysIndexes());
+            Assert.assertEquals(Arrays.asList("1", "Key1", ""), sheet.getRow(0).getCellsValues());
+
+            ESheet expectedSheet = read(workbookPath, false, readMode).getSheet("Data")
+                                                                     .deleteRows(0)
+                                                                     .deleteColumns(1)
+                                                                     .adoptFirstRowAsHeaders(true)
+                                                                     .matchWithTemplate(template.getMatchingHeaders(),
+                                                                                        ESheet.TemplateMode.SPECIFIC);
+            Assert.assertEquals(expectedSheet.getData(), sheet.getData());
+            // the sheets that don't match the template's name are read as they are
+            Assert.assertEquals(5, workbook.getSheet("Other").getRowsNumber());
+            Assert.assertNull(workbook.getSheet("Other").getHeaders());
+        }
+    }
+
+    @Test
+    public void outerMatchTemplateKeepsTheColumnsAfterTheTemplateColumns() throws IOException {
+        Path workbookPath = createTemplateWorkbook();
+        Template template = buildTemplate(MatchingPolicy.OUTER_MATCH, "Number", "Missing");
+        for (ExcelReader.ReadMode readMode : ExcelReader.ReadMode.values()) {
+            ESheet sheet = ExcelReader.getInstance().read(workbookPath, null, false, readMode,
+                                                          Collections.singletonList(template)).getSheet("Data");
+            // the comment is in a column after the headers row
+            Assert.assertEquals(Arrays.asList("Number", "Missing", "Key", "Extra", ""), sheet.getHeaders());
+            Assert.assertEquals(Arrays.asList("3", "", "Key3", "extra3", "comment"), sheet.getRow(2).getCellsValues());
+            Assert.assertEquals(Arrays.asList("1", "", "Key1", "extra1", ""), sheet.getRow(0).getCellsValues());
+        }
+    }
+
+    @Test
+    public void innerMatchTemplateReadsOnlyTheMatchedColumns() throws IOException {
+        Path workbookPath = createTemplateWorkbook();
+        Template template = buildTemplate(MatchingPolicy.INNER_MATCH, "Extra", "Missing", "Key");
+        for (ExcelReader.ReadMode readMode : ExcelReader.ReadMode.values()) {
+            ESheet sheet = ExcelReader.getInstance().read(workbookPath, null, false, readMode,
+                                                          Collections.singletonList(template)).getSheet("Data");
+            Assert.assertEquals(Arrays.asList("Extra", "Key"), sheet.getHeaders());
+            Assert.assertEquals(3, sheet.getRowsNumber());
+            Assert.assertEquals(Arrays.asList("extra2", "Key2"), sheet.getRow(1).getCellsValues());
+        }
+    }
+
+    @Test
+    public void forcedTemplateThrowsExceptionIfTheSheetMissesTemplateHeaders() throws IOException {
+        Path workbookPath = createTemplateWorkbook();
+        Template template = buildTemplate(MatchingPolicy.TEMPLATE_FORCED, "Key", "Missing");
+        for (ExcelReader.ReadMode readMode : ExcelReader.ReadMode.values()) {
+            try {
+                ExcelReader.getInstance().read(workbookPath, null, false, readMode, Collections.singletonList(template));
+                Assert.fail("the header Missing is not in the sheet");
+            } catch (HeaderNotMatchingException e) {
+                Assert.assertTrue(e.getMessage().contains("Missing"));
+            }
+        }
+        template.setMatchingHeaders(Arrays.asList("Key", "Number"));
+        ESheet sheet = ExcelReader.getInstance().read(workbookPath, null, false, ExcelReader.ReadMode.STREAMING,
+                                                      Collections.singletonList(template)).getSheet("Data");
+        Assert.assertEquals(Arrays.asList("Key", "Number"), sheet.getHeaders());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void templateThrowsIllegalArgumentIfItsNameIsNotAGlobPattern() {
+        new Template("*/[Data");
+    }
+
+    @Test
+    public void columnProjectionByIndexesReadsOnlyTheProjectedColumns() throws IOException {
+        Path workbookPath = createWideWorkbook(10, 4);
+        for (ExcelReader.ReadMode readMode : ExcelReader.ReadMode.values()) {
+            EWorkbook workbook = ExcelReader.getInstance().read(workbookPath, null, false, readMode,
+                                                                Collections.singletonMap("*/Data", ColumnProjection.ofIndexes(7, 2, 12)));
+            ESheet sheet = workbook.getSheet("Data");
+            Assert.assertEquals(5, sheet.getRowsNumber());
+            Assert.assertEquals(3, sheet.getColumnsNumber());
+            Assert.assertEquals(Arrays.asList("H7", "H2", ""), sheet.getRow(0).getCellsValues());
+            Assert.assertEquals(Arrays.asList("r3c7", "r3c2", ""), sheet.getRow(3).getCellsValues());
+            // the sheets that don't match the projection's pattern are read entirely
+            Assert.assertEquals(10, workbook.getSheet("Other").getColumnsNumber());
+        }
+    }
+
+    @Test
+    public void columnProjectionByHeadersResolvesTheColumnsFromTheFirstRow() throws IOException {
+        Path workbookPath = createWideWorkbook(10, 4);
+        for (ExcelReader.ReadMode readMode : ExcelReader.ReadMode.values()) {
+            ESheet sheet = ExcelReader.getInstance().read(workbookPath, null, false, readMode,
+                                                          Collections.singletonMap("*/Data", ColumnProjection.ofHeaders("H9", "Missing", "H0")))
+                                      .getSheet("Data");
+            ESheet expectedSheet = read(workbookPath, false, readMode).getSheet("Data")
+                                                                     .adoptFirstRowAsHeaders(true)
+                                                                     .matchWithTemplate(Arrays.asList("H9", "H0"),
+                                                                                        ESheet.TemplateMode.MATCH);
+            // the first row stays a row of the sheet
+            Assert.assertNull(sheet.getHeaders());
+            sheet.adoptFirstRowAsHeaders(true);
+            Assert.assertEquals(expectedSheet.getHeaders(), sheet.getHeaders());
+            Assert.assertEquals(expectedSheet.getData(), sheet.getData());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void columnProjectionThrowsIllegalArgumentIfAnIndexIsRepeated() {
+        ColumnProjection.ofIndexes(1, 3, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setSheetsParallelismThrowsIllegalArgumentIfLessThanOne() {
+        ExcelReader.getInstance().setSheetsParallelism(0);
+    }
+
+    private String keyValue(EWorkbook workbook, String sheetName) {
+        return workbook.getSheet(sheetName).getRow(1).getCell(0).getValue();
+    }
+
+    private EWorkbook read(Path workbookPath, boolean keepEmptyRows, ExcelReader.ReadMode readMode) throws IOException {
+        return ExcelReader.getInstance().read(workbookPath, null, keepEmptyRows, readMode);
+    }
+
+    private void assertSameData(EWorkbook expected, EWorkbook actual) {
+        Assert.assertEquals(expected.getSheets().keySet(), actual.getSheets().keySet());
+        for (ESheet expectedSheet : expected.getSheets().values()) {
+            ESheet actualSheet = actual.getSheet(expectedSheet.getName());
+            Assert.assertEquals(expectedSheet.getColumnsNumber(), actualSheet.getColumnsNumber());
+            Assert.assertEquals(expectedSheet.getRowsNumber(), actualSheet.getRowsNumber());
+            for (int i = 0; i < expectedSheet.getRowsNumber(); i++) {
+                Assert.assertEquals(expectedSheet.getRow(i).getCellsValues(), actualSheet.getRow(i).getCellsValues());
+            }
+        }
+    }
+
+    private Template buildTemplate(MatchingPolicy matchingPolicy, String... matchingHeaders) {
+        Template template = new Template("*/Data");
+        template.setDeleteRows(new int[]{0});
+        template.setDeleteColumns(new int[]{1});
+        template.setFirstRowHeader(true);
+        template.setMatchingHeaders(Arrays.asList(matchingHeaders));
+        template.setMatchingPolicy(matchingPolicy);
+        template.setKeyColumns(new int[]{1});
+        return template;
+    }
+
+    /**
+     * creates a workbook whose data sheet has a title row above the headers, a dropped column,
+     * and a comment in a column after the headers row.
+     */
+    private Path createTemplateWorkbook() throws IOException {
+        Path workbookPath = temporaryFolder.newFile().toPath();
+        try (Workbook workbook = new XSSFWorkbook()) {
+            for (String sheetName : new String[]{"Data", "Other"}) {
+                Sheet sheet = workbook.createSheet(sheetName);
+                sheet.createRow(0).createCell(0).setCellValue("Monthly report");
+                Row header = sheet.createRow(1);
+                String[] headers = {"Key", "Dropped", "Number", "Extra"};
+                for (int i = 0; i < headers.length; i++) {
+                    header.createCell(i).setCellValue(headers[i]);
+                }
+                for (int i = 1; i <= 3; i++) {
+                    Row row = sheet.createRow(i + 1);
+                    row.createCell(0).setCellValue("Key" + i);
+                    row.createCell(1).setCellValue("dropped" + i);
+                    row.createCell(2).setCellValue(i);
+                    row.createCell(3).setCellValue("extra" + i);
+                }
+                sheet.getRow(4).createCell(4).setCellValue("comment");
+            }
+            try (FileOutputStream outputStream = new FileOutputStream(workbookPath.toFile())) {
+                workbook.write(outputStream);
+            }
+        }
+        return workbookPath;
+    }
+
+    /**
+     * creates the sheets Data and Other, with a headers row H0, H1... followed by rows of values r1c0, r1c1...
+     */
+    private Path createWideWorkbook(int columnsNumber, int rowsNumber) throws IOException {
+        Path workbookPath = temporaryFolder.newFile().toPath();
+        try (Workbook workbook = new XSSFWorkbook()) {
+            for (String sheetName : new String[]{"Data", "Other"}) {
+                Sheet sheet = workbook.createSheet(sheetName);
+                for (int i = 0; i <= rowsNumber; i++) {
+                    Row row = sheet.createRow(i);
+                    for (int j = 0; j < columnsNumber; j++) {
+                        row.createCell(j).setCellValue(i == 0 ? "H" + j : "r" + i + "c" + j);
+                    }
+                }
+            }
+            try (FileOutputStream outputStream = new FileOutputStream(workbookPath.toFile())) {
+                workbook.write(outputStream);
+            }
+        }
+        return workbookPath;
+    }
+
+    /**
+     * creates a workbook with all cell types, formulas with cached results, gaps between cells, and empty rows.
+     */
+    private Path createWorkbook() throws IOException {
+        return createWorkbook(1);
+    }
+
+    private Path createWorkbook(int dataSheetsNumber) throws IOException {
+        Path workbookPath = temporaryFolder.newFile().toPath();
+        try (Workbook workbook = new XSSFWorkbook()) {
+            for (int i = 0; i < dataSheetsNumber; i++) {
+                createDataSheet(workbook, i == 0 ? "Data" : "Data" + i);
+            }
+            workbook.createSheet("IgnoredSheet").createRow(0).createCell(0).setCellValue("ignored");
+            workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+            try (FileOutputStream outputStream = new FileOutputStream(workbookPath.toFile())) {
+                workbook.write(outputStream);
+            }
+        }
+        return workbookPath;
+    }
+
+    private void createDataSheet(Workbook workbook, String sheetName) {
+        Sheet sheet = workbook.createSheet(sheetName);
+        CellStyle dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue("Key");
+        header.createCell(1).setCellValue("Number");
+        header.createCell(2).setCellValue("Flag");
+        header.createCell(3).setCellValue("Date");
+        for (int i = 1; i < 4; i++) {
+            Row row = sheet.createRow(i * 2);
+            row.createCell(0).setCellValue("Key" + i);
+            row.createCell(1).setCellValue(i * 1.5);
+            row.createCell(2).setCellValue(i % 2 == 0);
+            Cell dateCell = row.createCell(3);
+            dateCell.setCellValue(43831 + i);
+            dateCell.setCellStyle(dateStyle);
+            row.createCell(5).setCellFormula("B" + (i * 2 + 1) + "*2");
+            row.createCell(6).setCellFormula("A" + (i * 2 + 1) + "&\"-\"");
+            row.createCell(7).setCellFormula("C" + (i * 2 + 1));
+            row.createCell(8).setCellValue("Category" + i % 2);
+        }
+        sheet.createRow(7).createCell(9);// empty row, with a blank cell
+    }
+}
@@ -0,0 +1,163 @@
+package com.twiza.utils;
+
+import com.twiza.domain.*;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ExcelToFolderWriterTests {
+    private static final List<String> HEADERS = Arrays.asList("Key", "Value", "Comment");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void binaryFolderIsReadBackAsTheWrittenWorkbook() throws IOException {
+        EWorkbook workbook = buildWorkbook(true);
+        ExcelToFolderWriter.getInstance().write(workbook, ExcelToFolderWriter.Format.BINARY);
+        Path folder = temporaryFolder.getRoot().toPath().resolve("workbook");
+        Assert.assertTrue(Files.isRegularFile(folder.resolve("data.bin")));
+
+        EWorkbook readWorkbook = FolderToExcelReader.getInstance().readWorkbook(folder);
+        for (ESheet sheet : workbook.getSheets().values()) {
+            ESheet readSheet = readWorkbook.getSheet(sheet.getName());
+            Assert.assertEquals(sheet.getHeaders(), readSheet.getHeaders());
+            Assert.assertEquals(sheet.getStatus(), readSheet.getStatus());
+            Assert.assertArrayEquals(sheet.getKeysIndexes(), readSheet.getKeysIndexes());
+            Assert.assertEquals(sheet.getData(), readSheet.getData());
+        }
+    }
+
+    @Test
+    public void textFolderIsStillWrittenByDefault() throws IOException {
+        ExcelToFolderWriter.getInstance().write(buildWorkbook(false));
+        Path folder = temporaryFolder.getRoot().toPath().resolve("workbook");
+        Assert.assertTrue(Files.isRegularFile(folder.resolve("data.txt")));
+        ESheet readSheet = FolderToExcelReader.getInstance().readWorkbook(folder).getSheet("data");
+        Assert.assertEquals(HEADERS, readSheet.getHeaders());
+        Assert.assertEquals("value1", readSheet.getRow(1).getCell(1).getValue());
+    }
+
+    @Test
+    public void parallelExportWritesTheSameFilesAsSequentialExport() throws IOException {
+        List<ESheet> sheets = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            sheets.add(buildSheet("Sheet" + i, 200 + i, false));
+        }
+        Path folder = temporaryFolder.getRoot().toPath().resolve("workbook");
+        EWorkbook workbook = new ExcelWorkbook(temporaryFolder.getRoot().toPath().resolve("workbook.xlsx"), sheets);
+        ExcelToFolderWriter writer = ExcelToFolderWriter.getInstance();
+        int defaultParallelism = writer.getSheetsParallelism();
+        try {
+            FolderExportSummary sequentialSummary = writer.setSheetsParallelism(1).export(workbook, ExcelToFolderWriter.Format.TEXT);
+            List<byte[]> sequentialFiles = new ArrayList<>();
+            for (FolderExportSummary.SheetExport sheetExport : sequentialSummary.getSheetExports()) {
+                sequentialFiles.add(Files.readAllBytes(sheetExport.getFile()));
+            }
+            FolderExportSummary parallelSummary = writer.setSheetsParallelism(4).export(workbook, ExcelToFolderWriter.Format.TEXT);
+            Assert.assertEquals(0, parallelSummary.countFailures());
+            Assert.assertEquals(sequentialSummary.getWrittenBytes(), parallelSummary.getWrittenBytes());
+            for (int i = 0; i < sheets.size(); i++) {
+                FolderExportSummary.SheetExport sheetExport = parallelSummary.getSheetExports().get(i);
+                Assert.assertEquals(folder.resolve("sheet" + i + ".txt"), sheetExport.getFile());
+                Assert.assertArrayEquals(sequentialFiles.get(i), Files.readAllBytes(sheetExport.getFile()));
+            }
+        } finally {
+            writer.setSheetsParallelism(defaultParallelism);
+        }
+    }
+
+    @Test
+    public void failedSheetIsReportedWithoutStoppingTheOthers() throws IOException {
+        Path folder = temporaryFolder.getRoot().toPath().resolve("workbook");
+        // a folder in place of the sheet's file cannot be written
+        Files.createDirectories(folder.resolve("data.bin"));
+        FolderExportSummary summary = ExcelToFolderWriter.getInstance().export(buildWorkbook(false), ExcelToFolderWriter.Format.BINARY);
+        Assert.assertEquals(1, summary.countFailures());
+        FolderExportSummary.SheetExport failedExport = summary.getSheetExports().get(0);
+        Assert.assertEquals("data", failedExport.getSheetName());
+        Assert.assertTrue(failedExport.getFailure() instanceof IOException);
+        Assert.assertTrue(Files.isRegularFile(folder.resolve("empty.bin")));
+        Assert.assertFalse(ExcelToFolderWriter.getInstance().write(buildWorkbook(false), ExcelToFolderWriter.Format.BINARY));
+    }
+
+    @Test
+    public void incrementalExportRewritesOnlyTheChangedSheets() throws IOException {
+        Path folder = temporaryFolder.getRoot().toPath().resolve("workbook");
+        Path workbookPath = temporaryFolder.getRoot().toPath().resolve("workbook.xlsx");
+        List<ESheet> sheets = Arrays.asList(buildSheet("First", 100, false), buildSheet("Second", 100, false),
+                                            buildSheet("Third", 100, false));
+        ExcelToFolderWriter writer = ExcelToFolderWriter.getInstance();
+        FolderExportSummary firstSummary = writer.exportIncrementally(new ExcelWorkbook(workbookPath, sheets),
+                                                                      ExcelToFolderWriter.Format.TEXT);
+        Assert.assertEquals(3, firstSummary.countSheets(Status.ADDED));
+        Assert.assertTrue(Files.isRegularFile(folder.resolve(ExcelToFolderWriter.MANIFEST_FILE_NAME)));
+
+        // an unchanged workbook writes no sheet
+        Files.write(folder.resolve("first.txt"), "kept".getBytes());
+        FolderExportSummary unchangedSummary = writer.exportIncrementally(new ExcelWorkbook(workbookPath, sheets),
+                                                                          ExcelToFolderWriter.Format.TEXT);
+        Assert.assertEquals(3, unchangedSummary.countSheets(Status.COMMON));
+        Assert.assertEquals(0, unchangedSummary.getWrittenBytes());
+        Assert.assertEquals("kept", new String(Files.readAllBytes(folder.resolve("first.txt"))));
+
+        // a changed sheet is rewritten, a removed sheet's file is deleted
+        List<ESheet> changedSheets = Arrays.asList(buildSheet("First", 100, false), buildSheet("Second", 101, false));
+        FolderExportSummary changedSummary = writer.exportIncrementally(new ExcelWorkbook(workbookPath, changedSheets),
+                                                                        ExcelToFolderWriter.Format.TEXT);
+        Assert.assertEquals(1, changedSummary.countSheets(Status.COMMON));
+        Assert.assertEquals(1, changedSummary.countSheets(Status.CHANGED));
+        Assert.assertEquals(1, changedSummary.countSheets(Status.DELETED));
+        Assert.assertEquals("second", changedSummary.getSheetExports().get(1).getSheetName());
+        Assert.assertEquals(Status.CHANGED, changedSummary.getSheetExports().get(1).getStatus());
+        Assert.assertFalse(Files.exists(folder.resolve("third.txt")));
+        Assert.assertEquals(101, FolderToExcelReader.getInstance().readWorkbook(folder).getSheet("second").getData().size());
+    }
+
+    @Test
+    public void incrementalExportRewritesMissingFilesAndFilesOfAnotherFormat() throws IOException {
+        Path folder = temporaryFolder.getRoot().toPath().resolve("workbook");
+        ExcelToFolderWriter writer = ExcelToFolderWriter.getInstance();
+        writer.exportIncrementally(buildWorkbook(false), ExcelToFolderWriter.Format.TEXT);
+        Files.delete(folder.resolve("data.txt"));
+        FolderExportSummary summary = writer.exportIncrementally(buildWorkbook(false), ExcelToFolderWriter.Format.TEXT);
+        Assert.assertEquals(Status.ADDED, summary.getSheetExports().get(0).getStatus());
+        Assert.assertEquals(Status.COMMON, summary.getSheetExports().get(1).getStatus());
+
+        FolderExportSummary binarySummary = writer.exportIncrementally(buildWorkbook(false), ExcelToFolderWriter.Format.BINARY);
+        Assert.assertEquals(2, binarySummary.countSheets(Status.ADDED));
+        Assert.assertEquals(2, binarySummary.countSheets(Status.DELETED));
+        Assert.assertFalse(Files.exists(folder.resolve("data.txt")));
+        Assert.assertTrue(Files.isRegularFile(folder.resolve("data.bin")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sheetsParallelismShouldBePositive() {
+        ExcelToFolderWriter.getInstance().setSheetsParallelism(0);
+    }
+
+    private EWorkbook buildWorkbook(boolean withLineBreaks) {
+        ESheet dataSheet = buildSheet("Data", 500, withLineBreaks).setStatus(Status.CHANGED);
+        ESheet emptySheet = new ExcelSheet("Empty", new ArrayList<>(), HEADERS);
+        return new ExcelWorkbook(temporaryFolder.getRoot().toPath().resolve("workbook.xlsx"),
+                                 Arrays.asList(dataSheet, emptySheet));
+    }
+
+    private ESheet buildSheet(String name, int rowsNumber, boolean withLineBreaks) {
+        List<ERow> rows = new ArrayList<>();
+        for (int i = 0; i < rowsNumber; i++) {
+            // only the binary format keeps the tabs and line breaks of the values
+            String comment = withLineBreaks && i % 7 == 0 ? "first line\nsecond\tline" : "comment" + i % 3;
+            rows.add(new ExcelRow(Arrays.asList(new ExcelCell("Key" + i), new ExcelCell("value" + i), new ExcelCell(comment))));
+        }
+        return new ExcelSheet(name, rows, HEADERS);
+    }
+}
@@ -0,0 +1,85 @@
+package com.twiza.utils;
+
+import com.twiza.domain.*;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ExcelWriterTests {
+    private static final List<String> HEADERS = Arrays.asList("Key", "Value");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void streamingWriteGivesSameWorkbookAsInMemoryWrite() throws IOException {
+        EWorkbook diffWorkbook = buildDiffWorkbook(300);
+        String inMemoryPath = temporaryFolder.getRoot().toPath().resolve("inMemory.xlsx").toString();
+        String streamingPath = temporaryFolder.getRoot().toPath().resolve("streaming.xlsx").toString();
+        ExcelWriter writer = ExcelWriter.getInstance();
+        int defaultWindowSize = writer.getRowAccessWindowSize();
+        try {
+            writer.setRowAccessWindowSize(10);
+            writer.writeToWorkbook(inMemoryPath, diffWorkbook, ExcelWriter.WriteMode.IN_MEMORY);
+            writer.writeToWorkbook(streamingPath, diffWorkbook, ExcelWriter.WriteMode.STREAMING);
+        } finally {
+            writer.setRowAccessWindowSize(defaultWindowSize);
+        }
+
+        try (XSSFWorkbook inMemoryWorkbook = new XSSFWorkbook(inMemoryPath);
+             XSSFWorkbook streamedWorkbook = new XSSFWorkbook(streamingPath)) {
+            XSSFSheet expectedSheet = inMemoryWorkbook.getSheet("Data");
+            XSSFSheet streamedSheet = streamedWorkbook.getSheet("Data");
+            Assert.assertEquals(expectedSheet.getLastRowNum(), streamedSheet.getLastRowNum());
+            Assert.assertEquals(expectedSheet.getTabColor().getARGBHex(), streamedSheet.getTabColor().getARGBHex());
+            Assert.assertEquals(29, streamedSheet.getCellComments().size());
+            Assert.assertEquals(expectedSheet.getCellComments().size(), streamedSheet.getCellComments().size());
+            for (Row expectedRow : expectedSheet) {
+                Row streamedRow = streamedSheet.getRow(expectedRow.getRowNum());
+                for (Cell expectedCell : expectedRow) {
+                    Cell streamedCell = streamedRow.getCell(expectedCell.getColumnIndex());
+                    Assert.assertEquals(expectedCell.getStringCellValue(), streamedCell.getStringCellValue());
+                    Assert.assertEquals(expectedCell.getCellStyle().getFillForegroundColor(),
+                                        streamedCell.getCellStyle().getFillForegroundColor());
+                    Assert.assertEquals(expectedCell.getCellComment() == null, streamedCell.getCellComment() == null);
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rowAccessWindowSizeShouldBePositive() {
+        ExcelWriter.getInstance().setRowAccessWindowSize(0);
+    }
+
+    /**
+     * builds the diff of two versions of a sheet, where one row out of ten changed,
+     * the first row is deleted and a new row is added.
+     */
+    private EWorkbook buildDiffWorkbook(int rowsNumber) {
+        List<ESheet> oldSheets = Arrays.asList(buildSheet(rowsNumber, 0));
+        List<ESheet> newSheets = Arrays.asList(buildSheet(rowsNumber, 1));
+        EWorkbook oldWorkbook = new ExcelWorkbook(null, oldSheets);
+        EWorkbook newWorkbook = new ExcelWorkbook(null, newSheets);
+        return newWorkbook.compare(oldWorkbook);
+    }
+
+    private ESheet buildSheet(int rowsNumber, int shift) {
+        List<ERow> rows = new ArrayList<>(rowsNumber);
+        for (int i = shift; i < rowsNumber + shift; i++) {
+            String value = i % 10 == 0 ? "value" + i + "_" + shift : "value" + i;
+            rows.add(new ExcelRow(Arrays.asList(new ExcelCell("Key" + i), new ExcelCell(value))));
+        }
+        return new ExcelSheet("Data", rows, HEADERS);
+    }
+}
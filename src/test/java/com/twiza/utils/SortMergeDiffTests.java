@@ -0,0 +1,160 @@
+package com.twiza.utils;
+
+import com.twiza.domain.*;
+import com.twiza.exceptions.HeaderNotMatchingException;
+import com.twiza.exceptions.SheetWithInconsistentDataException;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class SortMergeDiffTests {
+    private static final List<String> HEADERS = Arrays.asList("Key", "Value1", "Value2");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void compareGivesSameRowsAsSheetCompare() throws IOException {
+        List<ERow> oldRows = buildRows(400, 0);
+        List<ERow> newRows = buildRows(400, 3);
+        ESheet expectedDiff = new ExcelSheet("Sheet", buildRows(400, 3), HEADERS)
+                                      .compare(new ExcelSheet("Sheet", buildRows(400, 0), HEADERS));
+        // the sheet's diff contains the rows of the new sheet followed by the compared rows, the last row of a key wins
+        Map<RowKey, ERow> expectedRows = new HashMap<>();
+        expectedDiff.getData().forEach(row -> expectedRows.put(row.getRowKey(0), row));
+
+        List<ERow> diffRows = new ArrayList<>();
+        // a budget of one kilobyte gives more runs than can be merged at once
+        Path tempDirectory = temporaryFolder.newFolder().toPath();
+        Status status = new SortMergeDiff(tempDirectory, 1024)
+                                .compare(oldRows::forEach, newRows::forEach, diffRows::add);
+
+        Assert.assertEquals(expectedDiff.getStatus(), status);
+        Assert.assertEquals(expectedRows.size(), diffRows.size());
+        List<RowKey> keys = diffRows.stream().map(row -> row.getRowKey(0)).collect(Collectors.toList());
+        List<RowKey> sortedKeys = new ArrayList<>(keys);
+        Collections.sort(sortedKeys);
+        Assert.assertEquals(sortedKeys, keys);
+        for (ERow row : diffRows) {
+            ERow expectedRow = expectedRows.get(row.getRowKey(0));
+            Assert.assertEquals(expectedRow.getCellsValues(), row.getCellsValues());
+            Assert.assertEquals(expectedRow.getStatus(), row.getStatus());
+            for (int i = 0; i < row.getSize(); i++) {
+                Assert.assertEquals(expectedRow.getCell(i).getStatus(), row.getCell(i).getStatus());
+            }
+        }
+        try (Stream<Path> files = Files.list(tempDirectory)) {
+            Assert.assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void compareWritesTheDiffOfTwoWorkbooks() throws IOException {
+        Path oldWorkbook = createWorkbook(buildRows(50, 0));
+        Path newWorkbook = createWorkbook(buildRows(50, 1));
+        Path diffWorkbook = temporaryFolder.getRoot().toPath().resolve("diff.xlsx");
+        Status status = new SortMergeDiff(temporaryFolder.newFolder().toPath(), 2048)
+                                .compare(oldWorkbook, newWorkbook, "Data", diffWorkbook);
+
+        Assert.assertEquals(Status.CHANGED, status);
+        try (XSSFWorkbook workbook = new XSSFWorkbook(diffWorkbook.toString())) {
+            XSSFSheet sheet = workbook.getSheet("Data");
+            Assert.assertEquals("Key", sheet.getRow(0).getCell(0).getStringCellValue());
+            // 49 common rows, 1 deleted and 1 added row, after the headers
+            Assert.assertEquals(51, sheet.getLastRowNum());
+            Assert.assertNotNull(sheet.getTabColor());
+            // the rows 10, 20, 30 and 40 have a changed cell
+            Assert.assertEquals(4, sheet.getCellComments().size());
+        }
+    }
+
+    @Test
+    public void compareWithMissingSheetGivesAddedRows() throws IOException {
+        Path oldWorkbook = temporaryFolder.getRoot().toPath().resolve("missing.xlsx");
+        Path newWorkbook = createWorkbook(buildRows(10, 0));
+        Path diffWorkbook = temporaryFolder.getRoot().toPath().resolve("diff.xlsx");
+        Status status = new SortMergeDiff(temporaryFolder.newFolder().toPath(), SortMergeDiff.DEFAULT_MEMORY_BUDGET)
+                                .compare(oldWorkbook, newWorkbook, "Data", diffWorkbook);
+        Assert.assertEquals(Status.ADDED, status);
+    }
+
+    @Test(expected = HeaderNotMatchingException.class)
+    public void compareThrowsExceptionIfHeadersAreNotMatching() throws IOException {
+        Path oldWorkbook = createWorkbook(buildRows(5, 0));
+        Path newWorkbook = createWorkbook(Arrays.asList("Key", "Value1", "OtherHeader"), buildRows(5, 0));
+        new SortMergeDiff().compare(oldWorkbook, newWorkbook, "Data", temporaryFolder.getRoot().toPath().resolve("diff.xlsx"));
+    }
+
+    @Test(expected = SheetWithInconsistentDataException.class)
+    public void compareThrowsExceptionIfAKeyHasDifferentRows() throws IOException {
+        List<ERow> newRows = buildRows(10, 0);
+        newRows.add(buildRow("Key5", "other", "values"));
+        new SortMergeDiff().compare(buildRows(10, 0)::forEach, newRows::forEach, row -> {
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void memoryBudgetShouldBeAtLeastOneKilobyte() {
+        new SortMergeDiff(temporaryFolder.getRoot().toPath(), 1023);
+    }
+
+    /**
+     * builds rows where the keys are shifted by {@code shift}, and one row out of ten changes between 2 versions.
+     */
+    private List<ERow> buildRows(int rowsNumber, int shift) {
+        List<ERow> rows = new ArrayList<>(rowsNumber);
+        for (int i = shift; i < rowsNumber + shift; i++) {
+            String lastValue = i % 10 == 0 ? "value" + i + 2 + shift : "value" + i + 2;
+            rows.add(buildRow("Key" + i, "value" + i + 1, lastValue));
+        }
+        return rows;
+    }
+
+    private ERow buildRow(String... values) {
+        List<ECell> cells = new ArrayList<>();
+        for (String value : values) {
+            cells.add(new ExcelCell(value));
+        }
+        return new ExcelRow(cells);
+    }
+
+    private Path createWorkbook(List<ERow> rows) throws IOException {
+        return createWorkbook(HEADERS, rows);
+    }
+
+    private Path createWorkbook(List<String> headersValues, List<ERow> rows) throws IOException {
+        Path workbookPath = temporaryFolder.newFile().toPath();
+        try (Workbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("Data");
+            int rowIndex = 0;
+            Row headers = sheet.createRow(rowIndex++);
+            for (int i = 0; i < headersValues.size(); i++) {
+                headers.createCell(i).setCellValue(headersValues.get(i));
+            }
+            for (ERow eRow : rows) {
+                Row row = sheet.createRow(rowIndex++);
+                for (int i = 0; i < eRow.getSize(); i++) {
+                    row.createCell(i).setCellValue(eRow.getCell(i).getValue());
+                }
+            }
+            try (FileOutputStream outputStream = new FileOutputStream(workbookPath.toFile())) {
+                workbook.write(outputStream);
+            }
+        }
+        return workbookPath;
+    }
+}
@@ -0,0 +1,28 @@
+package com.twiza.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StringPoolTests {
+
+    @Test
+    public void equalValuesShareTheFirstInstance() {
+        StringPool pool = new StringPool();
+        String first = new String("value");
+        String second = new String("value");
+        Assert.assertSame(first, pool.pool(first));
+        Assert.assertSame(first, pool.pool(second));
+        Assert.assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void fullPoolReturnsNewValuesAsTheyAre() {
+        StringPool pool = new StringPool(1);
+        String pooled = pool.pool(new String("pooled"));
+        String notPooled = new String("notPooled");
+        Assert.assertSame(notPooled, pool.pool(notPooled));
+        Assert.assertNotSame(notPooled, pool.pool(new String("notPooled")));
+        Assert.assertSame(pooled, pool.pool(new String("pooled")));
+        Assert.assertEquals(1, pool.size());
+    }
+}
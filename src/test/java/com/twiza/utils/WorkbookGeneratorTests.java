@@ -0,0 +1,88 @@
+package com.twiza.utils;
+
+import com.twiza.domain.*;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class WorkbookGeneratorTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void generatedWorkbooksAreReadAsTheirModel() throws IOException {
+        WorkbookGenerator.GeneratedWorkbooks generated = buildGenerator().setModelKept(true).generate(oldPath(), newPath());
+        for (ExcelReader.ReadMode readMode : ExcelReader.ReadMode.values()) {
+            EWorkbook oldWorkbook = ExcelReader.getInstance().read(generated.getOldWorkbookPath(), null, false, readMode);
+            EWorkbook newWorkbook = ExcelReader.getInstance().read(generated.getNewWorkbookPath(), null, false, readMode);
+            for (String sheetName : generated.getNewWorkbook().getSheets().keySet()) {
+                Assert.assertEquals(readMode.toString(), generated.getOldWorkbook().getSheet(sheetName).getData(),
+                                    oldWorkbook.getSheet(sheetName).getData());
+                Assert.assertEquals(readMode.toString(), generated.getNewWorkbook().getSheet(sheetName).getData(),
+                                    newWorkbook.getSheet(sheetName).getData());
+            }
+        }
+    }
+
+    @Test
+    public void diffOfGeneratedWorkbooksHasTheExpectedRows() throws IOException {
+        WorkbookGenerator.GeneratedWorkbooks generated = buildGenerator().generate(oldPath(), newPath());
+        EWorkbook oldWorkbook = ExcelReader.getInstance().read(generated.getOldWorkbookPath());
+        EWorkbook newWorkbook = ExcelReader.getInstance().read(generated.getNewWorkbookPath());
+        oldWorkbook.getSheets().values().forEach(sheet -> sheet.adoptFirstRowAsHeaders(true));
+        newWorkbook.getSheets().values().forEach(sheet -> sheet.adoptFirstRowAsHeaders(true));
+        EWorkbook diffWorkbook = newWorkbook.compare(oldWorkbook);
+        for (Status status : new Status[]{Status.ADDED, Status.DELETED, Status.CHANGED}) {
+            long rowsNumber = diffWorkbook.getSheets().values().stream()
+                                          .flatMap(sheet -> sheet.getData().stream())
+                                          .filter(row -> row.getStatus() == status)
+                                          .count();
+            Assert.assertTrue(status.toString(), generated.getExpectedRowsNumber(status) > 0);
+            Assert.assertEquals(status.toString(), generated.getExpectedRowsNumber(status), rowsNumber);
+        }
+    }
+
+    @Test
+    public void sameSeedGeneratesSameWorkbooks() throws IOException {
+        EWorkbook first = buildGenerator().setModelKept(true).generate(oldPath(), newPath()).getNewWorkbook();
+        EWorkbook second = buildGenerator().setModelKept(true).generate(oldPath(), newPath()).getNewWorkbook();
+        Assert.assertEquals(first.getSheet("Sheet2").getData(), second.getSheet("Sheet2").getData());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void ratiosCannotSumUpToMoreThanOne() throws IOException {
+        new WorkbookGenerator().setAddedRowsRatio(0.5).setDeletedRowsRatio(0.5).setChangedRowsRatio(0.1)
+                               .generate(oldPath(), newPath());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ratioShouldBeBetweenZeroAndOne() {
+        new WorkbookGenerator().setBlankRowsRatio(1.5);
+    }
+
+    private WorkbookGenerator buildGenerator() {
+        return new WorkbookGenerator().setSheetsNumber(2)
+                                      .setRowsNumber(500)
+                                      .setColumnsNumber(6)
+                                      .setValuesCardinality(20)
+                                      .setFormulaColumnsNumber(2)
+                                      .setAddedRowsRatio(0.05)
+                                      .setDeletedRowsRatio(0.05)
+                                      .setChangedRowsRatio(0.1)
+                                      .setDuplicateRowsRatio(0.02)
+                                      .setBlankRowsRatio(0.02);
+    }
+
+    private Path oldPath() {
+        return temporaryFolder.getRoot().toPath().resolve("old.xlsx");
+    }
+
+    private Path newPath() {
+        return temporaryFolder.getRoot().toPath().resolve("new.xlsx");
+    }
+}
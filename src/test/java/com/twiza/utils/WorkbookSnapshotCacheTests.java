@@ -0,0 +1,186 @@
+package com.twiza.utils;
+
+import com.twiza.domain.*;
+import com.twiza.exceptions.WorkbookWithInvalidFormatException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class WorkbookSnapshotCacheTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void secondReadIsLoadedFromTheSnapshot() throws IOException {
+        Path workbookPath = generateWorkbook("workbook.xlsx", WorkbookGenerator.DEFAULT_SEED);
+        WorkbookSnapshotCache cache = new WorkbookSnapshotCache(temporaryFolder.getRoot().toPath().resolve("cache"));
+        EWorkbook parsedWorkbook = cache.read(workbookPath);
+        EWorkbook cachedWorkbook = cache.read(workbookPath);
+        Assert.assertEquals(1, cache.getMissesNumber());
+        Assert.assertEquals(1, cache.getHitsNumber());
+        EWorkbook expectedWorkbook = ExcelReader.getInstance().read(workbookPath);
+        Assert.assertEquals(expectedWorkbook.getSheets().keySet(), cachedWorkbook.getSheets().keySet());
+        for (String sheetName : expectedWorkbook.getSheets().keySet()) {
+            Assert.assertEquals(expectedWorkbook.getSheet(sheetName).getData(), parsedWorkbook.getSheet(sheetName).getData());
+            Assert.assertEquals(expectedWorkbook.getSheet(sheetName).getData(), cachedWorkbook.getSheet(sheetName).getData());
+        }
+        Assert.assertEquals(workbookPath, cachedWorkbook.getWorkbookPath());
+    }
+
+    @Test
+    public void readOptionsAndContentHaveTheirOwnSnapshots() throws IOException {
+        Path workbookPath = generateWorkbook("workbook.xlsx", WorkbookGenerator.DEFAULT_SEED);
+        Path cacheDirectory = temporaryFolder.getRoot().toPath().resolve("cache");
+        WorkbookSnapshotCache cache = new WorkbookSnapshotCache(cacheDirectory);
+        cache.read(workbookPath);
+        EWorkbook workbook = cache.read(workbookPath, Collections.singletonList("workbook/Sheet2"), false,
+                                        ExcelReader.ReadMode.STREAMING);
+        Assert.assertNull(workbook.getSheet("Sheet2"));
+        Assert.assertNotNull(workbook.getSheet("Sheet1"));
+        generateWorkbook("workbook.xlsx", 7);
+        cache.read(workbookPath);
+        Assert.assertEquals(3, cache.getMissesNumber());
+        Assert.assertEquals(3, snapshots(cacheDirectory).size());
+    }
+
+    @Test
+    public void leastRecentlyUsedSnapshotsAreEvicted() throws IOException {
+        Path cacheDirectory = temporaryFolder.getRoot().toPath().resolve("cache");
+        Path firstPath = generateWorkbook("first.xlsx", 1);
+        Path secondPath = generateWorkbook("second.xlsx", 2);
+        new WorkbookSnapshotCache(cacheDirectory).read(firstPath);
+        long snapshotSize = Files.size(snapshots(cacheDirectory).get(0));
+        WorkbookSnapshotCache cache = new WorkbookSnapshotCache(cacheDirectory, snapshotSize + snapshotSize / 2);
+        cache.read(secondPath);
+        Assert.assertEquals(1, snapshots(cacheDirectory).size());
+        cache.read(secondPath);
+        Assert.assertEquals(1, cache.getHitsNumber());
+    }
+
+    @Test
+    public void corruptedSnapshotIsReadAgainFromTheWorkbook() throws IOException {
+        Path workbookPath = generateWorkbook("workbook.xlsx", WorkbookGenerator.DEFAULT_SEED);
+        Path cacheDirectory = temporaryFolder.getRoot().toPath().resolve("cache");
+        WorkbookSnapshotCache cache = new WorkbookSnapshotCache(cacheDirectory);
+        cache.read(workbookPath);
+        Path snapshot = snapshots(cacheDirectory).get(0);
+        byte[] content = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(content, content.length / 2));
+        EWorkbook workbook = cache.read(workbookPath);
+        Assert.assertEquals(2, cache.getMissesNumber());
+        Assert.assertEquals(ExcelReader.getInstance().read(workbookPath).getSheet("Sheet1").getData(),
+                            workbook.getSheet("Sheet1").getData());
+        Assert.assertEquals(content.length, Files.size(snapshot));
+    }
+
+    @Test
+    public void sheetCodecKeepsValuesHeadersKeyIndexesAndStatus() throws IOException {
+        List<ERow> rows = new ArrayList<>();
+        rows.add(new ExcelRow(Arrays.asList(new ExcelCell("a\tb"), new ExcelCell("line\nbreak"), new ExcelCell("\u00e9"))));
+        rows.add(new ExcelRow(Arrays.asList(new ExcelCell("c"), new ExcelCell(""), new ExcelCell("\u00e9"))));
+        ESheet sheet = new ExcelSheet("Sheet", rows, Arrays.asList("Key1", "Key2", "Value"), 0, 1).setStatus(Status.CHANGED);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SheetCodec.write(sheet, Channels.newChannel(bytes));
+        ESheet readSheet = SheetCodec.read(ByteBuffer.wrap(bytes.toByteArray()));
+        Assert.assertEquals(sheet.getName(), readSheet.getName());
+        Assert.assertEquals(sheet.getHeaders(), readSheet.getHeaders());
+        Assert.assertArrayEquals(sheet.getKeysIndexes(), readSheet.getKeysIndexes());
+        Assert.assertEquals(Status.CHANGED, readSheet.getStatus());
+        Assert.assertEquals(sheet.getData(), readSheet.getData());
+    }
+
+    @Test
+    public void snapshotWithCorruptedSheetsCountIsReadAgainFromTheWorkbook() throws IOException {
+        Path workbookPath = generateWorkbook("workbook.xlsx", WorkbookGenerator.DEFAULT_SEED);
+        Path cacheDirectory = temporaryFolder.getRoot().toPath().resolve("cache");
+        WorkbookSnapshotCache cache = new WorkbookSnapshotCache(cacheDirectory);
+        cache.read(workbookPath);
+        Path snapshot = snapshots(cacheDirectory).get(0);
+        byte[] content = Files.readAllBytes(snapshot);
+        // the sheets count follows the magic number and the format version
+        byte[] corrupted = content.clone();
+        ByteBuffer.wrap(corrupted).putInt(Integer.BYTES + Short.BYTES, Integer.MAX_VALUE);
+        Files.write(snapshot, corrupted);
+        EWorkbook workbook = cache.read(workbookPath);
+        Assert.assertEquals(2, cache.getMissesNumber());
+        Assert.assertEquals(2, workbook.getSheets().size());
+        Assert.assertArrayEquals(content, Files.readAllBytes(snapshot));
+    }
+
+    @Test
+    public void sheetCodecRejectsCorruptedCountsBeforeAllocatingThem() throws IOException {
+        ESheet sheet = new ExcelSheet("Sheet", new ArrayList<>(Collections.singletonList(
+                new ExcelRow(Arrays.asList(new ExcelCell("a"), new ExcelCell("b"))))), Arrays.asList("Key", "Value"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SheetCodec.write(sheet, Channels.newChannel(bytes));
+        // the headers count follows the magic number, the format version, the name and the status
+        int headersCountPosition = Integer.BYTES + Short.BYTES + Integer.BYTES + "Sheet".length() + Byte.BYTES;
+        for (int corruptedCount : new int[]{Integer.MAX_VALUE, -2}) {
+            byte[] corrupted = bytes.toByteArray();
+            ByteBuffer.wrap(corrupted).putInt(headersCountPosition, corruptedCount);
+            try {
+                SheetCodec.read(ByteBuffer.wrap(corrupted));
+                Assert.fail("the headers count " + corruptedCount + " is corrupted");
+            } catch (WorkbookWithInvalidFormatException e) {
+                Assert.assertTrue(e.getMessage().contains(String.valueOf(corruptedCount)));
+            }
+        }
+    }
+
+    @Test
+    public void sheetCodecRejectsCorruptedSheetSizes() throws IOException {
+        ESheet sheet = new ExcelSheet("Sheet", new ArrayList<>(Collections.singletonList(
+                new ExcelRow(Arrays.asList(new ExcelCell("a"), new ExcelCell("b"))))), Arrays.asList("Key", "Value"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SheetCodec.write(sheet, Channels.newChannel(bytes));
+        // the rows and columns numbers follow the headers and the key indexes
+        int rowsNumberPosition = Integer.BYTES + Short.BYTES + Integer.BYTES + "Sheet".length() + Byte.BYTES
+                + Integer.BYTES + Integer.BYTES + "Key".length() + Integer.BYTES + "Value".length()
+                + Integer.BYTES + sheet.getKeysIndexes().length * Integer.BYTES;
+        int[][] corruptedSizes = {{Integer.MAX_VALUE, 0}, {-1, -1}, {-1, 2}, {1, -2}};
+        for (int[] corruptedSize : corruptedSizes) {
+            byte[] corrupted = bytes.toByteArray();
+            ByteBuffer.wrap(corrupted)
+                      .putInt(rowsNumberPosition, corruptedSize[0])
+                      .putInt(rowsNumberPosition + Integer.BYTES, corruptedSize[1]);
+            try {
+                SheetCodec.read(ByteBuffer.wrap(corrupted));
+                Assert.fail("the sheet size " + Arrays.toString(corruptedSize) + " is corrupted");
+            } catch (WorkbookWithInvalidFormatException e) {
+                Assert.assertTrue(e.getMessage().contains(corruptedSize[0] + " rows of " + corruptedSize[1]));
+            }
+        }
+    }
+
+    private Path generateWorkbook(String fileName, long seed) throws IOException {
+        Path workbookPath = temporaryFolder.getRoot().toPath().resolve(fileName);
+        new WorkbookGenerator().setSheetsNumber(2)
+                               .setRowsNumber(300)
+                               .setFormulaColumnsNumber(1)
+                               .setBlankRowsRatio(0.05)
+                               .setSeed(seed)
+                               .generate(workbookPath, temporaryFolder.getRoot().toPath().resolve("other-" + fileName));
+        return workbookPath;
+    }
+
+    private List<Path> snapshots(Path cacheDirectory) throws IOException {
+        try (Stream<Path> paths = Files.list(cacheDirectory)) {
+            return paths.filter(path -> path.toString().endsWith(".snapshot")).collect(Collectors.toList());
+        }
+    }
+}